@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mapping.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.objectweb.asm.ClassReader;
+
+/**
+ * A class hierarchy read from class files.
+ *
+ * <p>Only the header of each class file is read. Classes may be added until the
+ * hierarchy is used; it must not be changed while it is read concurrently.
+ */
+public final class AsmClassHierarchy implements ClassHierarchy {
+
+	private final Map<String, List<String>> supertypes = new HashMap<>();
+
+	/**
+	 * Reads the class files of a jar.
+	 *
+	 * @param jar the jar file
+	 * @return the hierarchy of the classes in the jar
+	 * @throws IOException if the jar cannot be read
+	 */
+	public static AsmClassHierarchy read(Path jar) throws IOException {
+		final AsmClassHierarchy ret = new AsmClassHierarchy();
+		ret.addJar(jar);
+		return ret;
+	}
+
+	/**
+	 * Adds the class files of a jar.
+	 *
+	 * @param jar the jar file
+	 * @throws IOException if the jar cannot be read
+	 */
+	public void addJar(Path jar) throws IOException {
+		try (ZipFile zip = new ZipFile(jar.toFile())) {
+			final Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				final ZipEntry entry = entries.nextElement();
+				if (!entry.isDirectory() && entry.getName().endsWith(".class")) {
+					try (InputStream in = zip.getInputStream(entry)) {
+						add(new ClassReader(in));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a class file.
+	 *
+	 * @param classFile the content of the class file
+	 */
+	public void add(byte[] classFile) {
+		add(new ClassReader(classFile));
+	}
+
+	/**
+	 * Adds the class read by a class reader.
+	 *
+	 * @param reader the class reader
+	 */
+	public void add(ClassReader reader) {
+		final String superName = reader.getSuperName();
+		final String[] interfaces = reader.getInterfaces();
+		final List<String> list = new ArrayList<>(interfaces.length + 1);
+		if (superName != null) {
+			list.add(superName);
+		}
+		list.addAll(Arrays.asList(interfaces));
+		supertypes.put(reader.getClassName(), Collections.unmodifiableList(list));
+	}
+
+	@Override
+	public Collection<String> getSupertypes(String className) {
+		final List<String> ret = supertypes.get(className);
+		return ret == null ? Collections.emptyList() : ret;
+	}
+}
@@ -16,14 +16,19 @@
 
 package net.fabricmc.mapping.util;
 
+import net.fabricmc.mapping.reader.v2.TinyMetadata;
 import net.fabricmc.mapping.tree.*;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.objectweb.asm.commons.Remapper;
 
 import java.lang.ref.SoftReference;
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * A factory for Java assembly remappers between namespaces in a mapping set.
@@ -31,49 +36,154 @@ import java.util.Map;
 public final class AsmRemapperFactory {
 
 	private static final class SimpleRemapper extends Remapper {
-		private final Map<String, String> classNames = new HashMap<>();
-		private final Map<EntryTriple, String> fieldNames = new HashMap<>();
-		private final Map<EntryTriple, String> methodNames = new HashMap<>();
-
-		SimpleRemapper(Collection<ClassDef> classes, String from, String to) {
-			for (ClassDef clz : classes) {
-				String className = clz.getName(from);
-				classNames.put(className, clz.getName(to));
-				for (FieldDef field : clz.getFields()) {
-					fieldNames.put(new EntryTriple(className, field.getName(from), field.getDescriptor(from)), field.getName(to));
-				}
-				for (MethodDef method : clz.getMethods()) {
-					methodNames.put(new EntryTriple(className, method.getName(from), method.getDescriptor(from)), method.getName(to));
-				}
-			}
+		private final RemappingIndex index;
+
+		SimpleRemapper(RemappingIndex index) {
+			this.index = index;
+		}
+
+		@Override
+		public String map(String typeName) {
+			final @Nullable String ret = index.mapClassName(typeName);
+			return ret == null ? typeName : ret;
+		}
+
+		@Override
+		public String mapFieldName(final String owner, final String name, final String descriptor) {
+			final @Nullable String ret = index.mapFieldName(owner, name, descriptor);
+			return ret == null ? name : ret;
+		}
+
+		@Override
+		public String mapMethodName(final String owner, final String name, final String descriptor) {
+			final @Nullable String ret = index.mapMethodName(owner, name, descriptor);
+			return ret == null ? name : ret;
+		}
+	}
+
+	private static final class HierarchyRemapper extends Remapper {
+		private final SimpleRemapper remapper;
+		private final HierarchyResolver resolver;
+
+		HierarchyRemapper(SimpleRemapper remapper, ClassHierarchy hierarchy) {
+			this.remapper = remapper;
+			this.resolver = new HierarchyResolver(hierarchy, remapper.index::mapFieldName, remapper.index::mapMethodName);
 		}
 
 		@Override
 		public String map(String typeName) {
-			return classNames.getOrDefault(typeName, typeName);
+			return remapper.map(typeName);
 		}
 
 		@Override
 		public String mapFieldName(final String owner, final String name, final String descriptor) {
-			return fieldNames.getOrDefault(new EntryTriple(owner, name, descriptor), name);
+			return resolver.mapFieldName(owner, name, descriptor);
 		}
 
 		@Override
 		public String mapMethodName(final String owner, final String name, final String descriptor) {
-			return methodNames.getOrDefault(new EntryTriple(owner, name, descriptor), name);
+			return resolver.mapMethodName(owner, name, descriptor);
+		}
+	}
+
+	/**
+	 * How long a factory keeps the remappers it has built.
+	 */
+	public static final class Retention {
+		private static final Retention SOFT = new Retention(true, Integer.MAX_VALUE);
+		private static final Retention STRONG = new Retention(false, Integer.MAX_VALUE);
+
+		final boolean soft;
+		final int maxRemappers;
+
+		private Retention(boolean soft, int maxRemappers) {
+			this.soft = soft;
+			this.maxRemappers = maxRemappers;
+		}
+
+		/**
+		 * Keeps remappers until the garbage collector needs their memory.
+		 *
+		 * @return the retention
+		 */
+		public static Retention soft() {
+			return SOFT;
+		}
+
+		/**
+		 * Keeps remappers as long as the factory.
+		 *
+		 * @return the retention
+		 */
+		public static Retention strong() {
+			return STRONG;
+		}
+
+		/**
+		 * Keeps a number of remappers as long as the factory, dropping the ones built
+		 * earliest when more are built.
+		 *
+		 * @param maxRemappers the maximum number of remappers kept
+		 * @return the retention
+		 */
+		public static Retention bounded(int maxRemappers) {
+			if (maxRemappers < 0)
+				throw new IllegalArgumentException("Negative remapper count " + maxRemappers + "!");
+			return new Retention(false, maxRemappers);
 		}
 	}
 
-	private final Map<String, SoftReference<SimpleRemapper>> remapperCache = new HashMap<>();
 	private final TinyTree mapping;
+	private final Retention retention;
+	private final @Nullable ForkJoinPool pool;
+	private final int namespaceCount;
+	// per namespace pair: a remapper, a soft reference to one, or the task building one
+	private final AtomicReferenceArray<@Nullable Object> remappers;
+	// the retained remappers by slot in the order they were built, guarded by itself
+	private final Map<Integer, SimpleRemapper> built = new LinkedHashMap<>();
 
 	/**
 	 * Create a factory backed by a set of mapping.
 	 *
+	 * <p>The factory keeps the remappers it builds {@linkplain Retention#soft() softly}.
+	 *
 	 * @param mapping the mapping
 	 */
 	public AsmRemapperFactory(TinyTree mapping) {
+		this(mapping, Retention.soft());
+	}
+
+	/**
+	 * Create a factory backed by a set of mapping.
+	 *
+	 * <p>The remappers wrap the {@linkplain RemappingIndex#of(TinyTree, int, int) shared index}
+	 * of their namespaces, so other remappers of the mapping reuse their tables.
+	 *
+	 * <p>The factory is safe for concurrent use. When several threads obtain a
+	 * remapper which is not built yet, one of them builds it and the others wait
+	 * for that remapper.
+	 *
+	 * @param mapping   the mapping
+	 * @param retention how long built remappers are kept
+	 */
+	public AsmRemapperFactory(TinyTree mapping, Retention retention) {
+		this(mapping, retention, null);
+	}
+
+	/**
+	 * Create a factory backed by a set of mapping, which builds remappers in parallel.
+	 *
+	 * @param mapping   the mapping
+	 * @param retention how long built remappers are kept
+	 * @param pool      the pool remappers are built on, or {@code null} to build them on the calling thread
+	 * @see RemappingIndex#of(TinyTree, int, int, ForkJoinPool)
+	 */
+	public AsmRemapperFactory(TinyTree mapping, Retention retention, @Nullable ForkJoinPool pool) {
 		this.mapping = mapping;
+		this.retention = retention;
+		this.pool = pool;
+		this.namespaceCount = mapping.getMetadata().getNamespaces().size();
+		this.remappers = new AtomicReferenceArray<>(namespaceCount * namespaceCount);
 	}
 
 	/**
@@ -84,15 +194,127 @@ public final class AsmRemapperFactory {
 	 * @return the remapper
 	 */
 	public Remapper getRemapper(String from, String to) {
-		String key = from + ":" + to;
-		SoftReference<SimpleRemapper> remapperRef = remapperCache.get(key);
-		@Nullable SimpleRemapper ret;
-		if (remapperRef != null && (ret = remapperRef.get()) != null) {
+		final TinyMetadata metadata = mapping.getMetadata();
+		return getRemapper(metadata.index(from), metadata.index(to));
+	}
+
+	/**
+	 * Obtains the remapper between two namespaces.
+	 *
+	 * <p>The indices of the namespaces are the ones from {@link TinyMetadata#index(String)}
+	 * of the mapping's metadata.
+	 *
+	 * @param from the index of the source namespace
+	 * @param to the index of the target namespace
+	 * @return the remapper
+	 */
+	public Remapper getRemapper(int from, int to) {
+		return getSimpleRemapper(from, to);
+	}
+
+	/**
+	 * Obtains a remapper between two namespaces which also maps member references
+	 * whose owner inherits the member.
+	 *
+	 * <p>Unlike the remappers without a hierarchy, the remapper is created on every
+	 * call, while it shares the tables of the namespaces with them.
+	 *
+	 * @param from      the source namespace
+	 * @param to        the target namespace
+	 * @param hierarchy the class hierarchy in the source namespace, such as an {@link AsmClassHierarchy}
+	 * @return the remapper
+	 * @see HierarchyResolver
+	 */
+	public Remapper getRemapper(String from, String to, ClassHierarchy hierarchy) {
+		final TinyMetadata metadata = mapping.getMetadata();
+		return getRemapper(metadata.index(from), metadata.index(to), hierarchy);
+	}
+
+	/**
+	 * Obtains a remapper between two namespaces which also maps member references
+	 * whose owner inherits the member.
+	 *
+	 * @param from      the index of the source namespace
+	 * @param to        the index of the target namespace
+	 * @param hierarchy the class hierarchy in the source namespace
+	 * @return the remapper
+	 * @see #getRemapper(String, String, ClassHierarchy)
+	 */
+	public Remapper getRemapper(int from, int to, ClassHierarchy hierarchy) {
+		return new HierarchyRemapper(getSimpleRemapper(from, to), hierarchy);
+	}
+
+	private SimpleRemapper getSimpleRemapper(int from, int to) {
+		if (from < 0 || to < 0 || from >= namespaceCount || to >= namespaceCount) {
+			return buildRemapper(from, to);
+		}
+		final int slot = from * namespaceCount + to;
+		while (true) {
+			final @Nullable Object current = remappers.get(slot);
+			final @Nullable Object held = current instanceof SoftReference ? ((SoftReference<?>) current).get() : current;
+			if (held instanceof SimpleRemapper) {
+				return (SimpleRemapper) held;
+			}
+			if (held instanceof FutureTask) {
+				return join((FutureTask<?>) held);
+			}
+
+			final FutureTask<SimpleRemapper> task = new FutureTask<>(() -> buildRemapper(from, to));
+			if (!remappers.compareAndSet(slot, current, task)) {
+				continue;
+			}
+			task.run();
+			final SimpleRemapper ret;
+			try {
+				ret = join(task);
+			} catch (RuntimeException | Error ex) {
+				remappers.compareAndSet(slot, task, null); // let the next call try again
+				throw ex;
+			}
+			retain(slot, task, ret);
 			return ret;
-		} else {
-			SimpleRemapper remapper = new SimpleRemapper(mapping.getClasses(), from, to);
-			remapperCache.put(key, new SoftReference<>(remapper));
-			return remapper;
+		}
+	}
+
+	private SimpleRemapper buildRemapper(int from, int to) {
+		return new SimpleRemapper(RemappingIndex.of(mapping, from, to, pool));
+	}
+
+	private void retain(int slot, FutureTask<SimpleRemapper> task, SimpleRemapper remapper) {
+		if (retention.maxRemappers == 0) {
+			remappers.compareAndSet(slot, task, null);
+			return;
+		}
+		remappers.compareAndSet(slot, task, retention.soft ? new SoftReference<>(remapper) : remapper);
+		if (retention.maxRemappers == Integer.MAX_VALUE) {
+			return;
+		}
+		synchronized (built) {
+			built.remove(slot);
+			built.put(slot, remapper);
+			final Iterator<Map.Entry<Integer, SimpleRemapper>> oldest = built.entrySet().iterator();
+			while (built.size() > retention.maxRemappers) {
+				final Map.Entry<Integer, SimpleRemapper> entry = oldest.next();
+				oldest.remove();
+				// only drop that remapper, not one rebuilt in its slot since
+				remappers.compareAndSet(entry.getKey(), entry.getValue(), null);
+			}
+		}
+	}
+
+	private static SimpleRemapper join(FutureTask<?> task) {
+		try {
+			return (SimpleRemapper) task.get();
+		} catch (ExecutionException ex) {
+			final Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a remapper", ex);
 		}
 	}
 }
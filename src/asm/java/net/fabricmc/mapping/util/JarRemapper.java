@@ -0,0 +1,298 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mapping.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.Remapper;
+
+/**
+ * Remaps whole jars with an ASM remapper.
+ *
+ * <p>Class files are remapped in parallel and moved to the entry of their mapped
+ * name. Other entries are copied as they are, except for signatures: remapping
+ * breaks them, so the signature files of the jar are dropped and the digests are
+ * stripped from the manifest. The output has the entries in the order of the input
+ * with their modification times, so remapping the same jar twice gives the same
+ * output.
+ *
+ * <p>Directory entries are not copied, as classes may move out of their packages.
+ * If the input has any, each entry of the output is instead preceded by the ones
+ * of its directories not written yet, so empty directories are dropped.
+ *
+ * <p>The remapper is used from several threads at once, which the remappers from
+ * {@link AsmRemapperFactory} allow.
+ */
+public final class JarRemapper {
+
+	private static final String CLASS_SUFFIX = ".class";
+	private static final String META_INF = "META-INF/";
+	private static final String DIGEST_SUFFIX = "-Digest";
+
+	/**
+	 * Remaps a jar on the {@linkplain ForkJoinPool#commonPool() common pool}.
+	 *
+	 * @param input    the jar to remap
+	 * @param output   the jar to write, which is replaced if it exists
+	 * @param remapper the remapper
+	 * @throws IOException if a jar cannot be read or written, or two entries are
+	 *                     mapped to the same name
+	 */
+	public static void remap(Path input, Path output, Remapper remapper) throws IOException {
+		remap(input, output, remapper, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Remaps a jar.
+	 *
+	 * <p>Entries are read and remapped on the {@code pool} while the ones before
+	 * them are written, so only a few entries per thread of the pool are held in
+	 * memory at a time.
+	 *
+	 * @param input    the jar to remap
+	 * @param output   the jar to write, which is replaced if it exists
+	 * @param remapper the remapper
+	 * @param pool     the pool classes are remapped on
+	 * @throws IOException if a jar cannot be read or written, or two entries are
+	 *                     mapped to the same name
+	 */
+	public static void remap(Path input, Path output, Remapper remapper, ForkJoinPool pool) throws IOException {
+		final int window = pool.getParallelism() * 4;
+		final Queue<ForkJoinTask<Entry>> pending = new ArrayDeque<>(window);
+		try (ZipFile zip = new ZipFile(input.toFile());
+				ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(output))) {
+			final Output target = new Output(out, zip.stream().anyMatch(ZipEntry::isDirectory));
+			try {
+				final Enumeration<? extends ZipEntry> entries = zip.entries();
+				while (entries.hasMoreElements()) {
+					final ZipEntry entry = entries.nextElement();
+					if (entry.isDirectory() || isSignature(entry.getName())) {
+						continue;
+					}
+					pending.add(pool.submit(() -> read(zip, entry, remapper)));
+					if (pending.size() >= window) {
+						target.write(join(pending.remove()));
+					}
+				}
+				while (!pending.isEmpty()) {
+					target.write(join(pending.remove()));
+				}
+			} finally {
+				// the zip is closed next, so no task may still read it
+				for (ForkJoinTask<Entry> task : pending) {
+					task.cancel(false);
+					task.quietlyJoin();
+				}
+			}
+		}
+	}
+
+	private static Entry read(ZipFile zip, ZipEntry entry, Remapper remapper) {
+		final byte[] content;
+		try (InputStream in = zip.getInputStream(entry)) {
+			content = readFully(in, entry.getSize());
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Failed to read " + entry.getName(), ex);
+		}
+		if (entry.getName().equals(JarFile.MANIFEST_NAME)) {
+			return new Entry(entry.getName(), entry.getName(), entry.getTime(), stripDigests(content));
+		}
+		if (!entry.getName().endsWith(CLASS_SUFFIX)) {
+			return new Entry(entry.getName(), entry.getName(), entry.getTime(), content);
+		}
+
+		final ClassReader reader = new ClassReader(content);
+		final ClassWriter writer = new ClassWriter(0);
+		try {
+			reader.accept(new ClassRemapper(writer, remapper), 0);
+		} catch (RuntimeException ex) {
+			throw new IllegalStateException("Failed to remap " + entry.getName(), ex);
+		}
+		// keep the location of classes outside of the package root, such as multi-release versions
+		final String className = reader.getClassName();
+		final String name = entry.getName();
+		final String classFile = className + CLASS_SUFFIX;
+		final String mappedName = name.endsWith(classFile) ? name.substring(0, name.length() - classFile.length()) + remapper.mapType(className) + CLASS_SUFFIX : name;
+		return new Entry(name, mappedName, entry.getTime(), writer.toByteArray());
+	}
+
+	/**
+	 * Checks whether an entry is a signature file, which is a block or signature
+	 * file directly in {@code META-INF}.
+	 */
+	private static boolean isSignature(String name) {
+		if (!name.regionMatches(true, 0, META_INF, 0, META_INF.length()) || name.indexOf('/', META_INF.length()) >= 0) {
+			return false;
+		}
+		final String file = name.substring(META_INF.length()).toUpperCase(Locale.ROOT);
+		return file.endsWith(".SF") || file.endsWith(".RSA") || file.endsWith(".DSA") || file.endsWith(".EC") || file.startsWith("SIG-");
+	}
+
+	/**
+	 * Removes the digest attributes of the entries of a manifest, and the entries
+	 * left empty by that.
+	 *
+	 * @return the manifest without digests, or the {@code content} if it has none
+	 */
+	private static byte[] stripDigests(byte[] content) {
+		final Manifest manifest;
+		try {
+			manifest = new Manifest(new ByteArrayInputStream(content));
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Failed to read " + JarFile.MANIFEST_NAME, ex);
+		}
+		boolean stripped = false;
+		for (Iterator<Attributes> entries = manifest.getEntries().values().iterator(); entries.hasNext(); ) {
+			final Attributes attributes = entries.next();
+			stripped |= attributes.keySet().removeIf(key -> key.toString().regionMatches(true, key.toString().length() - DIGEST_SUFFIX.length(), DIGEST_SUFFIX, 0, DIGEST_SUFFIX.length()));
+			if (attributes.isEmpty()) {
+				entries.remove();
+			}
+		}
+		if (!stripped) {
+			return content;
+		}
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(content.length);
+		try {
+			manifest.write(out);
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Failed to write " + JarFile.MANIFEST_NAME, ex);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] readFully(InputStream in, long size) throws IOException {
+		byte[] buffer = new byte[size >= 0 && size < Integer.MAX_VALUE - 8 ? (int) size : 8192];
+		int length = 0;
+		int read;
+		while ((read = in.read(buffer, length, buffer.length - length)) >= 0) {
+			length += read;
+			if (length == buffer.length) {
+				final int next = in.read();
+				if (next < 0) {
+					break;
+				}
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, 8192));
+				buffer[length++] = (byte) next;
+			}
+		}
+		return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+	}
+
+	private static Entry join(ForkJoinTask<Entry> task) throws IOException {
+		try {
+			return task.join();
+		} catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+	}
+
+	private JarRemapper() {
+	}
+
+	private static final class Entry {
+		final String source;
+		final String name;
+		final long time;
+		final byte[] content;
+
+		Entry(String source, String name, long time, byte[] content) {
+			this.source = source;
+			this.name = name;
+			this.time = time;
+			this.content = content;
+		}
+	}
+
+	/**
+	 * The output jar, which keeps the entry each name was written from.
+	 */
+	private static final class Output {
+		private final ZipOutputStream out;
+		private final boolean directories;
+		private final Map<String, String> sources = new HashMap<>();
+
+		Output(ZipOutputStream out, boolean directories) {
+			this.out = out;
+			this.directories = directories;
+		}
+
+		void write(Entry entry) throws IOException {
+			final @Nullable String previous = sources.putIfAbsent(entry.name, entry.source);
+			if (previous != null) {
+				throw new IOException("Entries " + previous + " and " + entry.source + " are both mapped to " + entry.name);
+			}
+			if (directories) {
+				writeDirectories(entry);
+			}
+			put(entry.name, entry.time);
+			out.write(entry.content);
+			out.closeEntry();
+		}
+
+		/**
+		 * Writes the directories of an entry which are not written yet, outermost first.
+		 */
+		private void writeDirectories(Entry entry) throws IOException {
+			final int parent = entry.name.lastIndexOf('/');
+			if (parent < 0 || sources.containsKey(entry.name.substring(0, parent + 1))) {
+				return;
+			}
+			for (int slash = entry.name.indexOf('/'); slash >= 0; slash = entry.name.indexOf('/', slash + 1)) {
+				final String directory = entry.name.substring(0, slash + 1);
+				if (sources.putIfAbsent(directory, entry.source) == null) {
+					put(directory, entry.time);
+					out.closeEntry();
+				}
+			}
+		}
+
+		private void put(String name, long time) throws IOException {
+			final ZipEntry zipEntry = new ZipEntry(name);
+			if (time != -1) {
+				zipEntry.setTime(time);
+			}
+			out.putNextEntry(zipEntry);
+		}
+	}
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.reader.v1;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.fabricmc.mapping.reader.v2.FilteringTinyVisitor;
+import net.fabricmc.mapping.reader.v2.MappingGetter;
+import net.fabricmc.mapping.reader.v2.TinyMetadata;
+import net.fabricmc.mapping.reader.v2.TinyVisitor;
+
+/**
+ * A factory for the Tiny V1 mapping parser.
+ *
+ * <p>Tiny V1 lists fields and methods apart from their classes, so the mapping is
+ * read in two passes. The first pass records the offset of every line by its
+ * owner class; the second pass parses the lines class by class and drives a
+ * {@link TinyVisitor} just like a Tiny V2 mapping. Only the offsets and the owner
+ * names are held in memory, never the lines themselves.
+ */
+public final class TinyV1Factory {
+
+	private static final String HEADER_MARKER = "v1";
+	private static final String SPACE_STRING = "\t";
+	private static final byte[] CLASS = "CLASS\t".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] FIELD = "FIELD\t".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] METHOD = "METHOD\t".getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * Explores a UTF-8 encoded Tiny V1 mapping in a byte buffer with a visitor.
+	 *
+	 * <p>The content between the buffer's position and limit is visited. The
+	 * position, limit and mark of the buffer are not modified, so a buffer from
+	 * {@link java.nio.channels.FileChannel#map} can be passed directly.
+	 *
+	 * <p>The visitor receives the classes in the order their names first appear in
+	 * the mapping. A class which only appears as the owner of members has its name
+	 * in the first namespace only, and a class with several lines has the names of
+	 * its first line. Members and classes have no children, and the
+	 * mapping has no properties.
+	 *
+	 * @param buffer  the buffer that holds the mapping content
+	 * @param visitor the visitor
+	 * @throws IllegalArgumentException if a mapping format error is encountered
+	 */
+	public static void visit(ByteBuffer buffer, TinyVisitor visitor) throws IllegalArgumentException {
+		final int limit = buffer.limit();
+		int position = buffer.position();
+		if (position >= limit)
+			throw new IllegalArgumentException("Empty buffer!");
+		int end = lineEnd(buffer, position, limit);
+		final V1Metadata metadata = readHeader(decode(buffer, position, end));
+		final int namespaceCount = metadata.getNamespaces().size();
+
+		// First pass: index the lines by owner
+		final Map<String, Integer> ownerIds = new HashMap<>();
+		final List<String> owners = new ArrayList<>();
+		int[] classLines = new int[64];
+		int[] memberOwners = new int[256];
+		int[] memberLines = new int[256];
+		int memberCount = 0;
+		for (position = nextLine(buffer, end, limit); position < limit; position = nextLine(buffer, end, limit)) {
+			end = lineEnd(buffer, position, limit);
+			final boolean isClass = startsWith(buffer, position, end, CLASS);
+			final int ownerStart;
+			if (isClass) {
+				ownerStart = position + CLASS.length;
+			} else if (startsWith(buffer, position, end, FIELD)) {
+				ownerStart = position + FIELD.length;
+			} else if (startsWith(buffer, position, end, METHOD)) {
+				ownerStart = position + METHOD.length;
+			} else {
+				continue;
+			}
+			int ownerEnd = ownerStart;
+			while (ownerEnd < end && buffer.get(ownerEnd) != '\t') {
+				ownerEnd++;
+			}
+
+			final String owner = decode(buffer, ownerStart, ownerEnd);
+			Integer id = ownerIds.get(owner);
+			if (id == null) {
+				id = owners.size();
+				ownerIds.put(owner, id);
+				owners.add(owner);
+				if (id == classLines.length) {
+					classLines = Arrays.copyOf(classLines, id * 2);
+				}
+				classLines[id] = -1;
+			}
+
+			if (isClass) {
+				if (classLines[id] < 0) {
+					classLines[id] = position;
+				}
+			} else {
+				if (memberCount == memberLines.length) {
+					memberOwners = Arrays.copyOf(memberOwners, memberCount * 2);
+					memberLines = Arrays.copyOf(memberLines, memberCount * 2);
+				}
+				memberOwners[memberCount] = id;
+				memberLines[memberCount] = position;
+				memberCount++;
+			}
+		}
+
+		// Group the members by owner, keeping their order in the mapping
+		final int ownerCount = owners.size();
+		final int[] ownerStarts = new int[ownerCount + 1];
+		for (int i = 0; i < memberCount; i++) {
+			ownerStarts[memberOwners[i] + 1]++;
+		}
+		for (int i = 0; i < ownerCount; i++) {
+			ownerStarts[i + 1] += ownerStarts[i];
+		}
+		final int[] sortedLines = new int[memberCount];
+		final int[] next = Arrays.copyOf(ownerStarts, ownerCount);
+		for (int i = 0; i < memberCount; i++) {
+			sortedLines[next[memberOwners[i]]++] = memberLines[i];
+		}
+
+		// Second pass: visit the lines class by class
+		final @Nullable FilteringTinyVisitor filter = visitor instanceof FilteringTinyVisitor ? (FilteringTinyVisitor) visitor : null;
+		visitor.start(metadata);
+		for (int id = 0; id < ownerCount; id++) {
+			final String[] className;
+			if (classLines[id] < 0) {
+				className = new String[]{owners.get(id)};
+			} else {
+				final String[] parts = readLine(buffer, classLines[id], limit);
+				className = Arrays.copyOfRange(parts, 1, parts.length);
+			}
+
+			final NameGetter classGetter = new NameGetter(className, namespaceCount);
+			if (filter == null) {
+				visitor.pushClass(classGetter);
+			} else if (!filter.visitClass(classGetter)) {
+				visitor.pop(1);
+				continue;
+			}
+
+			for (int i = ownerStarts[id]; i < ownerStarts[id + 1]; i++) {
+				final String[] parts = readLine(buffer, sortedLines[i], limit);
+				if (parts.length < 3)
+					throw new IllegalArgumentException("Missing descriptor on line \"" + String.join(SPACE_STRING, parts) + "\"!");
+				final NameGetter getter = new NameGetter(Arrays.copyOfRange(parts, 3, parts.length), namespaceCount);
+				if (parts[0].equals("FIELD")) {
+					if (filter == null) {
+						visitor.pushField(getter, parts[2]);
+					} else {
+						filter.visitField(getter, parts[2]);
+					}
+				} else {
+					if (filter == null) {
+						visitor.pushMethod(getter, parts[2]);
+					} else {
+						filter.visitMethod(getter, parts[2]);
+					}
+				}
+				visitor.pop(1);
+			}
+			visitor.pop(1);
+		}
+	}
+
+	private static V1Metadata readHeader(String firstLine) {
+		final String[] header = firstLine.split(SPACE_STRING, -1);
+		if (header.length <= 1 || !header[0].equals(HEADER_MARKER)) {
+			throw new IllegalArgumentException("Unsupported format!");
+		}
+
+		final List<String> namespaces = Collections.unmodifiableList(Arrays.asList(Arrays.copyOfRange(header, 1, header.length)));
+		final Map<String, Integer> namespacesToIds = new HashMap<>();
+		for (int i = 0; i < namespaces.size(); i++) {
+			if (namespacesToIds.put(namespaces.get(i), i) != null) {
+				throw new IllegalArgumentException("Duplicate namespace: " + namespaces.get(i));
+			}
+		}
+		return new V1Metadata(namespaces, namespacesToIds);
+	}
+
+	private static String[] readLine(ByteBuffer buffer, int start, int limit) {
+		return decode(buffer, start, lineEnd(buffer, start, limit)).split(SPACE_STRING, -1);
+	}
+
+	private static int lineEnd(ByteBuffer buffer, int from, int limit) {
+		int i = from;
+		int b;
+		while (i < limit && (b = buffer.get(i)) != '\n' && b != '\r') {
+			i++;
+		}
+		return i;
+	}
+
+	private static int nextLine(ByteBuffer buffer, int end, int limit) {
+		int i = end;
+		if (i < limit && buffer.get(i) == '\r') {
+			i++;
+		}
+		if (i < limit && buffer.get(i) == '\n') {
+			i++;
+		}
+		return i;
+	}
+
+	private static boolean startsWith(ByteBuffer buffer, int from, int to, byte[] prefix) {
+		if (to - from < prefix.length)
+			return false;
+		for (int i = 0; i < prefix.length; i++) {
+			if (buffer.get(from + i) != prefix[i])
+				return false;
+		}
+		return true;
+	}
+
+	private static String decode(ByteBuffer buffer, int from, int to) {
+		if (buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + from, to - from, StandardCharsets.UTF_8);
+		}
+		final byte[] bytes = new byte[to - from];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(from + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private TinyV1Factory() {
+	}
+
+	private static final class NameGetter implements MappingGetter {
+		private final String[] names;
+
+		NameGetter(String[] names, int namespaceCount) {
+			this.names = names.length >= namespaceCount ? names : padded(names, namespaceCount);
+		}
+
+		private static String[] padded(String[] names, int namespaceCount) {
+			final String[] ret = Arrays.copyOf(names, namespaceCount);
+			Arrays.fill(ret, names.length, namespaceCount, "");
+			return ret;
+		}
+
+		@Override
+		public String get(int namespace) {
+			int index = namespace;
+			while (index > 0 && names[index].isEmpty())
+				index--;
+			return names[index];
+		}
+
+		@Override
+		public String getRaw(int namespace) {
+			return names[namespace];
+		}
+
+		@Override
+		public String[] getRawNames() {
+			return names.clone();
+		}
+
+		@Override
+		public String[] getAllNames() {
+			final String[] ret = names.clone();
+			for (int i = 1; i < ret.length; i++) {
+				if (ret[i].isEmpty()) {
+					ret[i] = ret[i - 1];
+				}
+			}
+			return ret;
+		}
+	}
+
+	private static final class V1Metadata implements TinyMetadata {
+		private final List<String> namespaces;
+		private final Map<String, Integer> namespacesToIds;
+
+		V1Metadata(List<String> namespaces, Map<String, Integer> namespacesToIds) {
+			this.namespaces = namespaces;
+			this.namespacesToIds = namespacesToIds;
+		}
+
+		@Override
+		public int getMajorVersion() {
+			return 1;
+		}
+
+		@Override
+		public int getMinorVersion() {
+			return 0;
+		}
+
+		@Override
+		public List<String> getNamespaces() {
+			return namespaces;
+		}
+
+		@Override
+		public Map<String, @Nullable String> getProperties() {
+			return Collections.emptyMap();
+		}
+
+		@Override
+		public int index(String namespace) {
+			return namespacesToIds.getOrDefault(namespace, -1);
+		}
+	}
+}
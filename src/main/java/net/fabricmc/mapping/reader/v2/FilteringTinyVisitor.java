@@ -0,0 +1,99 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.reader.v2;
+
+/**
+ * A visitor that can skip the content of the elements it visits.
+ *
+ * <p>The parser calls the {@code visit} methods of this interface instead of the
+ * corresponding {@code push} methods. The element is pushed and later popped like
+ * in a regular {@link TinyVisitor} either way; when a {@code visit} method returns
+ * {@code false}, the parser moves over the element's children by their indent
+ * alone, without reading them or calling this visitor for them. Skipped lines are
+ * not validated.
+ *
+ * <p>The default implementations delegate to the {@code push} methods and visit
+ * all children.
+ */
+public interface FilteringTinyVisitor extends TinyVisitor {
+
+	/**
+	 * Visit a class.
+	 *
+	 * @param name the mappings
+	 * @return whether the fields, methods and comment of the class are visited
+	 * @see #pushClass(MappingGetter)
+	 */
+	default boolean visitClass(MappingGetter name) {
+		pushClass(name);
+		return true;
+	}
+
+	/**
+	 * Visit a field.
+	 *
+	 * @param name the mappings
+	 * @param descriptor the descriptor in the index 0 namespace's mapping
+	 * @return whether the comment of the field is visited
+	 * @see #pushField(MappingGetter, String)
+	 */
+	default boolean visitField(MappingGetter name, String descriptor) {
+		pushField(name, descriptor);
+		return true;
+	}
+
+	/**
+	 * Visit a method.
+	 *
+	 * @param name the mappings
+	 * @param descriptor the descriptor in the index 0 namespace's mapping
+	 * @return whether the parameters, local variables and comment of the method are visited
+	 * @see #pushMethod(MappingGetter, String)
+	 */
+	default boolean visitMethod(MappingGetter name, String descriptor) {
+		pushMethod(name, descriptor);
+		return true;
+	}
+
+	/**
+	 * Visits a method parameter.
+	 *
+	 * @param name the mappings
+	 * @param localVariableIndex the local variable index
+	 * @return whether the comment of the parameter is visited
+	 * @see #pushParameter(MappingGetter, int)
+	 */
+	default boolean visitParameter(MappingGetter name, int localVariableIndex) {
+		pushParameter(name, localVariableIndex);
+		return true;
+	}
+
+	/**
+	 * Visits a method's local variable.
+	 *
+	 * @param name the mappings
+	 * @param localVariableIndex the local variable index
+	 * @param localVariableStartOffset the local variable start offset
+	 * @param localVariableTableIndex the local variable table index
+	 * @return whether the comment of the local variable is visited
+	 * @see #pushLocalVariable(MappingGetter, int, int, int)
+	 */
+	default boolean visitLocalVariable(MappingGetter name, int localVariableIndex, int localVariableStartOffset, int localVariableTableIndex) {
+		pushLocalVariable(name, localVariableIndex, localVariableStartOffset, localVariableTableIndex);
+		return true;
+	}
+}
@@ -20,6 +20,9 @@ package net.fabricmc.mapping.reader.v2;
  * A getter for a mapping.
  *
  * Don't keep many instances of mapping getters! It will be memory-expensive!
+ *
+ * <p>If the visitor {@linkplain TinyVisitor#allowsGetterReuse() allows it}, a getter
+ * is only valid during the visitor call it is passed to.
  */
 public interface MappingGetter {
 
@@ -41,6 +44,32 @@ public interface MappingGetter {
 	 */
 	String getRaw(int namespace);
 
+	/**
+	 * Gets the corresponding mapped name under a namespace as a character sequence.
+	 *
+	 * <p>Unlike {@link #get(int)}, this does not have to create a string; a reused
+	 * getter returns a view of the mapping content. Such a view is only valid as long
+	 * as the getter is, and {@link CharSequence#toString()} has to be called to keep
+	 * the name.
+	 *
+	 * @param namespace the namespace's index
+	 * @return the retrieved name
+	 */
+	default CharSequence getView(int namespace) {
+		return get(namespace);
+	}
+
+	/**
+	 * Gets the raw mapped name under a namespace as a character sequence. May be empty.
+	 *
+	 * @param namespace the namespace's index
+	 * @return the retrieved raw name
+	 * @see #getView(int)
+	 */
+	default CharSequence getRawView(int namespace) {
+		return getRaw(namespace);
+	}
+
 	/**
 	 * Creates an array of all mapped names, ordered by their namespace's appearance.
 	 *
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.reader.v2;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A single line of a Tiny V2 mapping, split into tab-separated columns.
+ *
+ * <p>The column boundaries are recorded as offsets into the backing source, so
+ * no string is created for a column until it is requested.
+ *
+ * <p>Instances are mutable and reused from line to line; use {@link #snapshot()}
+ * to keep the current content.
+ */
+abstract class TinyLine {
+
+	private static final char INDENT = '\t';
+
+	int start;
+	int end;
+	int indent;
+	int columnCount;
+	// columns[i] is the start of column i, columns[columnCount] is end + 1
+	int[] columns = new int[16];
+
+	/**
+	 * Gets the code unit at an absolute position in the backing source.
+	 */
+	abstract int at(int position);
+
+	/**
+	 * Creates a string for an absolute range in the backing source.
+	 */
+	abstract String substring(int from, int to);
+
+	/**
+	 * Creates an immutable copy of this line which shares the backing source.
+	 */
+	abstract TinyLine snapshot();
+
+	/**
+	 * Gets the largest code unit which is a character by itself.
+	 */
+	abstract int maxCharUnit();
+
+	final void reset(int start, int end) {
+		this.start = start;
+		this.end = end;
+		int i = start;
+		while (i < end && at(i) == INDENT) {
+			i++;
+		}
+		this.indent = i - start;
+		this.columnCount = 0;
+	}
+
+	final void split() {
+		int count = 0;
+		int[] columns = this.columns;
+		columns[count++] = start;
+		for (int i = start; i < end; i++) {
+			if (at(i) == INDENT) {
+				if (count == columns.length) {
+					columns = this.columns = Arrays.copyOf(columns, count * 2);
+				}
+				columns[count++] = i + 1;
+			}
+		}
+		if (count == columns.length) {
+			columns = this.columns = Arrays.copyOf(columns, count + 1);
+		}
+		columns[count] = end + 1;
+		this.columnCount = count;
+	}
+
+	/**
+	 * Copies the current line to another line whose source starts {@code shift} units later.
+	 */
+	final <T extends TinyLine> T copyTo(T copy, int shift) {
+		copy.start = start - shift;
+		copy.end = end - shift;
+		copy.indent = indent;
+		copy.columnCount = columnCount;
+		copy.columns = new int[columnCount + 1];
+		for (int i = 0; i <= columnCount; i++) {
+			copy.columns[i] = columns[i] - shift;
+		}
+		return copy;
+	}
+
+	final int columnStart(int column) {
+		return columns[column];
+	}
+
+	final int columnEnd(int column) {
+		return columns[column + 1] - 1;
+	}
+
+	final boolean isEmpty(int column) {
+		return columns[column + 1] - 1 == columns[column];
+	}
+
+	final boolean is(int column, char c) {
+		return columns[column + 1] - 1 == columns[column] + 1 && at(columns[column]) == c;
+	}
+
+	final String get(int column) {
+		return substring(columns[column], columns[column + 1] - 1);
+	}
+
+	final int getInt(int column) {
+		int i = columns[column];
+		final int to = columns[column + 1] - 1;
+		final boolean negative = i < to && at(i) == '-';
+		if (negative || i < to && at(i) == '+') {
+			i++;
+		}
+		if (i == to) {
+			throw new NumberFormatException("For input string: \"" + get(column) + "\"");
+		}
+		long ret = 0;
+		for (; i < to; i++) {
+			int digit = at(i) - '0';
+			if (digit < 0 || digit > 9 || (ret = ret * 10 + digit) > Integer.MAX_VALUE + 1L) {
+				throw new NumberFormatException("For input string: \"" + get(column) + "\"");
+			}
+		}
+		if (negative) {
+			ret = -ret;
+		}
+		if (ret > Integer.MAX_VALUE) {
+			throw new NumberFormatException("For input string: \"" + get(column) + "\"");
+		}
+		return (int) ret;
+	}
+
+	/**
+	 * Checks if a column can be read through {@link #at(int)} as characters.
+	 *
+	 * @param escaped whether escape sequences would have to be resolved
+	 */
+	final boolean isPlain(int column, boolean escaped) {
+		final int max = maxCharUnit();
+		for (int i = columns[column], to = columns[column + 1] - 1; i < to; i++) {
+			int c = at(i);
+			if (c > max || escaped && c == '\\') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	final String text() {
+		return substring(start, end);
+	}
+
+	/**
+	 * A line backed by characters, such as a string from {@link java.io.BufferedReader#readLine()}.
+	 *
+	 * <p>Only a string source is shared with snapshots; other character sequences may
+	 * change, so their line is copied.
+	 */
+	static final class CharLine extends TinyLine {
+		private CharSequence source = "";
+
+		void reset(String line) {
+			reset(line, 0, line.length());
+		}
+
+		void reset(CharSequence source, int start, int end) {
+			this.source = source;
+			reset(start, end);
+		}
+
+		@Override
+		int at(int position) {
+			return source.charAt(position);
+		}
+
+		@Override
+		String substring(int from, int to) {
+			return source.subSequence(from, to).toString();
+		}
+
+		@Override
+		TinyLine snapshot() {
+			if (source instanceof String) {
+				CharLine ret = copyTo(new CharLine(), 0);
+				ret.source = source;
+				return ret;
+			}
+			CharLine ret = copyTo(new CharLine(), start);
+			ret.source = text();
+			return ret;
+		}
+
+		@Override
+		int maxCharUnit() {
+			return Character.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * A line backed by UTF-8 encoded bytes in a buffer.
+	 *
+	 * <p>Tabs and line terminators never appear inside a multi-byte UTF-8 sequence, so
+	 * columns can be found on the raw bytes and only decoded when requested.
+	 *
+	 * <p>A transient source may be changed after the line is read, so its line is
+	 * copied for snapshots.
+	 */
+	static final class ByteLine extends TinyLine {
+		private final ByteBuffer source;
+		private final boolean transientSource;
+		int position;
+		final int limit;
+
+		ByteLine(ByteBuffer source, int position, int limit) {
+			this(source, position, limit, false);
+		}
+
+		ByteLine(ByteBuffer source, int position, int limit, boolean transientSource) {
+			this.source = source;
+			this.transientSource = transientSource;
+			this.position = position;
+			this.limit = limit;
+		}
+
+		@Override
+		int at(int position) {
+			return source.get(position) & 0xFF;
+		}
+
+		@Override
+		String substring(int from, int to) {
+			if (source.hasArray()) {
+				return new String(source.array(), source.arrayOffset() + from, to - from, StandardCharsets.UTF_8);
+			}
+			final byte[] bytes = new byte[to - from];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = source.get(from + i);
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		@Override
+		TinyLine snapshot() {
+			if (!transientSource) {
+				return copyTo(new ByteLine(source, position, limit), 0);
+			}
+			final byte[] bytes = new byte[end - start];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = source.get(start + i);
+			}
+			return copyTo(new ByteLine(ByteBuffer.wrap(bytes), bytes.length, bytes.length), start);
+		}
+
+		@Override
+		int maxCharUnit() {
+			return 0x7F;
+		}
+
+		/**
+		 * Moves this line to the next line in the buffer.
+		 *
+		 * @return {@code false} if the limit is reached
+		 */
+		boolean next() {
+			int i = position;
+			if (i >= limit) {
+				return false;
+			}
+			int b;
+			while (i < limit && (b = source.get(i)) != '\n' && b != '\r') {
+				i++;
+			}
+			reset(position, i);
+			if (i < limit && source.get(i) == '\r') {
+				i++;
+			}
+			if (i < limit && source.get(i) == '\n') {
+				i++;
+			}
+			position = i;
+			return true;
+		}
+
+		/**
+		 * Moves back so the current line is read again on the next call to {@link #next()}.
+		 */
+		void rewind() {
+			position = start;
+		}
+
+		/**
+		 * Finds the start of the first line at or after {@code from} which has no indent, or the limit.
+		 */
+		int nextUnindented(int from) {
+			if (from <= position) {
+				return position;
+			}
+			int i = from;
+			while (i < limit && source.get(i - 1) != '\n' && source.get(i - 1) != '\r') {
+				i++;
+			}
+			int b;
+			while (i < limit && ((b = source.get(i)) == '\t' || b == '\n' || b == '\r')) {
+				do {
+					i++;
+				} while (i < limit && source.get(i - 1) != '\n' && source.get(i - 1) != '\r');
+			}
+			return i;
+		}
+	}
+}
@@ -75,6 +75,9 @@ public interface TinyMetadata {
 	 *
 	 * <p>A custom implementation should be more efficient than calling {@code getNamespaces().indexOf(namespace)}.
 	 *
+	 * <p>The index can be passed to the index overloads of the mapping tree, such as
+	 * {@link net.fabricmc.mapping.tree.Mapped#getName(int)}, to skip this lookup on every call.
+	 *
 	 * @param namespace the literal namespace
 	 * @return the namespace's index, or {@code -1} if the namespace does not exist
 	 */
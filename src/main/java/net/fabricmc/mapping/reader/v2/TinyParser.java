@@ -0,0 +1,218 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.reader.v2;
+
+import java.util.Arrays;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The line-by-line state machine shared by all Tiny V2 inputs.
+ */
+final class TinyParser {
+
+	final TinyVisitor visitor;
+	final @Nullable FilteringTinyVisitor filter;
+	private final int namespaceCount;
+	private final boolean escapedNames;
+	private int lastIndent = -1;
+	private int skipIndent = -1;
+	private final TinyState[] stack = new TinyState[4]; // max depth 4
+	private final @Nullable ReusedGetter @Nullable [] reusedGetters;
+
+	TinyParser(TinyVisitor visitor, TinyMetadata metadata) {
+		this.visitor = visitor;
+		this.filter = visitor instanceof FilteringTinyVisitor ? (FilteringTinyVisitor) visitor : null;
+		this.namespaceCount = metadata.getNamespaces().size();
+		this.escapedNames = metadata.getProperties().containsKey(TinyV2Factory.ESCAPED_NAMES_PROPERTY);
+		this.reusedGetters = visitor.allowsGetterReuse() ? new ReusedGetter[stack.length] : null;
+	}
+
+	void accept(TinyLine line) throws MappingParseException {
+		try {
+			int currentIndent = line.indent;
+			if (skipIndent >= 0) {
+				if (currentIndent > skipIndent)
+					return;
+				skipIndent = -1;
+			}
+			if (currentIndent > lastIndent + 1)
+				throw new IllegalArgumentException("Broken indent! Maximum " + (lastIndent + 1) + ", actual " + currentIndent);
+			if (currentIndent <= lastIndent) {
+				visitor.pop(lastIndent - currentIndent + 1);
+			}
+			lastIndent = currentIndent;
+
+			line.split();
+			final TinyState currentState = TinyState.get(currentIndent, line);
+
+			if (!currentState.checkPartCount(currentIndent, line.columnCount, namespaceCount)) {
+				throw new IllegalArgumentException("Wrong number of parts for definition of a " + currentState + "!");
+			}
+
+			if (!currentState.checkStack(stack, currentIndent)) {
+				throw new IllegalStateException("Invalid stack " + Arrays.toString(stack) + " for a " + currentState + " at position" + currentIndent + "!");
+			}
+
+			stack[currentIndent] = currentState;
+
+			if (!currentState.visit(this, line, currentIndent)) {
+				skipIndent = currentIndent;
+			}
+		} catch (RuntimeException ex) {
+			throw new MappingParseException("Error on line \"" + line.text() + "\"!", ex);
+		}
+	}
+
+	void end() {
+		if (lastIndent > -1) {
+			visitor.pop(lastIndent + 1);
+		}
+	}
+
+	MappingGetter getter(TinyLine line, int offset) {
+		if (reusedGetters == null) {
+			return new LineGetter(line.snapshot(), offset, escapedNames);
+		}
+
+		ReusedGetter ret = reusedGetters[line.indent];
+		if (ret == null) {
+			ret = reusedGetters[line.indent] = new ReusedGetter(escapedNames);
+		}
+		ret.line = line;
+		ret.offset = offset;
+		return ret;
+	}
+
+	String unescapeOpt(String raw) {
+		return TinyV2Factory.unescapeOpt(raw, escapedNames);
+	}
+
+	private static class LineGetter implements MappingGetter {
+		TinyLine line;
+		int offset;
+		final boolean escapedStrings;
+
+		LineGetter(TinyLine line, int offset, boolean escapedStrings) {
+			this.line = line;
+			this.offset = offset;
+			this.escapedStrings = escapedStrings;
+		}
+
+		@Override
+		public String get(int namespace) {
+			int index = offset + namespace;
+			while (line.isEmpty(index))
+				index--;
+			return TinyV2Factory.unescapeOpt(line.get(index), escapedStrings);
+		}
+
+		@Override
+		public String getRaw(int namespace) {
+			return TinyV2Factory.unescapeOpt(line.get(offset + namespace), escapedStrings);
+		}
+
+		@Override
+		public String[] getRawNames() {
+			final String[] ret = new String[line.columnCount - offset];
+			for (int i = 0; i < ret.length; i++) {
+				ret[i] = TinyV2Factory.unescapeOpt(line.get(i + offset), escapedStrings);
+			}
+			return ret;
+		}
+
+		@Override
+		public String[] getAllNames() {
+			final String[] ret = getRawNames();
+			for (int i = 1; i < ret.length; i++) {
+				if (ret[i].isEmpty()) {
+					ret[i] = ret[i - 1];
+				}
+			}
+			return ret;
+		}
+	}
+
+	/**
+	 * A getter which is moved from line to line, and hands out views of its line.
+	 */
+	private static final class ReusedGetter extends LineGetter {
+		private @Nullable ColumnView[] views = new ColumnView[0];
+
+		ReusedGetter(boolean escapedStrings) {
+			super(new TinyLine.CharLine(), 0, escapedStrings);
+		}
+
+		@Override
+		public CharSequence getView(int namespace) {
+			int index = offset + namespace;
+			while (line.isEmpty(index))
+				index--;
+			return view(index);
+		}
+
+		@Override
+		public CharSequence getRawView(int namespace) {
+			return view(offset + namespace);
+		}
+
+		private CharSequence view(int column) {
+			if (!line.isPlain(column, escapedStrings)) {
+				return TinyV2Factory.unescapeOpt(line.get(column), escapedStrings);
+			}
+			if (column >= views.length) {
+				views = Arrays.copyOf(views, line.columnCount);
+			}
+			ColumnView ret = views[column];
+			if (ret == null) {
+				ret = views[column] = new ColumnView();
+			}
+			ret.line = line;
+			ret.from = line.columnStart(column);
+			ret.to = line.columnEnd(column);
+			return ret;
+		}
+	}
+
+	private static final class ColumnView implements CharSequence {
+		TinyLine line;
+		int from;
+		int to;
+
+		@Override
+		public int length() {
+			return to - from;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= to - from)
+				throw new IndexOutOfBoundsException("index " + index + ", length " + (to - from));
+			return (char) line.at(from + index);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return toString().substring(start, end);
+		}
+
+		@Override
+		public String toString() {
+			return line.substring(from, to);
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.reader.v2;
+
+enum TinyState {
+	// c names...
+	CLASS(1) {
+		@Override
+		boolean checkStack(TinyState[] stack, int currentIndent) {
+			return currentIndent == 0;
+		}
+
+		@Override
+		boolean visit(TinyParser parser, TinyLine line, int indent) {
+			if (parser.filter != null)
+				return parser.filter.visitClass(parser.getter(line, indent + actualParts));
+			parser.visitor.pushClass(parser.getter(line, indent + actualParts));
+			return true;
+		}
+	},
+	// f desc names...
+	FIELD(2) {
+		@Override
+		boolean checkStack(TinyState[] stack, int currentIndent) {
+			return currentIndent == 1 && stack[currentIndent - 1] == CLASS;
+		}
+
+		@Override
+		boolean visit(TinyParser parser, TinyLine line, int indent) {
+			if (parser.filter != null)
+				return parser.filter.visitField(parser.getter(line, indent + actualParts), parser.unescapeOpt(line.get(indent + 1)));
+			parser.visitor.pushField(parser.getter(line, indent + actualParts), parser.unescapeOpt(line.get(indent + 1)));
+			return true;
+		}
+	},
+	// m desc names...
+	METHOD(2) {
+		@Override
+		boolean checkStack(TinyState[] stack, int currentIndent) {
+			return currentIndent == 1 && stack[currentIndent - 1] == CLASS;
+		}
+
+		@Override
+		boolean visit(TinyParser parser, TinyLine line, int indent) {
+			if (parser.filter != null)
+				return parser.filter.visitMethod(parser.getter(line, indent + actualParts), parser.unescapeOpt(line.get(indent + 1)));
+			parser.visitor.pushMethod(parser.getter(line, indent + actualParts), parser.unescapeOpt(line.get(indent + 1)));
+			return true;
+		}
+	},
+	// p lvIndex names...
+	PARAMETER(2) {
+		@Override
+		boolean checkStack(TinyState[] stack, int currentIndent) {
+			return currentIndent == 2 && stack[currentIndent - 1] == METHOD;
+		}
+
+		@Override
+		boolean visit(TinyParser parser, TinyLine line, int indent) {
+			if (parser.filter != null)
+				return parser.filter.visitParameter(parser.getter(line, indent + actualParts), line.getInt(indent + 1));
+			parser.visitor.pushParameter(parser.getter(line, indent + actualParts), line.getInt(indent + 1));
+			return true;
+		}
+	},
+	// v lvIndex lvStartOffset lvtIndex names...
+	LOCAL_VARIABLE(4) {
+		@Override
+		boolean checkStack(TinyState[] stack, int currentIndent) {
+			return currentIndent == 2 && stack[currentIndent - 1] == METHOD;
+		}
+
+		@Override
+		boolean visit(TinyParser parser, TinyLine line, int indent) {
+			if (parser.filter != null)
+				return parser.filter.visitLocalVariable(parser.getter(line, indent + actualParts), line.getInt(indent + 1), line.getInt(indent + 2), line.getInt(indent + 3));
+			parser.visitor.pushLocalVariable(parser.getter(line, indent + actualParts), line.getInt(indent + 1), line.getInt(indent + 2), line.getInt(indent + 3));
+			return true;
+		}
+	},
+	// c comment
+	COMMENT(2, false) {
+		@Override
+		boolean checkStack(TinyState[] stack, int currentIndent) {
+			if (currentIndent == 0)
+				return false;
+			switch (stack[currentIndent - 1]) {
+				case CLASS:
+				case METHOD:
+				case FIELD:
+				case PARAMETER:
+				case LOCAL_VARIABLE:
+					// Use a whitelist
+					return true;
+				default:
+					return false;
+			}
+		}
+
+		@Override
+		boolean visit(TinyParser parser, TinyLine line, int indent) {
+			parser.visitor.pushComment(TinyV2Factory.unescape(line.get(indent + 1)));
+			return true;
+		}
+	};
+
+	final int actualParts;
+	final boolean namespaced;
+
+	TinyState(int actualParts) {
+		this(actualParts, true);
+	}
+
+	TinyState(int actualParts, boolean namespaced) {
+		this.actualParts = actualParts;
+		this.namespaced = namespaced;
+	}
+
+	static TinyState get(int indent, TinyLine line) {
+		if (line.is(indent, 'c'))
+			return indent == 0 ? CLASS : COMMENT;
+		if (line.is(indent, 'm'))
+			return METHOD;
+		if (line.is(indent, 'f'))
+			return FIELD;
+		if (line.is(indent, 'p'))
+			return PARAMETER;
+		if (line.is(indent, 'v'))
+			return LOCAL_VARIABLE;
+		throw new IllegalArgumentException("Invalid identifier \"" + line.get(indent) + "\"!");
+	}
+
+	boolean checkPartCount(int indent, int partCount, int namespaceCount) {
+		return partCount - indent == (namespaced ? namespaceCount + actualParts : actualParts);
+	}
+
+	abstract boolean checkStack(TinyState[] stack, int currentIndent);
+
+	/**
+	 * Passes a line to the visitor.
+	 *
+	 * @return whether the children of the line are visited
+	 */
+	abstract boolean visit(TinyParser parser, TinyLine line, int indent);
+}
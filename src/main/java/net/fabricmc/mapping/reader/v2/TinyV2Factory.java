@@ -18,13 +18,16 @@ package net.fabricmc.mapping.reader.v2;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
 
 /**
  * A factory for the Tiny V2 mapping parser.
@@ -34,9 +37,10 @@ public final class TinyV2Factory {
 	private static final String HEADER_MARKER = "tiny";
 	private static final char INDENT = '\t';
 	private static final String SPACE_STRING = "\t";
-	private static final String ESCAPED_NAMES_PROPERTY = "escaped-names";
+	static final String ESCAPED_NAMES_PROPERTY = "escaped-names";
 	private static final String TO_ESCAPE = "\\\n\r\0\t";
 	private static final String ESCAPED = "\\nr0t";
+	private static final int MIN_CHUNK_SIZE = 1 << 16;
 
 	/**
 	 * Explores a Tiny V2 mapping with a visitor.
@@ -50,52 +54,129 @@ public final class TinyV2Factory {
 	 */
 	public static void visit(BufferedReader reader, TinyVisitor visitor) throws IOException, MappingParseException {
 		String line;
-		final int namespaceCount;
-		final boolean escapedNames;
+		final TinyParser parser;
 		try {
 			final TinyMetadata meta = readMetadata(reader);
-			namespaceCount = meta.getNamespaces().size();
-			escapedNames = meta.getProperties().containsKey(ESCAPED_NAMES_PROPERTY);
+			parser = new TinyParser(visitor, meta);
 			visitor.start(meta);
 			line = reader.readLine();
 		} catch (RuntimeException ex) {
 			throw new MappingParseException("Error in the header!", ex);
 		}
 
-		int lastIndent = -1;
-		final TinyState[] stack = new TinyState[4]; // max depth 4
+		final TinyLine.CharLine current = new TinyLine.CharLine();
 		for (; line != null; line = reader.readLine()) {
-			try {
-				int currentIndent = countIndent(line);
-				if (currentIndent > lastIndent + 1)
-					throw new IllegalArgumentException("Broken indent! Maximum " + (lastIndent + 1) + ", actual " + currentIndent);
-				if (currentIndent <= lastIndent) {
-					visitor.pop(lastIndent - currentIndent + 1);
-				}
-				lastIndent = currentIndent;
+			current.reset(line);
+			parser.accept(current);
+		}
 
-				final String[] parts = line.split(SPACE_STRING, -1);
-				final TinyState currentState = TinyState.get(currentIndent, parts[currentIndent]);
+		parser.end();
+	}
 
-				if (!currentState.checkPartCount(currentIndent, parts.length, namespaceCount)) {
-					throw new IllegalArgumentException("Wrong number of parts for definition of a " + currentState + "!");
-				}
+	/**
+	 * Explores a UTF-8 encoded Tiny V2 mapping in a byte buffer with a visitor.
+	 *
+	 * <p>The content between the buffer's position and limit is visited. The
+	 * position, limit and mark of the buffer are not modified, so a buffer from
+	 * {@link java.nio.channels.FileChannel#map} can be passed directly.
+	 *
+	 * <p>Lines and columns are located on the raw bytes; a string is only created
+	 * for a column when the visitor requests it from a {@link MappingGetter}, or for
+	 * descriptors and comments.
+	 *
+	 * @param buffer  the buffer that holds the mapping content
+	 * @param visitor the visitor
+	 * @throws MappingParseException if a mapping parsing error is encountered
+	 */
+	public static void visit(ByteBuffer buffer, TinyVisitor visitor) throws MappingParseException {
+		final TinyLine.ByteLine current = new TinyLine.ByteLine(buffer, buffer.position(), buffer.limit());
+		final TinyParser parser;
+		try {
+			final TinyMetadata meta = readMetadata(current);
+			parser = new TinyParser(visitor, meta);
+			visitor.start(meta);
+		} catch (RuntimeException ex) {
+			throw new MappingParseException("Error in the header!", ex);
+		}
 
-				if (!currentState.checkStack(stack, currentIndent)) {
-					throw new IllegalStateException("Invalid stack " + Arrays.toString(stack) + " for a " + currentState + " at position" + currentIndent + "!");
-				}
+		while (current.next()) {
+			parser.accept(current);
+		}
 
-				stack[currentIndent] = currentState;
+		parser.end();
+	}
+
+	/**
+	 * Explores a UTF-8 encoded Tiny V2 mapping in a byte buffer in parallel.
+	 *
+	 * <p>The content is cut into chunks right before top-level class lines, so each
+	 * chunk holds a run of complete classes. Every chunk is visited on the {@code pool}
+	 * by a fresh visitor from {@code visitorFactory}, which receives
+	 * {@link TinyVisitor#start(TinyMetadata)}, the events of its classes and the
+	 * final {@link TinyVisitor#pop(int)} just like a visitor of a whole mapping.
+	 *
+	 * <p>The buffer is handled as in {@link #visit(ByteBuffer, TinyVisitor)}.
+	 *
+	 * @param buffer         the buffer that holds the mapping content
+	 * @param visitorFactory the factory creating a visitor per chunk
+	 * @param pool           the pool the chunks are visited on
+	 * @param <T>            the type of visitors
+	 * @return the visitors, in the order of their chunks in the mapping
+	 * @throws MappingParseException if a mapping parsing error is encountered
+	 */
+	public static <T extends TinyVisitor> List<T> visitParallel(ByteBuffer buffer, Supplier<? extends T> visitorFactory, ForkJoinPool pool) throws MappingParseException {
+		final TinyLine.ByteLine header = new TinyLine.ByteLine(buffer, buffer.position(), buffer.limit());
+		final TinyMetadata meta;
+		try {
+			meta = readMetadata(header);
+		} catch (RuntimeException ex) {
+			throw new MappingParseException("Error in the header!", ex);
+		}
 
-				currentState.visit(visitor, parts, currentIndent, escapedNames);
-			} catch (RuntimeException ex) {
-				throw new MappingParseException("Error on line \"" + line + "\"!", ex);
+		final int bodyStart = header.position;
+		final int limit = header.limit;
+		final int chunkCount = Math.max(1, Math.min(pool.getParallelism() * 4, (limit - bodyStart) / MIN_CHUNK_SIZE));
+		final List<ForkJoinTask<T>> tasks = new ArrayList<>(chunkCount);
+		int chunkStart = bodyStart;
+		for (int i = 1; i <= chunkCount; i++) {
+			final int chunkEnd = i == chunkCount ? limit : header.nextUnindented(bodyStart + (int) ((long) (limit - bodyStart) * i / chunkCount));
+			if (chunkEnd <= chunkStart && (i < chunkCount || !tasks.isEmpty())) {
+				continue; // a huge class spans several targets
 			}
+			final int from = chunkStart;
+			tasks.add(pool.submit(() -> {
+				final T visitor = visitorFactory.get();
+				final TinyLine.ByteLine current = new TinyLine.ByteLine(buffer, from, chunkEnd);
+				final TinyParser parser = new TinyParser(visitor, meta);
+				visitor.start(meta);
+				while (current.next()) {
+					parser.accept(current);
+				}
+				parser.end();
+				return visitor;
+			}));
+			chunkStart = chunkEnd;
 		}
 
-		if (lastIndent > -1) {
-			visitor.pop(lastIndent + 1);
+		final List<T> ret = new ArrayList<>(tasks.size());
+		for (ForkJoinTask<T> task : tasks) {
+			ret.add(task.join());
 		}
+		return ret;
+	}
+
+	/**
+	 * Creates a parser which is fed the content of a Tiny V2 mapping in chunks.
+	 *
+	 * <p>Unlike {@link #visit(BufferedReader, TinyVisitor)}, the parser never
+	 * blocks for more content, so it can be fed from non-blocking I/O as the
+	 * content arrives.
+	 *
+	 * @param visitor the visitor
+	 * @return the parser
+	 */
+	public static TinyV2PushParser pushParser(TinyVisitor visitor) {
+		return new TinyV2PushParser(visitor);
 	}
 
 	/**
@@ -115,23 +196,7 @@ public final class TinyV2Factory {
 		final String firstLine = reader.readLine();
 		if (firstLine == null)
 			throw new IllegalArgumentException("Empty reader!");
-		final String[] parts = firstLine.split(SPACE_STRING, -1);
-		if (parts.length < 5 || !parts[0].equals(HEADER_MARKER)) {
-			throw new IllegalArgumentException("Unsupported format!");
-		}
-
-		final int majorVersion;
-		try {
-			majorVersion = Integer.parseInt(parts[1]);
-		} catch (NumberFormatException ex) {
-			throw new IllegalArgumentException("Invalid major version!", ex);
-		}
-		final int minorVersion;
-		try {
-			minorVersion = Integer.parseInt(parts[2]);
-		} catch (NumberFormatException ex) {
-			throw new IllegalArgumentException("Invalid minor version!", ex);
-		}
+		final String[] parts = splitHeader(firstLine);
 
 		final Map<String, String> properties = new LinkedHashMap<>();
 		String line;
@@ -140,11 +205,10 @@ public final class TinyV2Factory {
 			switch (countIndent(line)) {
 				case 0: {
 					reader.reset();
-					return makeHeader(majorVersion, minorVersion, parts, properties);
+					return makeHeader(parts, properties);
 				}
 				case 1: {
-					String[] elements = line.split(SPACE_STRING, -1); // Care about "" values
-					properties.put(elements[1], elements.length == 2 ? null : elements[2]);
+					readProperty(line, properties);
 					break;
 				}
 				default: {
@@ -154,7 +218,27 @@ public final class TinyV2Factory {
 			reader.mark(8192);
 		}
 
-		return makeHeader(majorVersion, minorVersion, parts, properties);
+		return makeHeader(parts, properties);
+	}
+
+	private static TinyMetadata readMetadata(TinyLine.ByteLine line) {
+		if (!line.next())
+			throw new IllegalArgumentException("Empty buffer!");
+		final String[] parts = splitHeader(line.text());
+
+		final Map<String, String> properties = new LinkedHashMap<>();
+		while (line.next()) {
+			if (line.indent == 0) {
+				line.rewind();
+				break;
+			}
+			if (line.indent != 1) {
+				throw new IllegalArgumentException("Invalid indent in header! Encountered \"" + line.text() + "\"!");
+			}
+			readProperty(line.text(), properties);
+		}
+
+		return makeHeader(parts, properties);
 	}
 
 	private static int countIndent(String st) {
@@ -166,21 +250,47 @@ public final class TinyV2Factory {
 		return ret;
 	}
 
-	private static TinyHeader makeHeader(int major, int minor, String[] parts, Map<String, String> props) {
+	static String[] splitHeader(String firstLine) {
+		final String[] parts = firstLine.split(SPACE_STRING, -1);
+		if (parts.length < 5 || !parts[0].equals(HEADER_MARKER)) {
+			throw new IllegalArgumentException("Unsupported format!");
+		}
+		return parts;
+	}
+
+	static void readProperty(String line, Map<String, String> properties) {
+		String[] elements = line.split(SPACE_STRING, -1); // Care about "" values
+		properties.put(elements[1], elements.length == 2 ? null : elements[2]);
+	}
+
+	static TinyMetadata makeHeader(String[] parts, Map<String, String> props) {
+		final int majorVersion;
+		try {
+			majorVersion = Integer.parseInt(parts[1]);
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("Invalid major version!", ex);
+		}
+		final int minorVersion;
+		try {
+			minorVersion = Integer.parseInt(parts[2]);
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("Invalid minor version!", ex);
+		}
+
 		List<String> list = new ArrayList<>();
 		Map<String, Integer> map = new HashMap<>();
 		for (int i = 3; i < parts.length; i++) {
 			list.add(parts[i]);
 			map.put(parts[i], i - 3);
 		}
-		return new TinyHeader(major, minor, Collections.unmodifiableList(list), Collections.unmodifiableMap(map), Collections.unmodifiableMap(new HashMap<>(props)));
+		return new TinyHeader(majorVersion, minorVersion, Collections.unmodifiableList(list), Collections.unmodifiableMap(map), Collections.unmodifiableMap(new HashMap<>(props)));
 	}
 
-	private static String unescapeOpt(String raw, boolean escapedStrings) {
+	static String unescapeOpt(String raw, boolean escapedStrings) {
 		return escapedStrings ? unescape(raw) : raw;
 	}
 
-	private static String unescape(String str) {
+	static String unescape(String str) {
 		// copied from matcher, lazy!
 		int pos = str.indexOf('\\');
 		if (pos < 0) return str;
@@ -212,134 +322,6 @@ public final class TinyV2Factory {
 	private TinyV2Factory() {
 	}
 
-	private enum TinyState {
-		// c names...
-		CLASS(1) {
-			@Override
-			boolean checkStack(TinyState[] stack, int currentIndent) {
-				return currentIndent == 0;
-			}
-
-			@Override
-			void visit(TinyVisitor visitor, String[] parts, int indent, boolean escapedStrings) {
-				visitor.pushClass(makeGetter(parts, indent, escapedStrings));
-			}
-		},
-		// f desc names...
-		FIELD(2) {
-			@Override
-			boolean checkStack(TinyState[] stack, int currentIndent) {
-				return currentIndent == 1 && stack[currentIndent - 1] == CLASS;
-			}
-
-			@Override
-			void visit(TinyVisitor visitor, String[] parts, int indent, boolean escapedStrings) {
-				visitor.pushField(makeGetter(parts, indent, escapedStrings), unescapeOpt(parts[indent + 1], escapedStrings));
-			}
-		},
-		// m desc names...
-		METHOD(2) {
-			@Override
-			boolean checkStack(TinyState[] stack, int currentIndent) {
-				return currentIndent == 1 && stack[currentIndent - 1] == CLASS;
-			}
-
-			@Override
-			void visit(TinyVisitor visitor, String[] parts, int indent, boolean escapedStrings) {
-				visitor.pushMethod(makeGetter(parts, indent, escapedStrings), unescapeOpt(parts[indent + 1], escapedStrings));
-			}
-		},
-		// p lvIndex names...
-		PARAMETER(2) {
-			@Override
-			boolean checkStack(TinyState[] stack, int currentIndent) {
-				return currentIndent == 2 && stack[currentIndent - 1] == METHOD;
-			}
-
-			@Override
-			void visit(TinyVisitor visitor, String[] parts, int indent, boolean escapedStrings) {
-				visitor.pushParameter(makeGetter(parts, indent, escapedStrings), Integer.parseInt(parts[indent + 1]));
-			}
-		},
-		// v lvIndex lvStartOffset lvtIndex names...
-		LOCAL_VARIABLE(4) {
-			@Override
-			boolean checkStack(TinyState[] stack, int currentIndent) {
-				return currentIndent == 2 && stack[currentIndent - 1] == METHOD;
-			}
-
-			@Override
-			void visit(TinyVisitor visitor, String[] parts, int indent, boolean escapedStrings) {
-				visitor.pushLocalVariable(makeGetter(parts, indent, escapedStrings), Integer.parseInt(parts[indent + 1]), Integer.parseInt(parts[indent + 2]), Integer.parseInt(parts[indent + 3]));
-			}
-		},
-		// c comment
-		COMMENT(2, false) {
-			@Override
-			boolean checkStack(TinyState[] stack, int currentIndent) {
-				if (currentIndent == 0)
-					return false;
-				switch (stack[currentIndent - 1]) {
-					case CLASS:
-					case METHOD:
-					case FIELD:
-					case PARAMETER:
-					case LOCAL_VARIABLE:
-						// Use a whitelist
-						return true;
-					default:
-						return false;
-				}
-			}
-
-			@Override
-			void visit(TinyVisitor visitor, String[] parts, int indent, boolean escapedStrings) {
-				visitor.pushComment(unescape(parts[indent + 1]));
-			}
-		};
-
-		final int actualParts;
-		final boolean namespaced;
-
-		TinyState(int actualParts) {
-			this(actualParts, true);
-		}
-
-		TinyState(int actualParts, boolean namespaced) {
-			this.actualParts = actualParts;
-			this.namespaced = namespaced;
-		}
-
-		static TinyState get(int indent, String identifier) {
-			switch (identifier) {
-				case "c":
-					return indent == 0 ? CLASS : COMMENT;
-				case "m":
-					return METHOD;
-				case "f":
-					return FIELD;
-				case "p":
-					return PARAMETER;
-				case "v":
-					return LOCAL_VARIABLE;
-				default:
-					throw new IllegalArgumentException("Invalid identifier \"" + identifier + "\"!");
-			}
-		}
-
-		boolean checkPartCount(int indent, int partCount, int namespaceCount) {
-			return partCount - indent == (namespaced ? namespaceCount + actualParts : actualParts);
-		}
-
-		abstract boolean checkStack(TinyState[] stack, int currentIndent);
-
-		abstract void visit(TinyVisitor visitor, String[] parts, int indent, boolean escapedStrings);
-
-		MappingGetter makeGetter(String[] parts, int indent, boolean escapedStrings) {
-			return new PartGetter(indent + actualParts, parts, escapedStrings);
-		}
-	}
-
 	private static final class TinyHeader implements TinyMetadata {
 
 		private final int majorVersion;
@@ -381,53 +363,4 @@ public final class TinyV2Factory {
 			return mapper.getOrDefault(namespace, -1);
 		}
 	}
-
-	private static final class PartGetter implements MappingGetter {
-		private final int offset;
-		private final String[] parts;
-		private final boolean escapedStrings;
-
-		PartGetter(int offset, String[] parts, boolean escapedStrings) {
-			this.offset = offset;
-			this.parts = parts;
-			this.escapedStrings = escapedStrings;
-		}
-
-		@Override
-		public String get(int namespace) {
-			int index = offset + namespace;
-			while (parts[index].isEmpty())
-				index--;
-			return unescapeOpt(parts[index], escapedStrings);
-		}
-
-		@Override
-		public String getRaw(int namespace) {
-			return unescapeOpt(parts[offset + namespace], escapedStrings);
-		}
-
-		@Override
-		public String[] getRawNames() {
-			if (!escapedStrings) {
-				return Arrays.copyOfRange(parts, offset, parts.length);
-			}
-
-			final String[] ret = new String[parts.length - offset];
-			for (int i = 0; i < ret.length; i++) {
-				ret[i] = unescape(parts[i + offset]);
-			}
-			return ret;
-		}
-
-		@Override
-		public String[] getAllNames() {
-			final String[] ret = getRawNames();
-			for (int i = 1; i < ret.length; i++) {
-				if (ret[i].isEmpty()) {
-					ret[i] = ret[i - 1];
-				}
-			}
-			return ret;
-		}
-	}
 }
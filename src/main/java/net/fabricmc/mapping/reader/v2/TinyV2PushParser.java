@@ -0,0 +1,252 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.reader.v2;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An incremental Tiny V2 parser which is fed with chunks of the mapping content.
+ *
+ * <p>Chunks may be cut anywhere, even in the middle of a line or of a UTF-8
+ * sequence. The incomplete last line of a chunk is kept until a later chunk
+ * completes it, and the visitor receives the events of every complete line
+ * before {@code feed} returns. Thus the mapping can be parsed while the rest of it
+ * is still being read.
+ *
+ * <p>A parser is fed either bytes or characters in a line, and is not thread-safe.
+ * Chunks are not retained after {@code feed} returns, so their buffers can be reused.
+ *
+ * @see TinyV2Factory#pushParser(TinyVisitor)
+ */
+public final class TinyV2PushParser {
+
+	private final TinyVisitor visitor;
+	private final Map<String, String> properties = new LinkedHashMap<>();
+	private final TinyLine.CharLine charLine = new TinyLine.CharLine();
+	private final StringBuilder pendingChars = new StringBuilder();
+	private ByteBuffer pendingBytes = ByteBuffer.allocate(256);
+	private String @Nullable [] headerParts;
+	private @Nullable TinyParser parser;
+	private boolean skipLineFeed;
+	private boolean ended;
+
+	TinyV2PushParser(TinyVisitor visitor) {
+		this.visitor = visitor;
+	}
+
+	/**
+	 * Feeds characters of the mapping content.
+	 *
+	 * @param chars the characters
+	 * @throws MappingParseException if a mapping parsing error is encountered
+	 * @throws IllegalStateException if bytes were fed in the current line, or the parser has ended
+	 */
+	public void feed(CharSequence chars) throws MappingParseException {
+		checkOpen();
+		if (pendingBytes.position() > 0)
+			throw new IllegalStateException("Cannot feed characters in a line of bytes!");
+
+		final int length = chars.length();
+		int i = 0;
+		if (skipLineFeed && length > 0) {
+			if (chars.charAt(0) == '\n') {
+				i++;
+			}
+			skipLineFeed = false;
+		}
+		int start = i;
+		for (; i < length; i++) {
+			final char c = chars.charAt(i);
+			if (c != '\n' && c != '\r')
+				continue;
+			if (pendingChars.length() == 0) {
+				charLine.reset(chars, start, i);
+			} else {
+				pendingChars.append(chars, start, i);
+				charLine.reset(pendingChars, 0, pendingChars.length());
+			}
+			accept(charLine);
+			pendingChars.setLength(0);
+			if (c == '\r') {
+				if (i + 1 == length) {
+					skipLineFeed = true;
+				} else if (chars.charAt(i + 1) == '\n') {
+					i++;
+				}
+			}
+			start = i + 1;
+		}
+		pendingChars.append(chars, start, length);
+	}
+
+	/**
+	 * Feeds characters of the mapping content.
+	 *
+	 * @param chars  the array holding the characters
+	 * @param offset the index of the first character
+	 * @param length the number of characters
+	 * @throws MappingParseException if a mapping parsing error is encountered
+	 * @throws IllegalStateException if bytes were fed in the current line, or the parser has ended
+	 */
+	public void feed(char[] chars, int offset, int length) throws MappingParseException {
+		feed(CharBuffer.wrap(chars, offset, length));
+	}
+
+	/**
+	 * Feeds UTF-8 encoded bytes of the mapping content.
+	 *
+	 * <p>All bytes between the buffer's position and limit are consumed, and the
+	 * position is moved to the limit.
+	 *
+	 * @param bytes the buffer holding the bytes
+	 * @throws MappingParseException if a mapping parsing error is encountered
+	 * @throws IllegalStateException if characters were fed in the current line, or the parser has ended
+	 */
+	public void feed(ByteBuffer bytes) throws MappingParseException {
+		checkOpen();
+		if (pendingChars.length() > 0)
+			throw new IllegalStateException("Cannot feed bytes in a line of characters!");
+
+		final int limit = bytes.limit();
+		int i = bytes.position();
+		if (skipLineFeed && i < limit) {
+			if (bytes.get(i) == '\n') {
+				i++;
+			}
+			skipLineFeed = false;
+		}
+		int start = i;
+		TinyLine.@Nullable ByteLine chunkLine = null;
+		for (; i < limit; i++) {
+			final byte b = bytes.get(i);
+			if (b != '\n' && b != '\r')
+				continue;
+			final TinyLine.ByteLine line;
+			if (pendingBytes.position() == 0) {
+				if (chunkLine == null) {
+					chunkLine = new TinyLine.ByteLine(bytes, start, limit, true);
+				}
+				line = chunkLine;
+				line.reset(start, i);
+			} else {
+				appendBytes(bytes, start, i);
+				line = new TinyLine.ByteLine(pendingBytes, 0, pendingBytes.position(), true);
+				line.reset(0, pendingBytes.position());
+			}
+			accept(line);
+			pendingBytes.clear();
+			if (b == '\r') {
+				if (i + 1 == limit) {
+					skipLineFeed = true;
+				} else if (bytes.get(i + 1) == '\n') {
+					i++;
+				}
+			}
+			start = i + 1;
+		}
+		appendBytes(bytes, start, limit);
+		bytes.position(limit);
+	}
+
+	/**
+	 * Ends the mapping content.
+	 *
+	 * <p>An incomplete last line is parsed, and the visitor is popped out of the
+	 * remaining elements.
+	 *
+	 * @throws MappingParseException if a mapping parsing error is encountered
+	 * @throws IllegalStateException if the parser has already ended
+	 */
+	public void end() throws MappingParseException {
+		checkOpen();
+		ended = true;
+		if (pendingChars.length() > 0) {
+			charLine.reset(pendingChars, 0, pendingChars.length());
+			accept(charLine);
+		} else if (pendingBytes.position() > 0) {
+			final TinyLine.ByteLine line = new TinyLine.ByteLine(pendingBytes, 0, pendingBytes.position(), true);
+			line.reset(0, pendingBytes.position());
+			accept(line);
+		}
+
+		TinyParser parser = this.parser;
+		if (parser == null) {
+			try {
+				final String[] parts = headerParts;
+				if (parts == null)
+					throw new IllegalArgumentException("Empty input!");
+				parser = start(parts);
+			} catch (RuntimeException ex) {
+				throw new MappingParseException("Error in the header!", ex);
+			}
+		}
+		parser.end();
+	}
+
+	private void accept(TinyLine line) throws MappingParseException {
+		TinyParser parser = this.parser;
+		if (parser == null) {
+			try {
+				final String[] parts = headerParts;
+				if (parts == null) {
+					headerParts = TinyV2Factory.splitHeader(line.text());
+					return;
+				}
+				if (line.indent == 1) {
+					TinyV2Factory.readProperty(line.text(), properties);
+					return;
+				}
+				if (line.indent != 0)
+					throw new IllegalArgumentException("Invalid indent in header! Encountered \"" + line.text() + "\"!");
+				parser = start(parts);
+			} catch (RuntimeException ex) {
+				throw new MappingParseException("Error in the header!", ex);
+			}
+		}
+		parser.accept(line);
+	}
+
+	private TinyParser start(String[] headerParts) {
+		final TinyMetadata meta = TinyV2Factory.makeHeader(headerParts, properties);
+		final TinyParser ret = parser = new TinyParser(visitor, meta);
+		visitor.start(meta);
+		return ret;
+	}
+
+	private void appendBytes(ByteBuffer bytes, int from, int to) {
+		final int length = to - from;
+		if (pendingBytes.remaining() < length) {
+			final ByteBuffer grown = ByteBuffer.allocate(Math.max(pendingBytes.capacity() * 2, pendingBytes.position() + length));
+			pendingBytes.flip();
+			grown.put(pendingBytes);
+			pendingBytes = grown;
+		}
+		for (int i = from; i < to; i++) {
+			pendingBytes.put(bytes.get(i));
+		}
+	}
+
+	private void checkOpen() {
+		if (ended)
+			throw new IllegalStateException("The parser has ended!");
+	}
+}
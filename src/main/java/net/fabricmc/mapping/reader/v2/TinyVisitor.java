@@ -43,6 +43,21 @@ public interface TinyVisitor {
 	default void start(TinyMetadata metadata) {
 	}
 
+	/**
+	 * Tells if this visitor only uses a {@link MappingGetter} during the call it is passed to.
+	 *
+	 * <p>If {@code true}, the parser reuses one mutable getter per depth of the visit
+	 * stack instead of creating one per line, and the names from
+	 * {@link MappingGetter#getView(int)} are views of the mapping content. A visitor that
+	 * looks at a few names of each line then does not allocate per line. Neither the
+	 * getters nor their views may be kept after the push call returns.
+	 *
+	 * @return whether getters may be reused, {@code false} by default
+	 */
+	default boolean allowsGetterReuse() {
+		return false;
+	}
+
 	/**
 	 * Visit a class.
 	 *
@@ -18,6 +18,8 @@ package net.fabricmc.mapping.tree;
 
 import java.util.Collection;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 /**
  * Represents a class element.
  */
@@ -36,4 +38,78 @@ public interface ClassDef extends Mapped {
 	 * @return all fields
 	 */
 	Collection<FieldDef> getFields();
+
+	/**
+	 * Finds a method element of this class element by its name and descriptor.
+	 *
+	 * <p>The class elements of trees from {@link TinyMappingFactory} back this
+	 * lookup with hash indexes, which are built per namespace on first use.
+	 *
+	 * @param namespace  the namespace of the name and descriptor
+	 * @param name       the name of the method
+	 * @param descriptor the descriptor of the method
+	 * @return the method, or {@code null} if there is none
+	 */
+	default @Nullable MethodDef getMethod(String namespace, String name, String descriptor) {
+		for (MethodDef method : getMethods()) {
+			if (method.getName(namespace).equals(name) && method.getDescriptor(namespace).equals(descriptor)) {
+				return method;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Finds a method element of this class element by its name and descriptor.
+	 *
+	 * @param namespace  the index of the namespace of the name and descriptor
+	 * @param name       the name of the method
+	 * @param descriptor the descriptor of the method
+	 * @return the method, or {@code null} if there is none
+	 * @see #getMethod(String, String, String)
+	 */
+	default @Nullable MethodDef getMethod(int namespace, String name, String descriptor) {
+		for (MethodDef method : getMethods()) {
+			if (method.getName(namespace).equals(name) && method.getDescriptor(namespace).equals(descriptor)) {
+				return method;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Finds a field element of this class element by its name and descriptor.
+	 *
+	 * @param namespace  the namespace of the name and descriptor
+	 * @param name       the name of the field
+	 * @param descriptor the descriptor of the field
+	 * @return the field, or {@code null} if there is none
+	 * @see #getMethod(String, String, String)
+	 */
+	default @Nullable FieldDef getField(String namespace, String name, String descriptor) {
+		for (FieldDef field : getFields()) {
+			if (field.getName(namespace).equals(name) && field.getDescriptor(namespace).equals(descriptor)) {
+				return field;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Finds a field element of this class element by its name and descriptor.
+	 *
+	 * @param namespace  the index of the namespace of the name and descriptor
+	 * @param name       the name of the field
+	 * @param descriptor the descriptor of the field
+	 * @return the field, or {@code null} if there is none
+	 * @see #getMethod(String, String, String)
+	 */
+	default @Nullable FieldDef getField(int namespace, String name, String descriptor) {
+		for (FieldDef field : getFields()) {
+			if (field.getName(namespace).equals(name) && field.getDescriptor(namespace).equals(descriptor)) {
+				return field;
+			}
+		}
+		return null;
+	}
 }
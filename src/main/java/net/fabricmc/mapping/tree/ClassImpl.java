@@ -20,10 +20,15 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.function.ToIntFunction;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 final class ClassImpl extends MappedImpl implements ClassDef {
 
 	final Collection<MethodDef> methods = new ArrayList<>();
 	final Collection<FieldDef> fields = new ArrayList<>();
+	// created on the first lookup, racy, but a lost index is only created again
+	private @Nullable MemberIndex<MethodDef> methodIndex;
+	private @Nullable MemberIndex<FieldDef> fieldIndex;
 
 	ClassImpl(ToIntFunction<String> namespaceMapper, String[] names) {
 		super(namespaceMapper, names);
@@ -38,4 +43,40 @@ final class ClassImpl extends MappedImpl implements ClassDef {
 	public Collection<FieldDef> getFields() {
 		return fields;
 	}
+
+	@Override
+	public @Nullable MethodDef getMethod(String namespace, String name, String descriptor) {
+		return methodIndex().get(namespaceMapper.applyAsInt(namespace), name, descriptor);
+	}
+
+	@Override
+	public @Nullable MethodDef getMethod(int namespace, String name, String descriptor) {
+		return methodIndex().get(namespace, name, descriptor);
+	}
+
+	@Override
+	public @Nullable FieldDef getField(String namespace, String name, String descriptor) {
+		return fieldIndex().get(namespaceMapper.applyAsInt(namespace), name, descriptor);
+	}
+
+	@Override
+	public @Nullable FieldDef getField(int namespace, String name, String descriptor) {
+		return fieldIndex().get(namespace, name, descriptor);
+	}
+
+	private MemberIndex<MethodDef> methodIndex() {
+		@Nullable MemberIndex<MethodDef> ret = methodIndex;
+		if (ret == null) {
+			ret = methodIndex = new MemberIndex<>(methods);
+		}
+		return ret;
+	}
+
+	private MemberIndex<FieldDef> fieldIndex() {
+		@Nullable MemberIndex<FieldDef> ret = fieldIndex;
+		if (ret == null) {
+			ret = fieldIndex = new MemberIndex<>(fields);
+		}
+		return ret;
+	}
 }
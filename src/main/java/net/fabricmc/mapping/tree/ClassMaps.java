@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mapping.tree;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The class maps of a tree for each namespace, built on first use.
+ *
+ * <p>A map is published through an atomic array, so concurrent readers see it
+ * completely built. Two threads may build the same map at once, in which case
+ * both get the one published first.
+ */
+final class ClassMaps {
+
+	private final TinyTree tree;
+	private final AtomicReferenceArray<@Nullable Map<String, ClassDef>> maps;
+
+	ClassMaps(TinyTree tree, int namespaceCount) {
+		this.tree = tree;
+		this.maps = new AtomicReferenceArray<>(namespaceCount);
+	}
+
+	Map<String, ClassDef> get(int namespace) {
+		checkNamespace(tree, namespace);
+		if (namespace == 0) {
+			return tree.getDefaultNamespaceClassMap();
+		}
+		final @Nullable Map<String, ClassDef> ret = maps.get(namespace);
+		if (ret != null) {
+			return ret;
+		}
+		final Map<String, ClassDef> built = build(tree.getClasses(), namespace);
+		return maps.compareAndSet(namespace, null, built) ? built : maps.get(namespace);
+	}
+
+	static void checkNamespace(TinyTree tree, int namespace) {
+		if (namespace < 0 || namespace >= tree.getMetadata().getNamespaces().size())
+			throw new IllegalArgumentException("Unknown namespace index: " + namespace);
+	}
+
+	/**
+	 * Maps the classes by their names in a namespace; the first class of a name wins.
+	 */
+	static Map<String, ClassDef> build(Collection<ClassDef> classes, int namespace) {
+		final Map<String, ClassDef> ret = new HashMap<>(classes.size() * 4 / 3 + 1);
+		for (ClassDef clz : classes) {
+			ret.putIfAbsent(clz.getName(namespace), clz);
+		}
+		return Collections.unmodifiableMap(ret);
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mapping.tree;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Memoizes the descriptors of a tree mapped to its namespaces.
+ *
+ * <p>The descriptors are keyed by their form in the first namespace, which many
+ * members share, so members with the same descriptor also share the mapped string.
+ *
+ * <p>Each namespace keeps at most {@code maxEntries} descriptors; once it is full,
+ * other descriptors are mapped on every request as without a cache. The limit may
+ * be exceeded slightly under concurrent use.
+ */
+final class DescriptorCache {
+
+	private final int maxEntries;
+	private final AtomicReferenceArray<@Nullable Map<String, String>> namespaces;
+
+	DescriptorCache(int namespaceCount, int maxEntries) {
+		if (maxEntries < 0)
+			throw new IllegalArgumentException("Negative cache size " + maxEntries + "!");
+		this.maxEntries = maxEntries;
+		this.namespaces = new AtomicReferenceArray<>(namespaceCount);
+	}
+
+	@Nullable String get(int namespace, String descriptor) {
+		if (namespace < 0 || namespace >= namespaces.length())
+			return null;
+		final @Nullable Map<String, String> map = namespaces.get(namespace);
+		return map == null ? null : map.get(descriptor);
+	}
+
+	void put(int namespace, String descriptor, String mapped) {
+		if (namespace < 0 || namespace >= namespaces.length())
+			return;
+		@Nullable Map<String, String> map = namespaces.get(namespace);
+		if (map == null) {
+			map = new ConcurrentHashMap<>();
+			if (!namespaces.compareAndSet(namespace, null, map)) {
+				map = namespaces.get(namespace);
+			}
+		}
+		if (map.size() < maxEntries) {
+			map.putIfAbsent(descriptor, mapped);
+		}
+	}
+
+	/**
+	 * A tree whose mapped descriptors can be memoized.
+	 */
+	interface Holder {
+		/**
+		 * Sets the cache used for descriptors of the tree.
+		 *
+		 * <p>The cache must only be set once the tree is completely built.
+		 */
+		void setDescriptorCache(@Nullable DescriptorCache cache);
+
+		@Nullable DescriptorCache getDescriptorCache();
+	}
+}
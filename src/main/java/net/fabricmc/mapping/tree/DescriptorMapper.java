@@ -16,49 +16,82 @@
 
 package net.fabricmc.mapping.tree;
 
+import java.util.Arrays;
 import java.util.Map;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.fabricmc.mapping.util.ClassNameTable;
+import net.fabricmc.mapping.util.DescriptorRemapper;
+import net.fabricmc.mapping.util.DescriptorRemapper.ClassLookup;
+
 /**
  * A simple class name mapper backed by a map.
  *
  * <p>The class name is intended to be in the format like {@code java/lang/String}.
  *
- * <p>Note that remapping result changes when the map changes.
+ * <p>Class names are looked up in a table copied from the map on the first
+ * mapped descriptor, so later changes to the map are not reflected.
  */
 final class DescriptorMapper {
 
 	private final Map<String, ? extends MappedImpl> map;
+	volatile @Nullable DescriptorCache cache;
+	private volatile @Nullable ClassNameTable<MappedImpl> table;
+	// racy, but the lookups are immutable and interchangeable
+	private @Nullable ClassLookup[] lookups = new ClassLookup[0];
 
 	DescriptorMapper(Map<String, ? extends MappedImpl> map) {
 		this.map = map;
 	}
 
-	String mapClass(int namespace, String old) {
-		MappedImpl got = map.get(old);
-		return got == null ? old : got.getName(namespace);
+	private ClassLookup lookup(int namespace) {
+		if (namespace < 0) {
+			return newLookup(namespace);
+		}
+		@Nullable ClassLookup[] lookups = this.lookups;
+		if (namespace >= lookups.length) {
+			lookups = this.lookups = Arrays.copyOf(lookups, namespace + 1);
+		}
+		@Nullable ClassLookup ret = lookups[namespace];
+		if (ret == null) {
+			ret = lookups[namespace] = newLookup(namespace);
+		}
+		return ret;
+	}
+
+	private ClassLookup newLookup(int namespace) {
+		return (source, start, end) -> {
+			MappedImpl got = table().get(source, start, end);
+			return got == null ? null : got.getName(namespace);
+		};
+	}
+
+	private ClassNameTable<MappedImpl> table() {
+		@Nullable ClassNameTable<MappedImpl> ret = table;
+		if (ret == null) {
+			ret = new ClassNameTable<>(map.size());
+			for (Map.Entry<String, ? extends MappedImpl> entry : map.entrySet()) {
+				ret.put(entry.getKey(), entry.getValue());
+			}
+			table = ret;
+		}
+		return ret;
 	}
 
 	String mapDescriptor(int namespace, String old) {
-		int lastL = old.indexOf('L');
-		int lastSemi = -1;
-		if (lastL < 0) {
+		if (old.indexOf('L') < 0) {
 			return old;
 		}
-		StringBuilder builder = new StringBuilder((int) (old.length() * 1.2)); // approximate
-		while (lastL >= 0) {
-			if (lastSemi + 1 < lastL) {
-				builder.append(old, lastSemi + 1, lastL);
-			}
-			lastSemi = old.indexOf(';', lastL + 1);
-			if (lastSemi == -1)
-				return old; // Invalid desc, nah!
-			builder.append('L').append(mapClass(namespace, old.substring(lastL + 1, lastSemi))).append(';');
-			lastL = old.indexOf('L', lastSemi + 1);
+		final @Nullable DescriptorCache cache = this.cache;
+		if (cache == null) {
+			return DescriptorRemapper.mapDescriptor(old, lookup(namespace));
 		}
-
-		if (lastSemi + 1 < old.length()) {
-			builder.append(old, lastSemi + 1, old.length());
+		@Nullable String ret = cache.get(namespace, old);
+		if (ret == null) {
+			ret = DescriptorRemapper.mapDescriptor(old, lookup(namespace));
+			cache.put(namespace, old, ret);
 		}
-		return builder.toString();
+		return ret;
 	}
 }
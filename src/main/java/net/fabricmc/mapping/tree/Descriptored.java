@@ -28,4 +28,14 @@ public interface Descriptored extends Mapped {
 	 * @return the mapped descriptor
 	 */
 	String getDescriptor(String namespace);
+
+	/**
+	 * Maps the descriptor to the target namespace.
+	 *
+	 * @param namespace the index of the target namespace
+	 * @return the mapped descriptor
+	 * @see #getDescriptor(String)
+	 * @see #getName(int)
+	 */
+	String getDescriptor(int namespace);
 }
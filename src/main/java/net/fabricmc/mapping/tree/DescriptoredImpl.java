@@ -16,12 +16,13 @@
 
 package net.fabricmc.mapping.tree;
 
+import java.util.List;
 import java.util.function.ToIntFunction;
 
 abstract class DescriptoredImpl extends MappedImpl implements Descriptored {
 
 	final DescriptorMapper mapper;
-	final String signature;
+	String signature;
 
 	DescriptoredImpl(DescriptorMapper mapper, ToIntFunction<String> namespaceMapper, String[] names, String signature) {
 		super(namespaceMapper, names);
@@ -29,9 +30,20 @@ abstract class DescriptoredImpl extends MappedImpl implements Descriptored {
 		this.signature = signature;
 	}
 
+	/**
+	 * Gets the descriptor of any descriptored element in the first namespace.
+	 */
+	static String signature(Descriptored descriptored, List<String> namespaces) {
+		return descriptored instanceof DescriptoredImpl ? ((DescriptoredImpl) descriptored).signature : descriptored.getDescriptor(namespaces.get(0));
+	}
+
 	@Override
 	public String getDescriptor(String namespace) {
-		int t = namespaceMapper.applyAsInt(namespace);
-		return t == 0 ? signature : mapper.mapDescriptor(t, signature);
+		return getDescriptor(namespaceMapper.applyAsInt(namespace));
+	}
+
+	@Override
+	public String getDescriptor(int namespace) {
+		return namespace == 0 ? signature : mapper.mapDescriptor(namespace, signature);
 	}
 }
@@ -42,6 +42,31 @@ public interface Mapped {
 	 */
 	String getRawName(String namespace);
 
+	/**
+	 * Gets the mapped name of the element in the target namespace.
+	 *
+	 * <p>The index of a namespace can be obtained once from
+	 * {@link net.fabricmc.mapping.reader.v2.TinyMetadata#index(String)}, which
+	 * saves looking it up on every call. Elements of other trees can resolve the
+	 * index with {@link net.fabricmc.mapping.reader.v2.TinyMetadata#getNamespaces()}
+	 * of their tree.
+	 *
+	 * @param namespace the index of the target namespace
+	 * @return the mapped name
+	 * @see #getName(String)
+	 */
+	String getName(int namespace);
+
+	/**
+	 * Gets an explicitly mapped name of the element in the target namespace.
+	 *
+	 * @param namespace the index of the target namespace
+	 * @return the explicitly mapped name
+	 * @see #getRawName(String)
+	 * @see #getName(int)
+	 */
+	String getRawName(int namespace);
+
 	/**
 	 * Gets the comment (JavaDoc, etc.) on an element.
 	 *
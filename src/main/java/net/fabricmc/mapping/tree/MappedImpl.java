@@ -18,6 +18,7 @@ package net.fabricmc.mapping.tree;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.List;
 import java.util.function.ToIntFunction;
 
 abstract class MappedImpl implements Mapped {
@@ -34,13 +35,12 @@ abstract class MappedImpl implements Mapped {
 
 	@Override
 	public String getName(String namespace) {
-		int t = namespaceMapper.applyAsInt(namespace);
-		return getName(t);
+		return getName(namespaceMapper.applyAsInt(namespace));
 	}
 
 	@Override
 	public String getRawName(String namespace) {
-		return names[namespaceMapper.applyAsInt(namespace)];
+		return getRawName(namespaceMapper.applyAsInt(namespace));
 	}
 
 	@Override
@@ -48,7 +48,8 @@ abstract class MappedImpl implements Mapped {
 		return comment;
 	}
 
-	String getName(int namespace) {
+	@Override
+	public String getName(int namespace) {
 		if (namespace >= names.length)
 			namespace = names.length - 1;
 		while (names[namespace].isEmpty()) {
@@ -59,7 +60,64 @@ abstract class MappedImpl implements Mapped {
 		return names[namespace];
 	}
 
+	@Override
+	public String getRawName(int namespace) {
+		return namespace < names.length ? names[namespace] : "";
+	}
+
 	void setComment(@Nullable String comment) {
 		this.comment = comment;
 	}
+
+	/**
+	 * Gets the raw names of any mapped element in the given namespaces.
+	 *
+	 * <p>Elements of this package may have fewer names than namespaces, such as
+	 * the ones loaded from v1 input; their missing names are empty.
+	 */
+	static String[] rawNames(Mapped mapped, List<String> namespaces) {
+		final String[] ret = new String[namespaces.size()];
+		if (mapped instanceof MappedImpl) {
+			final String[] names = ((MappedImpl) mapped).names;
+			for (int i = 0; i < ret.length; i++) {
+				ret[i] = i < names.length ? names[i] : "";
+			}
+		} else {
+			for (int i = 0; i < ret.length; i++) {
+				ret[i] = mapped.getRawName(namespaces.get(i));
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Picks the names in the given namespaces out of {@code names}.
+	 *
+	 * <p>An empty name is kept only if falling back to the previous picked namespace
+	 * gives the same name as falling back in {@code names}; otherwise, the name it
+	 * inherited from a namespace that is not picked is filled in. When the namespaces
+	 * are reordered, a namespace without any name can only be represented as
+	 * inheriting from the picked namespace before it.
+	 *
+	 * @param names      the raw names in all namespaces
+	 * @param namespaces the indices of the namespaces to pick, in the new order
+	 * @return the raw names in the picked namespaces
+	 */
+	static String[] project(String[] names, int[] namespaces) {
+		final String[] ret = new String[namespaces.length];
+		String previous = "";
+		for (int i = 0; i < namespaces.length; i++) {
+			int namespace = Math.min(namespaces[i], names.length - 1);
+			String resolved = "";
+			for (int j = namespace; j >= 0; j--) {
+				if (!names[j].isEmpty()) {
+					resolved = names[j];
+					break;
+				}
+			}
+			ret[i] = namespaces[i] < names.length && names[namespace].isEmpty() && resolved.equals(previous) ? "" : resolved;
+			previous = resolved;
+		}
+		return ret;
+	}
 }
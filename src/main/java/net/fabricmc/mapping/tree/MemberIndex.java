@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mapping.tree;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Hash indexes of the members of a class by name and descriptor, one per namespace.
+ *
+ * <p>An index is built on the first lookup in its namespace, and built again if
+ * the number of members has changed since.
+ */
+final class MemberIndex<T extends Descriptored> {
+
+	private static final Table<?>[] NO_TABLES = new Table<?>[0];
+
+	private final Collection<T> members;
+	// racy, but a lost index is only built again
+	private @Nullable Table<T>[] tables = noTables();
+
+	MemberIndex(Collection<T> members) {
+		this.members = members;
+	}
+
+	@Nullable T get(int namespace, String name, String descriptor) {
+		if (namespace < 0)
+			throw new IllegalArgumentException("Unknown namespace index: " + namespace);
+		@Nullable Table<T>[] tables = this.tables;
+		if (namespace >= tables.length) {
+			tables = this.tables = Arrays.copyOf(tables, namespace + 1);
+		}
+		@Nullable Table<T> table = tables[namespace];
+		if (table == null || table.size != members.size()) {
+			table = tables[namespace] = new Table<>(members, namespace);
+		}
+		for (@Nullable Node<T> node = table.byName.get(name); node != null; node = node.next) {
+			if (node.descriptor.equals(descriptor)) {
+				return node.member;
+			}
+		}
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Descriptored> @Nullable Table<T>[] noTables() {
+		return (Table<T>[]) NO_TABLES;
+	}
+
+	private static final class Table<T extends Descriptored> {
+		final int size;
+		final Map<String, Node<T>> byName;
+
+		@SuppressWarnings("unchecked")
+		Table(Collection<T> members, int namespace) {
+			final Object[] all = members.toArray();
+			this.size = all.length;
+			this.byName = new HashMap<>(size * 4 / 3 + 1);
+			// chained from the back, so the first of duplicate members is found
+			for (int i = all.length - 1; i >= 0; i--) {
+				final T member = (T) all[i];
+				final String name = member.getName(namespace);
+				byName.put(name, new Node<>(member, member.getDescriptor(namespace), byName.get(name)));
+			}
+		}
+	}
+
+	private static final class Node<T> {
+		final T member;
+		final String descriptor;
+		final @Nullable Node<T> next;
+
+		Node(T member, String descriptor, @Nullable Node<T> next) {
+			this.member = member;
+			this.descriptor = descriptor;
+			this.next = next;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.tree;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A pool which deduplicates the strings of loaded trees.
+ *
+ * <p>Strings are pooled by category, so lookups in one category are not slowed
+ * down by the strings of the others. A pool may be shared by the loads of several
+ * trees, which then share their identical strings; pools must hence be thread-safe.
+ *
+ * @see TinyMappingFactory#load(java.io.BufferedReader, boolean, StringPool)
+ */
+@FunctionalInterface
+public interface StringPool {
+
+	/**
+	 * A pool which keeps all strings as they are.
+	 */
+	StringPool NONE = (category, string) -> string;
+
+	/**
+	 * The categories of pooled strings.
+	 */
+	enum Category {
+		CLASS_NAME,
+		NAME,
+		FIELD_DESCRIPTOR,
+		METHOD_DESCRIPTOR
+	}
+
+	/**
+	 * Gets the pooled string equal to {@code string}.
+	 *
+	 * @param category the category of the string
+	 * @param string   the string
+	 * @return a string equal to the given one, which may be the given one itself
+	 */
+	String intern(Category category, String string);
+
+	/**
+	 * Creates a pool holding every string it has seen in a concurrent hash map per category.
+	 *
+	 * <p>The pool keeps its strings as long as it is referenced.
+	 *
+	 * @return the created pool
+	 */
+	static StringPool create() {
+		final Map<Category, Map<String, String>> data = new EnumMap<>(Category.class);
+		for (Category category : Category.values()) {
+			data.put(category, new ConcurrentHashMap<>());
+		}
+		return (category, string) -> {
+			final Map<String, String> map = data.get(category);
+			String ret = map.get(string);
+			if (ret == null) {
+				ret = map.putIfAbsent(string, string);
+			}
+			return ret == null ? string : ret;
+		};
+	}
+}
@@ -18,6 +18,11 @@ package net.fabricmc.mapping.tree;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -27,10 +32,14 @@ import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.ToIntFunction;
 
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
+import net.fabricmc.mapping.reader.v1.TinyV1Factory;
+import net.fabricmc.mapping.reader.v2.FilteringTinyVisitor;
 import net.fabricmc.mapping.reader.v2.MappingGetter;
 import net.fabricmc.mapping.reader.v2.MappingParseException;
 import net.fabricmc.mapping.reader.v2.TinyMetadata;
@@ -67,9 +76,171 @@ public final class TinyMappingFactory {
 	 * @throws MappingParseException if there is an issue with the v2 format
 	 */
 	public static TinyTree load(BufferedReader reader, boolean slim) throws IOException, MappingParseException {
-		Visitor visitor = new Visitor(slim);
+		return load(reader, slim, StringPool.NONE);
+	}
+
+	/**
+	 * Loads a tree model from a buffered reader for v2 input, deduplicating its strings.
+	 *
+	 * <p>The names and descriptors of the tree are taken from the {@code pool}. Trees
+	 * loaded with the same pool share their identical strings.
+	 *
+	 * @param reader the buffered reader
+	 * @param slim   whether parameters, local variables, or comments are omitted
+	 * @param pool   the string pool
+	 * @return the built reader model
+	 * @throws IOException           if the reader throws one
+	 * @throws MappingParseException if there is an issue with the v2 format
+	 */
+	public static TinyTree load(BufferedReader reader, boolean slim, StringPool pool) throws IOException, MappingParseException {
+		Visitor visitor = new Visitor(slim, pool);
 		TinyV2Factory.visit(reader, visitor);
-		return new Tree(visitor.metadata, visitor.classNames, visitor.classes);
+		return new Tree(visitor.metadata, visitor.classNames, visitor.classes, visitor.descriptorMapper);
+	}
+
+	/**
+	 * Loads a tree model from a buffered reader for v2 input, keeping only some namespaces.
+	 *
+	 * <p>The tree has its own {@linkplain TinyTree#getMetadata() metadata} listing the
+	 * given namespaces in the given order, and only holds names in those namespaces.
+	 * Names that a kept namespace inherited from a dropped one are filled in, so
+	 * {@link Mapped#getName(String)} returns the same names as on a full tree. The
+	 * descriptors and the {@linkplain TinyTree#getDefaultNamespaceClassMap() default
+	 * class map} are in the first given namespace.
+	 *
+	 * @param reader     the buffered reader
+	 * @param slim       whether parameters, local variables, or comments are omitted
+	 * @param namespaces the namespaces to keep
+	 * @return the built reader model
+	 * @throws IOException           if the reader throws one
+	 * @throws MappingParseException if there is an issue with the v2 format, or a namespace is absent
+	 */
+	public static TinyTree load(BufferedReader reader, boolean slim, List<String> namespaces) throws IOException, MappingParseException {
+		Visitor visitor = new Visitor(slim, namespaces);
+		TinyV2Factory.visit(reader, visitor);
+		return visitor.buildProjected();
+	}
+
+	/**
+	 * Loads a tree model from a byte buffer holding UTF-8 encoded v2 input.
+	 *
+	 * @param buffer the byte buffer, such as a memory-mapped file
+	 * @return the built reader model
+	 * @throws MappingParseException if there is an issue with the v2 format
+	 * @see TinyV2Factory#visit(ByteBuffer, TinyVisitor)
+	 */
+	public static TinyTree load(ByteBuffer buffer) throws MappingParseException {
+		return load(buffer, false);
+	}
+
+	/**
+	 * Loads a tree model from a byte buffer holding UTF-8 encoded v2 input.
+	 *
+	 * @param buffer the byte buffer, such as a memory-mapped file
+	 * @param slim   whether parameters, local variables, or comments are omitted
+	 * @return the built reader model
+	 * @throws MappingParseException if there is an issue with the v2 format
+	 * @see TinyV2Factory#visit(ByteBuffer, TinyVisitor)
+	 */
+	public static TinyTree load(ByteBuffer buffer, boolean slim) throws MappingParseException {
+		return load(buffer, slim, StringPool.NONE);
+	}
+
+	/**
+	 * Loads a tree model from a byte buffer holding UTF-8 encoded v2 input,
+	 * deduplicating its strings.
+	 *
+	 * @param buffer the byte buffer, such as a memory-mapped file
+	 * @param slim   whether parameters, local variables, or comments are omitted
+	 * @param pool   the string pool
+	 * @return the built reader model
+	 * @throws MappingParseException if there is an issue with the v2 format
+	 * @see #load(BufferedReader, boolean, StringPool)
+	 */
+	public static TinyTree load(ByteBuffer buffer, boolean slim, StringPool pool) throws MappingParseException {
+		Visitor visitor = new Visitor(slim, pool);
+		TinyV2Factory.visit(buffer, visitor);
+		return new Tree(visitor.metadata, visitor.classNames, visitor.classes, visitor.descriptorMapper);
+	}
+
+	/**
+	 * Loads a tree model from a byte buffer holding UTF-8 encoded v2 input, keeping
+	 * only some namespaces.
+	 *
+	 * @param buffer     the byte buffer, such as a memory-mapped file
+	 * @param slim       whether parameters, local variables, or comments are omitted
+	 * @param namespaces the namespaces to keep
+	 * @return the built reader model
+	 * @throws MappingParseException if there is an issue with the v2 format, or a namespace is absent
+	 * @see #load(BufferedReader, boolean, List)
+	 */
+	public static TinyTree load(ByteBuffer buffer, boolean slim, List<String> namespaces) throws MappingParseException {
+		Visitor visitor = new Visitor(slim, namespaces);
+		TinyV2Factory.visit(buffer, visitor);
+		return visitor.buildProjected();
+	}
+
+	/**
+	 * Loads a tree model from a byte buffer holding UTF-8 encoded v2 input, parsing
+	 * it in parallel on the {@linkplain ForkJoinPool#commonPool() common pool}.
+	 *
+	 * @param buffer the byte buffer, such as a memory-mapped file
+	 * @param slim   whether parameters, local variables, or comments are omitted
+	 * @return the built reader model
+	 * @throws MappingParseException if there is an issue with the v2 format
+	 * @see #loadParallel(ByteBuffer, boolean, ForkJoinPool)
+	 */
+	public static TinyTree loadParallel(ByteBuffer buffer, boolean slim) throws MappingParseException {
+		return loadParallel(buffer, slim, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Loads a tree model from a byte buffer holding UTF-8 encoded v2 input, parsing
+	 * it in parallel.
+	 *
+	 * <p>The input is split into chunks of whole classes which are parsed on the
+	 * {@code pool}. The resulting tree is the same as the one from
+	 * {@link #load(ByteBuffer, boolean)}, including the order of classes.
+	 *
+	 * @param buffer the byte buffer, such as a memory-mapped file
+	 * @param slim   whether parameters, local variables, or comments are omitted
+	 * @param pool   the pool to parse on
+	 * @return the built reader model
+	 * @throws MappingParseException if there is an issue with the v2 format
+	 * @see TinyV2Factory#visitParallel(ByteBuffer, java.util.function.Supplier, ForkJoinPool)
+	 */
+	public static TinyTree loadParallel(ByteBuffer buffer, boolean slim, ForkJoinPool pool) throws MappingParseException {
+		return loadParallel(buffer, slim, pool, StringPool.NONE);
+	}
+
+	/**
+	 * Loads a tree model from a byte buffer holding UTF-8 encoded v2 input, parsing
+	 * it in parallel and deduplicating its strings.
+	 *
+	 * @param buffer  the byte buffer, such as a memory-mapped file
+	 * @param slim    whether parameters, local variables, or comments are omitted
+	 * @param pool    the pool to parse on
+	 * @param strings the string pool
+	 * @return the built reader model
+	 * @throws MappingParseException if there is an issue with the v2 format
+	 * @see #loadParallel(ByteBuffer, boolean, ForkJoinPool)
+	 * @see #load(BufferedReader, boolean, StringPool)
+	 */
+	public static TinyTree loadParallel(ByteBuffer buffer, boolean slim, ForkJoinPool pool, StringPool strings) throws MappingParseException {
+		final Map<String, ClassImpl> classNames = new HashMap<>();
+		final DescriptorMapper descriptorMapper = new DescriptorMapper(classNames);
+		final List<Visitor> visitors = TinyV2Factory.visitParallel(buffer, () -> new Visitor(slim, strings, descriptorMapper), pool);
+
+		int classCount = 0;
+		for (Visitor visitor : visitors) {
+			classCount += visitor.classes.size();
+		}
+		final List<ClassDef> classes = new ArrayList<>(classCount);
+		for (Visitor visitor : visitors) {
+			classes.addAll(visitor.classes);
+			visitor.classNames.forEach(classNames::putIfAbsent);
+		}
+		return new Tree(visitors.get(0).metadata, classNames, classes, descriptorMapper);
 	}
 
 	/**
@@ -146,7 +317,7 @@ public final class TinyMappingFactory {
 					case "CLASS":
 						ClassImpl entry = new ClassImpl(namespaceMapper, Arrays.copyOfRange(splitLine, 1, splitLine.length));
 						classEntries.add(entry);
-						firstNamespaceClassEntries.put(entry.getName(0), entry);
+						firstNamespaceClassEntries.putIfAbsent(entry.getName(0), entry);
 						break;
 					case "FIELD":
 						fieldLines.add(splitLine);
@@ -188,41 +359,413 @@ public final class TinyMappingFactory {
 			parent.methods.add(method);
 		}
 
-		return new Tree(new LegacyMetadata(Collections.unmodifiableList(Arrays.asList(namespaceList)), namespacesToIds), firstNamespaceClassEntries, classEntries);
+		return new Tree(new LegacyMetadata(Collections.unmodifiableList(Arrays.asList(namespaceList)), namespacesToIds), firstNamespaceClassEntries, classEntries, mapper);
+	}
+
+	/**
+	 * Loads a tree model from a byte buffer holding UTF-8 encoded v1 input.
+	 *
+	 * <p>Unlike {@link #loadLegacy(BufferedReader)}, the member lines are not kept
+	 * in memory until all classes are read; the mapping is visited class by class
+	 * and built like v2 input.
+	 *
+	 * @param buffer the byte buffer, such as a memory-mapped file
+	 * @return the built reader model
+	 * @throws IllegalArgumentException if there is an issue with the v1 format
+	 * @see TinyV1Factory#visit(ByteBuffer, TinyVisitor)
+	 */
+	public static TinyTree loadLegacy(ByteBuffer buffer) throws IllegalArgumentException {
+		Visitor visitor = new Visitor(false);
+		TinyV1Factory.visit(buffer, visitor);
+		return new Tree(visitor.metadata, visitor.classNames, visitor.classes, visitor.descriptorMapper);
+	}
+
+	/**
+	 * Writes a tree model in a compact binary form.
+	 *
+	 * <p>The binary form holds every string once and can be loaded with
+	 * {@link #loadBinary(ByteBuffer)} much faster than the text input is parsed.
+	 *
+	 * <p>This method will not close the {@code out}!
+	 *
+	 * @param tree the tree model
+	 * @param out  the output stream to write to
+	 * @throws IOException if the output stream throws one
+	 */
+	public static void writeBinary(TinyTree tree, OutputStream out) throws IOException {
+		TreeBinaryFormat.write(tree, out);
+	}
+
+	/**
+	 * Loads a tree model from a byte buffer holding its binary form.
+	 *
+	 * <p>The content from the buffer's position is read. The position, limit and
+	 * mark of the buffer are not modified.
+	 *
+	 * @param buffer the byte buffer, such as a memory-mapped file
+	 * @return the built reader model
+	 * @throws IllegalArgumentException if the binary form is corrupt or of another version
+	 * @see #writeBinary(TinyTree, OutputStream)
+	 */
+	public static TinyTree loadBinary(ByteBuffer buffer) throws IllegalArgumentException {
+		return TreeBinaryFormat.read(buffer);
+	}
+
+	/**
+	 * Writes a tree model as an index which can be queried in place.
+	 *
+	 * <p>This method will not close the {@code out}!
+	 *
+	 * @param tree the tree model
+	 * @param out  the output stream to write to
+	 * @throws IOException if the output stream throws one
+	 * @see #loadIndex(ByteBuffer)
+	 */
+	public static void writeIndex(TinyTree tree, OutputStream out) throws IOException {
+		TreeIndexFormat.write(tree, out);
+	}
+
+	/**
+	 * Opens a tree model backed by an index in a byte buffer.
+	 *
+	 * <p>Unlike the other trees, nothing but the metadata is read upfront. The
+	 * class map looks classes up by binary search on the buffer, and classes and
+	 * members are views which read their names from the buffer on each call. The
+	 * classes are sorted by their name in the first namespace, and the members of a
+	 * class by name and descriptor.
+	 *
+	 * <p>The content between the buffer's position and limit is used. The buffer
+	 * must not be modified while the tree is in use.
+	 *
+	 * @param buffer the byte buffer, such as a memory-mapped file
+	 * @return the read-only tree model
+	 * @throws IllegalArgumentException if the index is corrupt or of another version
+	 * @see #writeIndex(TinyTree, OutputStream)
+	 */
+	public static TinyTree loadIndex(ByteBuffer buffer) throws IllegalArgumentException {
+		return TreeIndexFormat.read(buffer);
+	}
+
+	/**
+	 * Opens a tree model backed by a memory-mapped index file.
+	 *
+	 * <p>The file is mapped read-only, so processes opening the same index share
+	 * the page cache for it.
+	 *
+	 * @param index the index file
+	 * @return the read-only tree model
+	 * @throws IOException              if the file cannot be mapped
+	 * @throws IllegalArgumentException if the index is corrupt or of another version
+	 * @see #loadIndex(ByteBuffer)
+	 */
+	public static TinyTree mapIndex(Path index) throws IOException, IllegalArgumentException {
+		try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+			return loadIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Copies a tree model into a compact form.
+	 *
+	 * <p>The compact tree holds no object per element. Its structure is stored in a
+	 * single int array of fixed-size records, one per element, which refer to a
+	 * single array of deduplicated strings. Its classes and members are views
+	 * created on access, which are equal if they view the same record. It is
+	 * read-only and ordered like a tree from {@link #loadIndex(ByteBuffer)}.
+	 *
+	 * @param tree the tree model to copy
+	 * @return the compact tree model
+	 */
+	public static TinyTree compact(TinyTree tree) {
+		return TreeIndexFormat.compact(tree);
+	}
+
+	/**
+	 * Memoizes the descriptors a tree model maps to its namespaces.
+	 *
+	 * <p>Without a cache, {@link Descriptored#getDescriptor(String)} maps the
+	 * descriptor again on every call for any namespace but the first. With one,
+	 * each distinct descriptor is mapped once per namespace, and members with the
+	 * same descriptor share the result. The cache is filled lazily and is safe for
+	 * concurrent use.
+	 *
+	 * <p>At most {@code maxEntries} descriptors are kept per namespace, which bounds
+	 * the memory used for huge trees; other descriptors are mapped on every call.
+	 * Calling this method again replaces the cache of the tree.
+	 *
+	 * @param tree       a tree model from this factory
+	 * @param maxEntries the maximum number of descriptors kept per namespace, or
+	 *                   {@link Integer#MAX_VALUE} for no limit
+	 * @throws IllegalArgumentException if the tree is not from this factory, or
+	 *                                  {@code maxEntries} is negative
+	 * @see #materializeDescriptors(TinyTree, String)
+	 */
+	public static void cacheDescriptors(TinyTree tree, int maxEntries) throws IllegalArgumentException {
+		if (!(tree instanceof DescriptorCache.Holder))
+			throw new IllegalArgumentException("Cannot cache descriptors of " + tree.getClass().getName() + "!");
+		((DescriptorCache.Holder) tree).setDescriptorCache(new DescriptorCache(tree.getMetadata().getNamespaces().size(), maxEntries));
+	}
+
+	/**
+	 * Maps the descriptors of all fields and methods of a tree model to a namespace
+	 * in one pass, so later calls for them are served from the cache.
+	 *
+	 * <p>If the tree caches no descriptors yet, a cache without limit is set up as
+	 * if by {@link #cacheDescriptors(TinyTree, int)}.
+	 *
+	 * @param tree      a tree model from this factory
+	 * @param namespace the namespace to map the descriptors to
+	 * @throws IllegalArgumentException if the tree is not from this factory, or
+	 *                                  the namespace does not exist
+	 */
+	public static void materializeDescriptors(TinyTree tree, String namespace) throws IllegalArgumentException {
+		final int index = tree.getMetadata().index(namespace);
+		if (index < 0)
+			throw new IllegalArgumentException("Unknown namespace: " + namespace);
+		if (!(tree instanceof DescriptorCache.Holder) || ((DescriptorCache.Holder) tree).getDescriptorCache() == null) {
+			cacheDescriptors(tree, Integer.MAX_VALUE);
+		}
+		for (ClassDef clz : tree.getClasses()) {
+			for (FieldDef field : clz.getFields()) {
+				field.getDescriptor(index);
+			}
+			for (MethodDef method : clz.getMethods()) {
+				method.getDescriptor(index);
+			}
+		}
+	}
+
+	/**
+	 * Copies a tree model with another namespace first.
+	 *
+	 * <p>The copy behaves as if the namespace had been the first one of the mapping
+	 * file, followed by the other namespaces in their order: its descriptors are
+	 * stored in that namespace and its {@linkplain TinyTree#getDefaultNamespaceClassMap()
+	 * default class map} is keyed on it. Each distinct descriptor is mapped once, so
+	 * this is much cheaper than loading the mapping again with
+	 * {@link #load(ByteBuffer, boolean, List)}. Names, comments, parameters and local
+	 * variables are kept; names are shared with the source tree.
+	 *
+	 * @param tree      the tree model
+	 * @param namespace the namespace to put first
+	 * @return the rebased tree model, or {@code tree} if the namespace already is first
+	 * @throws IllegalArgumentException if the namespace does not exist
+	 */
+	public static TinyTree rebase(TinyTree tree, String namespace) throws IllegalArgumentException {
+		return TreeRebaser.rebase(tree, namespace);
+	}
+
+	/**
+	 * Merges two tree models on a namespace they share.
+	 *
+	 * <p>The merged tree has the namespaces of the {@code left} tree followed by the
+	 * ones of the {@code right} tree but the shared one, such as {@code official},
+	 * {@code intermediary} and {@code named} for an intermediary mapping on the left
+	 * and a Yarn mapping on the right, both sharing {@code intermediary}.
+	 *
+	 * <p>Classes are matched by their names in the shared namespace, and fields and
+	 * methods by their names and descriptors in it. Elements of only one tree keep
+	 * their name from the shared namespace in the namespaces of the other tree. The
+	 * comments of the left tree win over the right one. Left classes come first in
+	 * their order, then the classes only in the right tree.
+	 *
+	 * @param left      the left tree model
+	 * @param right     the right tree model
+	 * @param namespace the shared namespace
+	 * @return the merged tree model
+	 * @throws IllegalArgumentException if a tree lacks the shared namespace, or the
+	 *                                  trees have another namespace in common
+	 */
+	public static TinyTree merge(TinyTree left, TinyTree right, String namespace) throws IllegalArgumentException {
+		final Visitor visitor = new Visitor(false);
+		merge(left, right, namespace, visitor);
+		return visitor.buildProjected();
+	}
+
+	/**
+	 * Merges two tree models on a namespace they share, passing the merged mapping
+	 * to a visitor.
+	 *
+	 * <p>The visitor receives the mapping like from a parser; if it is a
+	 * {@link FilteringTinyVisitor}, the children of the elements it rejects are skipped.
+	 *
+	 * @param left      the left tree model
+	 * @param right     the right tree model
+	 * @param namespace the shared namespace
+	 * @param visitor   the visitor
+	 * @throws IllegalArgumentException if a tree lacks the shared namespace, or the
+	 *                                  trees have another namespace in common
+	 * @see #merge(TinyTree, TinyTree, String)
+	 */
+	public static void merge(TinyTree left, TinyTree right, String namespace, TinyVisitor visitor) throws IllegalArgumentException {
+		TreeMerger.merge(left, right, namespace, visitor);
+	}
+
+	/**
+	 * Merges two UTF-8 encoded Tiny V2 mappings whose classes are sorted by their
+	 * names in a shared namespace, passing the merged mapping to a visitor.
+	 *
+	 * <p>The mappings are merged as by {@link #merge(TinyTree, TinyTree, String)}, but
+	 * the classes are passed on in the order of their shared names. Each buffer is
+	 * read twice: once for the class names, which are needed to move descriptors
+	 * between namespaces, and once class by class alongside the other buffer. Only
+	 * the class names and one class of each mapping are held in memory.
+	 *
+	 * <p>The buffers are handled as in {@link TinyV2Factory#visit(ByteBuffer, TinyVisitor)}.
+	 *
+	 * @param left      the buffer that holds the left mapping
+	 * @param right     the buffer that holds the right mapping
+	 * @param namespace the shared namespace
+	 * @param visitor   the visitor
+	 * @throws MappingParseException    if a mapping parsing error is encountered
+	 * @throws IllegalArgumentException if a mapping lacks the shared namespace, the
+	 *                                  mappings have another namespace in common, or
+	 *                                  a mapping is not sorted
+	 */
+	public static void mergeSorted(ByteBuffer left, ByteBuffer right, String namespace, TinyVisitor visitor) throws MappingParseException, IllegalArgumentException {
+		TreeMerger.mergeSorted(left, right, namespace, visitor);
+	}
+
+	/**
+	 * Compares two tree models, passing their differences to a visitor as they are
+	 * found.
+	 *
+	 * <p>Classes, fields, methods and parameters are matched by their keys in the
+	 * given namespace, which both trees must have, and compared in every other
+	 * namespace the trees share. The elements of the new tree are hashed by their
+	 * keys, so the comparison takes time linear in the size of the trees. Besides
+	 * the class map of the new tree, only the hashes of the current class are
+	 * held, so large diffs can be consumed as they are found. Changes are
+	 * reported in the order of the old tree, followed by the additions in the order
+	 * of the new tree.
+	 *
+	 * @param before    the old tree model
+	 * @param after     the new tree model
+	 * @param namespace the namespace whose names identify the elements
+	 * @param visitor   the visitor
+	 * @throws IllegalArgumentException if a tree lacks the namespace
+	 * @see TreeDiffVisitor
+	 */
+	public static void diff(TinyTree before, TinyTree after, String namespace, TreeDiffVisitor visitor) throws IllegalArgumentException {
+		TreeDiffer.diff(before, after, namespace, visitor);
+	}
+
+	/**
+	 * Loads a tree model from a v1 or v2 mapping file, through a binary cache.
+	 *
+	 * <p>The cache file holds the SHA-256 hash of the mapping file content and the
+	 * binary form of its tree. If the hash matches, the tree is loaded from the cache;
+	 * otherwise, the mapping file is parsed and the cache is written again. A cache
+	 * which cannot be read is replaced; if the cache cannot be written, the parsed
+	 * tree is still returned.
+	 *
+	 * @param mappings the mapping file
+	 * @param cache    the cache file, which may not exist yet
+	 * @return the built reader model
+	 * @throws IOException           if the mapping file cannot be read
+	 * @throws MappingParseException if there is an issue with the v2 format
+	 */
+	public static TinyTree loadCached(Path mappings, Path cache) throws IOException, MappingParseException {
+		return TreeCache.load(mappings, cache);
 	}
 
 	private TinyMappingFactory() {
 	}
 
-	private static final class Visitor implements TinyVisitor {
+	private static final class Visitor implements FilteringTinyVisitor {
 		private static final MappedImpl SLIM_DUMMY = new MappedImpl(s -> 0, new String[0]) {
 		};
 		private final boolean slim;
+		private final StringPool pool;
+		private final @Nullable List<String> projectedNamespaces;
+		private int @MonotonicNonNull [] projection;
 		private @MonotonicNonNull TinyMetadata metadata;
 		private @MonotonicNonNull ToIntFunction<String> namespaceMapper;
 		private final Map<String, ClassImpl> classNames = new HashMap<>();
 		private final Collection<ClassDef> classes = new ArrayList<>();
-		private final DescriptorMapper descriptorMapper = new DescriptorMapper(classNames);
+		private final DescriptorMapper descriptorMapper;
 		private final Deque<MappedImpl> stack = new ArrayDeque<>(4);
 		private boolean pushedComment = false;
 		private @MonotonicNonNull ClassImpl inClass = null;
 		private @MonotonicNonNull MethodImpl inMethod = null;
 
 		Visitor(boolean slim) {
+			this(slim, StringPool.NONE, null, null);
+		}
+
+		Visitor(boolean slim, StringPool pool) {
+			this(slim, pool, null, null);
+		}
+
+		Visitor(boolean slim, StringPool pool, DescriptorMapper descriptorMapper) {
+			this(slim, pool, null, descriptorMapper);
+		}
+
+		Visitor(boolean slim, List<String> projectedNamespaces) {
+			this(slim, StringPool.NONE, projectedNamespaces, null);
+		}
+
+		private Visitor(boolean slim, StringPool pool, @Nullable List<String> projectedNamespaces, @Nullable DescriptorMapper descriptorMapper) {
 			this.slim = slim;
+			this.pool = pool;
+			this.projectedNamespaces = projectedNamespaces;
+			this.descriptorMapper = descriptorMapper == null ? new DescriptorMapper(classNames) : descriptorMapper;
+		}
+
+		@Override
+		public boolean allowsGetterReuse() {
+			return true; // names are copied out in the push calls
 		}
 
 		@Override
 		public void start(TinyMetadata metadata) {
+			if (projectedNamespaces != null) {
+				this.projection = TreeMetadata.indices(metadata, projectedNamespaces);
+				metadata = TreeMetadata.withNamespaces(metadata, projectedNamespaces);
+			}
 			this.metadata = metadata;
 			this.namespaceMapper = metadata::index;
 		}
 
+		private String[] names(MappingGetter name, StringPool.Category category) {
+			final String[] ret = projection == null ? name.getRawNames() : MappedImpl.project(name.getRawNames(), projection);
+			if (pool != StringPool.NONE) {
+				for (int i = 0; i < ret.length; i++) {
+					ret[i] = pool.intern(category, ret[i]);
+				}
+			}
+			return ret;
+		}
+
+		/**
+		 * Builds the tree, moving descriptors and class name keys to the first kept namespace.
+		 */
+		Tree buildProjected() {
+			if (projection != null && projection[0] != 0) {
+				// the class names are still keyed in the first namespace of the file
+				DescriptorMapper sourceMapper = new DescriptorMapper(new HashMap<>(classNames));
+				classNames.clear();
+				for (ClassDef each : classes) {
+					ClassImpl clz = (ClassImpl) each;
+					classNames.putIfAbsent(clz.getName(0), clz);
+					for (FieldDef field : clz.fields) {
+						FieldImpl impl = (FieldImpl) field;
+						impl.signature = sourceMapper.mapDescriptor(0, impl.signature);
+					}
+					for (MethodDef method : clz.methods) {
+						MethodImpl impl = (MethodImpl) method;
+						impl.signature = sourceMapper.mapDescriptor(0, impl.signature);
+					}
+				}
+			}
+			return new Tree(metadata, classNames, classes, descriptorMapper);
+		}
+
 		@Override
 		public void pushClass(MappingGetter name) {
-			ClassImpl clz = new ClassImpl(namespaceMapper, name.getRawNames());
+			ClassImpl clz = new ClassImpl(namespaceMapper, names(name, StringPool.Category.CLASS_NAME));
 			classes.add(clz);
-			classNames.put(name.get(0), clz);
+			classNames.putIfAbsent(projection == null ? clz.getName(0) : name.get(0), clz);
 			inClass = clz;
 			stack.addLast(clz);
 		}
@@ -232,7 +775,7 @@ public final class TinyMappingFactory {
 			if (inClass == null)
 				throw new IllegalStateException();
 
-			FieldImpl field = new FieldImpl(descriptorMapper, namespaceMapper, name.getRawNames(), descriptor);
+			FieldImpl field = new FieldImpl(descriptorMapper, namespaceMapper, names(name, StringPool.Category.NAME), pool.intern(StringPool.Category.FIELD_DESCRIPTOR, descriptor));
 			inClass.fields.add(field);
 			stack.addLast(field);
 		}
@@ -242,12 +785,24 @@ public final class TinyMappingFactory {
 			if (inClass == null)
 				throw new IllegalStateException();
 
-			MethodImpl method = new MethodImpl(descriptorMapper, namespaceMapper, name.getRawNames(), descriptor);
+			MethodImpl method = new MethodImpl(descriptorMapper, namespaceMapper, names(name, StringPool.Category.NAME), pool.intern(StringPool.Category.METHOD_DESCRIPTOR, descriptor));
 			inClass.methods.add(method);
 			inMethod = method;
 			stack.addLast(method);
 		}
 
+		@Override
+		public boolean visitField(MappingGetter name, String descriptor) {
+			pushField(name, descriptor);
+			return !slim;
+		}
+
+		@Override
+		public boolean visitMethod(MappingGetter name, String descriptor) {
+			pushMethod(name, descriptor);
+			return !slim; // parameters, local variables and comments are dropped anyway
+		}
+
 		@Override
 		public void pushParameter(MappingGetter name, int localVariableIndex) {
 			if (inMethod == null) {
@@ -259,7 +814,7 @@ public final class TinyMappingFactory {
 				return;
 			}
 
-			ParameterImpl par = new ParameterImpl(namespaceMapper, name.getRawNames(), localVariableIndex);
+			ParameterImpl par = new ParameterImpl(namespaceMapper, names(name, StringPool.Category.NAME), localVariableIndex);
 			inMethod.parameters.add(par);
 			stack.addLast(par);
 		}
@@ -275,7 +830,7 @@ public final class TinyMappingFactory {
 				return;
 			}
 
-			LocalVariableImpl var = new LocalVariableImpl(namespaceMapper, name.getRawNames(), localVariableIndex, localVariableStartOffset, localVariableTableIndex);
+			LocalVariableImpl var = new LocalVariableImpl(namespaceMapper, names(name, StringPool.Category.NAME), localVariableIndex, localVariableStartOffset, localVariableTableIndex);
 			inMethod.localVariables.add(var);
 			stack.addLast(var);
 		}
@@ -309,17 +864,21 @@ public final class TinyMappingFactory {
 		}
 	}
 
-	private static final class Tree implements TinyTree {
+	static final class Tree implements TinyTree, DescriptorCache.Holder {
 
 		private final TinyMetadata metadata;
 		private final Map<String, ClassDef> map;
 		private final Collection<ClassDef> classes;
+		private final DescriptorMapper descriptorMapper;
+		private final ClassMaps classMaps;
 
 		@SuppressWarnings("unchecked")
-		Tree(TinyMetadata metadata, Map<String, ClassImpl> map, Collection<ClassDef> classes) {
+		Tree(TinyMetadata metadata, Map<String, ClassImpl> map, Collection<ClassDef> classes, DescriptorMapper descriptorMapper) {
 			this.metadata = metadata;
 			this.map = (Map<String, ClassDef>) (Map<?, ?>) map;
 			this.classes = classes;
+			this.descriptorMapper = descriptorMapper;
+			this.classMaps = new ClassMaps(this, metadata.getNamespaces().size());
 		}
 
 		@Override
@@ -327,11 +886,26 @@ public final class TinyMappingFactory {
 			return metadata;
 		}
 
+		@Override
+		public void setDescriptorCache(@Nullable DescriptorCache cache) {
+			descriptorMapper.cache = cache;
+		}
+
+		@Override
+		public @Nullable DescriptorCache getDescriptorCache() {
+			return descriptorMapper.cache;
+		}
+
 		@Override
 		public Map<String, ClassDef> getDefaultNamespaceClassMap() {
 			return map;
 		}
 
+		@Override
+		public Map<String, ClassDef> getClassMap(int namespace) {
+			return classMaps.get(namespace);
+		}
+
 		@Override
 		public Collection<ClassDef> getClasses() {
 			return classes;
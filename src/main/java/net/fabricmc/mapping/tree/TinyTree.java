@@ -36,10 +36,65 @@ public interface TinyTree {
 	/**
 	 * Gets the map from the default namespace class names to the class mappings.
 	 *
+	 * <p>If several classes have the same name, the first one is mapped. Trees
+	 * from {@link TinyMappingFactory} map descriptors through the classes of this
+	 * map when the first descriptor is mapped; later changes to it are not
+	 * reflected in descriptors.
+	 *
 	 * @return the name to class map
 	 */
 	Map<String, ClassDef> getDefaultNamespaceClassMap();
 
+	/**
+	 * Gets the map from the class names in a namespace to the class mappings.
+	 *
+	 * <p>If several classes have the same name in the namespace, the first one
+	 * is mapped.
+	 *
+	 * @param namespace the namespace of the class names
+	 * @return the name to class map
+	 * @throws IllegalArgumentException if the namespace does not exist
+	 * @see #getClassMap(int)
+	 */
+	default Map<String, ClassDef> getClassMap(String namespace) {
+		final int index = getMetadata().index(namespace);
+		if (index < 0)
+			throw new IllegalArgumentException("Unknown namespace: " + namespace);
+		return getClassMap(index);
+	}
+
+	/**
+	 * Gets the map from the class names in a namespace to the class mappings.
+	 *
+	 * <p>The map of the first namespace is {@link #getDefaultNamespaceClassMap()}.
+	 * The default implementation builds the map of any other namespace on every
+	 * call. Trees from {@link TinyMappingFactory} build each map once, on first
+	 * use, and share it between threads; such a map does not reflect later changes
+	 * to the classes of the tree.
+	 *
+	 * @param namespace the index of the namespace of the class names
+	 * @return the name to class map
+	 * @throws IllegalArgumentException if the namespace does not exist
+	 */
+	default Map<String, ClassDef> getClassMap(int namespace) {
+		ClassMaps.checkNamespace(this, namespace);
+		return namespace == 0 ? getDefaultNamespaceClassMap() : ClassMaps.build(getClasses(), namespace);
+	}
+
+	/**
+	 * Builds the class maps of all namespaces ahead of use, such as to warm up a
+	 * tree before it serves lookups.
+	 *
+	 * <p>This has no lasting effect on trees which do not keep their class maps.
+	 *
+	 * @see #getClassMap(int)
+	 */
+	default void buildClassMaps() {
+		for (int i = 0; i < getMetadata().getNamespaces().size(); i++) {
+			getClassMap(i);
+		}
+	}
+
 	/**
 	 * Gets all the classes in the mappings.
 	 *
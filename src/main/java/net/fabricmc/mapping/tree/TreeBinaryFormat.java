@@ -0,0 +1,334 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.tree;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.fabricmc.mapping.reader.v2.TinyMetadata;
+
+/**
+ * The binary form of a tree.
+ *
+ * <p>The layout is:
+ * <pre>
+ * magic "TNYB", format version
+ * string count, strings as UTF-8 byte count and bytes
+ * major version, minor version
+ * namespace count, namespace strings
+ * property count, property key strings and optional value strings
+ * class count, classes
+ * </pre>
+ * Every number except the magic is a varint, and signed numbers are
+ * zigzag-encoded. Names, descriptors and comments refer to the deduplicated string
+ * table; optional strings are stored as their index plus one, or zero if absent.
+ *
+ * <p>A class is stored as its raw names and comment, its fields, and its methods
+ * with their parameters and local variables. Descriptors are stored in the first
+ * namespace.
+ */
+final class TreeBinaryFormat {
+
+	private static final int MAGIC = 'T' << 24 | 'N' << 16 | 'Y' << 8 | 'B';
+	private static final int VERSION = 2;
+
+	static void write(TinyTree tree, OutputStream out) throws IOException {
+		final TinyMetadata metadata = tree.getMetadata();
+		final Writer body = new Writer(metadata.getNamespaces());
+		final Collection<ClassDef> classes = tree.getClasses();
+		for (ClassDef clz : classes) {
+			body.writeClass(clz);
+		}
+
+		final Writer header = new Writer(body.strings);
+		header.writeSigned(metadata.getMajorVersion());
+		header.writeSigned(metadata.getMinorVersion());
+		header.writeInt(body.namespaces.size());
+		for (String namespace : body.namespaces) {
+			header.writeInt(header.string(namespace));
+		}
+		header.writeInt(metadata.getProperties().size());
+		for (Map.Entry<String, @Nullable String> entry : metadata.getProperties().entrySet()) {
+			header.writeInt(header.string(entry.getKey()));
+			header.writeOptional(entry.getValue());
+		}
+		header.writeInt(classes.size());
+
+		// the string table comes first, so it is written once all strings are collected
+		final Writer table = new Writer(Collections.emptyMap());
+		table.writeFixed(MAGIC);
+		table.writeInt(VERSION);
+		table.writeInt(body.strings.size());
+		for (String string : body.strings.keySet()) {
+			final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			table.writeInt(bytes.length);
+			table.out.write(bytes, 0, bytes.length);
+		}
+		table.out.writeTo(out);
+		header.out.writeTo(out);
+		body.out.writeTo(out);
+	}
+
+	static TinyTree read(ByteBuffer buffer) throws IllegalArgumentException {
+		try {
+			return new Reader(buffer.duplicate()).read();
+		} catch (BufferUnderflowException | IndexOutOfBoundsException ex) {
+			throw new IllegalArgumentException("Truncated or corrupt binary tree!", ex);
+		}
+	}
+
+	private TreeBinaryFormat() {
+	}
+
+	private static final class Writer {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final Map<String, Integer> strings;
+		final List<String> namespaces;
+
+		Writer(List<String> namespaces) {
+			this.strings = new LinkedHashMap<>();
+			this.namespaces = namespaces;
+			string(""); // the most common one
+		}
+
+		Writer(Map<String, Integer> strings) { // shares the string table
+			this.strings = strings;
+			this.namespaces = Collections.emptyList();
+		}
+
+		int string(String string) {
+			Integer ret = strings.get(string);
+			if (ret == null) {
+				ret = strings.size();
+				strings.put(string, ret);
+			}
+			return ret;
+		}
+
+		void writeFixed(int value) {
+			out.write(value >>> 24);
+			out.write(value >>> 16);
+			out.write(value >>> 8);
+			out.write(value);
+		}
+
+		void writeInt(int value) {
+			while ((value & ~0x7F) != 0) {
+				out.write(value & 0x7F | 0x80);
+				value >>>= 7;
+			}
+			out.write(value);
+		}
+
+		void writeSigned(int value) {
+			writeInt(value << 1 ^ value >> 31);
+		}
+
+		void writeOptional(@Nullable String string) {
+			writeInt(string == null ? 0 : string(string) + 1);
+		}
+
+		void writeMapped(Mapped mapped) {
+			for (String name : MappedImpl.rawNames(mapped, namespaces)) {
+				writeInt(string(name));
+			}
+			writeOptional(mapped.getComment());
+		}
+
+		void writeDescriptored(Descriptored descriptored) {
+			writeMapped(descriptored);
+			writeInt(string(DescriptoredImpl.signature(descriptored, namespaces)));
+		}
+
+		void writeClass(ClassDef clz) {
+			writeMapped(clz);
+			writeInt(clz.getFields().size());
+			for (FieldDef field : clz.getFields()) {
+				writeDescriptored(field);
+			}
+			writeInt(clz.getMethods().size());
+			for (MethodDef method : clz.getMethods()) {
+				writeDescriptored(method);
+				writeInt(method.getParameters().size());
+				for (ParameterDef par : method.getParameters()) {
+					writeMapped(par);
+					writeInt(par.getLocalVariableIndex());
+				}
+				writeInt(method.getLocalVariables().size());
+				for (LocalVariableDef var : method.getLocalVariables()) {
+					writeMapped(var);
+					writeInt(var.getLocalVariableIndex());
+					writeInt(var.getLocalVariableStartOffset());
+					writeSigned(var.getLocalVariableTableIndex());
+				}
+			}
+		}
+	}
+
+	private static final class Reader {
+		private final ByteBuffer buffer;
+		private String[] strings = new String[0];
+		private int namespaceCount;
+		private ToIntFunction<String> namespaceMapper = s -> -1;
+		private final Map<String, ClassImpl> classNames = new HashMap<>();
+		private final DescriptorMapper descriptorMapper = new DescriptorMapper(classNames);
+
+		Reader(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		TinyTree read() {
+			if (buffer.remaining() < 4 || buffer.getInt() != MAGIC)
+				throw new IllegalArgumentException("Not a binary tree!");
+			final int version = readInt();
+			if (version != VERSION)
+				throw new IllegalArgumentException("Unsupported binary tree version " + version + "!");
+
+			strings = new String[readCount()];
+			final byte[] bytes = buffer.hasArray() ? buffer.array() : new byte[0];
+			for (int i = 0; i < strings.length; i++) {
+				final int length = readCount();
+				if (buffer.hasArray()) {
+					strings[i] = new String(bytes, buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+					buffer.position(buffer.position() + length);
+				} else {
+					final byte[] string = new byte[length];
+					buffer.get(string);
+					strings[i] = new String(string, StandardCharsets.UTF_8);
+				}
+			}
+
+			final int major = readSigned();
+			final int minor = readSigned();
+			namespaceCount = readCount();
+			final String[] namespaces = new String[namespaceCount];
+			for (int i = 0; i < namespaceCount; i++) {
+				namespaces[i] = readString();
+			}
+			final int propertyCount = readCount();
+			final Map<String, @Nullable String> properties = new LinkedHashMap<>();
+			for (int i = 0; i < propertyCount; i++) {
+				properties.put(readString(), readOptional());
+			}
+			final TreeMetadata metadata = new TreeMetadata(major, minor, Arrays.asList(namespaces), Collections.unmodifiableMap(properties));
+			namespaceMapper = metadata::index;
+
+			final int classCount = readCount();
+			final List<ClassDef> classes = new ArrayList<>(classCount);
+			for (int i = 0; i < classCount; i++) {
+				ClassImpl clz = readClass();
+				classes.add(clz);
+				classNames.putIfAbsent(clz.getName(0), clz);
+			}
+			return new TinyMappingFactory.Tree(metadata, classNames, classes, descriptorMapper);
+		}
+
+		private ClassImpl readClass() {
+			final ClassImpl clz = new ClassImpl(namespaceMapper, readNames());
+			clz.setComment(readOptional());
+			for (int i = readCount(); i > 0; i--) {
+				final String[] names = readNames();
+				final @Nullable String comment = readOptional();
+				final FieldImpl field = new FieldImpl(descriptorMapper, namespaceMapper, names, readString());
+				field.setComment(comment);
+				clz.fields.add(field);
+			}
+			for (int i = readCount(); i > 0; i--) {
+				final String[] names = readNames();
+				final @Nullable String comment = readOptional();
+				final MethodImpl method = new MethodImpl(descriptorMapper, namespaceMapper, names, readString());
+				method.setComment(comment);
+				for (int j = readCount(); j > 0; j--) {
+					final String[] parNames = readNames();
+					final @Nullable String parComment = readOptional();
+					final ParameterImpl par = new ParameterImpl(namespaceMapper, parNames, readInt());
+					par.setComment(parComment);
+					method.parameters.add(par);
+				}
+				for (int j = readCount(); j > 0; j--) {
+					final String[] varNames = readNames();
+					final @Nullable String varComment = readOptional();
+					final LocalVariableImpl var = new LocalVariableImpl(namespaceMapper, varNames, readInt(), readInt(), readSigned());
+					var.setComment(varComment);
+					method.localVariables.add(var);
+				}
+				clz.methods.add(method);
+			}
+			return clz;
+		}
+
+		private String[] readNames() {
+			final String[] ret = new String[namespaceCount];
+			for (int i = 0; i < ret.length; i++) {
+				ret[i] = readString();
+			}
+			return ret;
+		}
+
+		private String readString() {
+			return strings[readInt()];
+		}
+
+		private @Nullable String readOptional() {
+			final int index = readInt();
+			return index == 0 ? null : strings[index - 1];
+		}
+
+		private int readInt() {
+			int ret = 0;
+			for (int shift = 0; ; shift += 7) {
+				final byte b = buffer.get();
+				ret |= (b & 0x7F) << shift;
+				if (b >= 0)
+					return ret;
+				if (shift >= 28)
+					throw new IllegalArgumentException("Malformed varint!");
+			}
+		}
+
+		/**
+		 * Reads a count of elements or bytes, which cannot exceed the remaining bytes
+		 * as every element takes at least one.
+		 */
+		private int readCount() {
+			final int ret = readInt();
+			if (ret < 0 || ret > buffer.remaining())
+				throw new IllegalArgumentException("Truncated or corrupt binary tree!");
+			return ret;
+		}
+
+		private int readSigned() {
+			final int raw = readInt();
+			return raw >>> 1 ^ -(raw & 1);
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.tree;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Caches the binary form of trees next to the hash of their mapping file.
+ *
+ * <p>A cache file holds the length of the hash as a byte, the hash, and then the
+ * binary form of the tree.
+ */
+final class TreeCache {
+
+	private static final String HASH_ALGORITHM = "SHA-256";
+	private static final byte[] V1_HEADER = "v1\t".getBytes(StandardCharsets.US_ASCII);
+
+	static TinyTree load(Path mappings, Path cache) throws IOException {
+		final byte[] content = Files.readAllBytes(mappings);
+		final byte[] hash = hash(content);
+		if (Files.isRegularFile(cache)) {
+			try {
+				final ByteBuffer cached = ByteBuffer.wrap(Files.readAllBytes(cache));
+				if (skipHash(cached, hash)) {
+					return TreeBinaryFormat.read(cached);
+				}
+			} catch (IOException | IllegalArgumentException ex) {
+				// the cache is broken, so it is replaced below
+			}
+		}
+
+		final TinyTree tree = parse(ByteBuffer.wrap(content));
+		try {
+			write(cache, hash, tree);
+		} catch (IOException ex) {
+			// the cache only speeds up the next load
+		}
+		return tree;
+	}
+
+	private static TinyTree parse(ByteBuffer content) {
+		for (int i = 0; i < V1_HEADER.length; i++) {
+			if (i >= content.limit() || content.get(i) != V1_HEADER[i]) {
+				return TinyMappingFactory.load(content);
+			}
+		}
+		return TinyMappingFactory.loadLegacy(content);
+	}
+
+	private static byte[] hash(byte[] content) {
+		try {
+			return MessageDigest.getInstance(HASH_ALGORITHM).digest(content);
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(HASH_ALGORITHM + " is always supported!", ex);
+		}
+	}
+
+	/**
+	 * Moves past the hash of a cache if it is the expected one.
+	 */
+	private static boolean skipHash(ByteBuffer cached, byte[] hash) {
+		if (!cached.hasRemaining() || cached.get() != hash.length || cached.remaining() < hash.length)
+			return false;
+		for (byte b : hash) {
+			if (cached.get() != b)
+				return false;
+		}
+		return true;
+	}
+
+	private static void write(Path cache, byte[] hash, TinyTree tree) throws IOException {
+		final Path directory = cache.toAbsolutePath().getParent();
+		if (directory != null) {
+			Files.createDirectories(directory);
+		}
+		// write next to the cache and move it over, so a cache is never seen half written
+		final Path temp = directory == null ? Files.createTempFile(cache.getFileName().toString(), ".tmp") : Files.createTempFile(directory, cache.getFileName().toString(), ".tmp");
+		try {
+			try (OutputStream out = Files.newOutputStream(temp)) {
+				out.write(hash.length);
+				out.write(hash);
+				TreeBinaryFormat.write(tree, out);
+			}
+			try {
+				Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException ex) {
+				Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private TreeCache() {
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mapping.tree;
+
+/**
+ * A visitor that receives the differences between two tree models.
+ *
+ * <p>Elements are matched by their names in a key namespace, with the descriptors
+ * in it for fields and methods, and the local variable index for parameters. A
+ * change of these keys shows as a removed element and an added one. Matched
+ * elements are renamed if their names differ in another namespace of both trees.
+ *
+ * <p>The members of an added or removed class, and the parameters of an added or
+ * removed method, are not reported on their own. The owner passed with a change is
+ * the one from the tree the element is from; for renames, it is the one from the
+ * new tree. Elements with the same key in a tree are matched in their order.
+ *
+ * <p>Local variables are not compared.
+ *
+ * @see TinyMappingFactory#diff(TinyTree, TinyTree, String, TreeDiffVisitor)
+ */
+public interface TreeDiffVisitor {
+
+	/**
+	 * Visits a class only in the new tree.
+	 *
+	 * @param added the added class
+	 */
+	default void classAdded(ClassDef added) {
+	}
+
+	/**
+	 * Visits a class only in the old tree.
+	 *
+	 * @param removed the removed class
+	 */
+	default void classRemoved(ClassDef removed) {
+	}
+
+	/**
+	 * Visits a class with another name in a namespace.
+	 *
+	 * <p>This is called once per namespace the name changed in.
+	 *
+	 * @param before    the class in the old tree
+	 * @param after     the class in the new tree
+	 * @param namespace the namespace of the changed name
+	 */
+	default void classRenamed(ClassDef before, ClassDef after, String namespace) {
+	}
+
+	/**
+	 * Visits a field only in the new tree.
+	 *
+	 * @param owner the class of the field
+	 * @param added the added field
+	 */
+	default void fieldAdded(ClassDef owner, FieldDef added) {
+	}
+
+	/**
+	 * Visits a field only in the old tree.
+	 *
+	 * @param owner   the class of the field
+	 * @param removed the removed field
+	 */
+	default void fieldRemoved(ClassDef owner, FieldDef removed) {
+	}
+
+	/**
+	 * Visits a field with another name in a namespace.
+	 *
+	 * @param owner     the class of the field in the new tree
+	 * @param before    the field in the old tree
+	 * @param after     the field in the new tree
+	 * @param namespace the namespace of the changed name
+	 * @see #classRenamed(ClassDef, ClassDef, String)
+	 */
+	default void fieldRenamed(ClassDef owner, FieldDef before, FieldDef after, String namespace) {
+	}
+
+	/**
+	 * Visits a method only in the new tree.
+	 *
+	 * @param owner the class of the method
+	 * @param added the added method
+	 */
+	default void methodAdded(ClassDef owner, MethodDef added) {
+	}
+
+	/**
+	 * Visits a method only in the old tree.
+	 *
+	 * @param owner   the class of the method
+	 * @param removed the removed method
+	 */
+	default void methodRemoved(ClassDef owner, MethodDef removed) {
+	}
+
+	/**
+	 * Visits a method with another name in a namespace.
+	 *
+	 * @param owner     the class of the method in the new tree
+	 * @param before    the method in the old tree
+	 * @param after     the method in the new tree
+	 * @param namespace the namespace of the changed name
+	 * @see #classRenamed(ClassDef, ClassDef, String)
+	 */
+	default void methodRenamed(ClassDef owner, MethodDef before, MethodDef after, String namespace) {
+	}
+
+	/**
+	 * Visits a parameter only in the new tree.
+	 *
+	 * @param owner the method of the parameter
+	 * @param added the added parameter
+	 */
+	default void parameterAdded(MethodDef owner, ParameterDef added) {
+	}
+
+	/**
+	 * Visits a parameter only in the old tree.
+	 *
+	 * @param owner   the method of the parameter
+	 * @param removed the removed parameter
+	 */
+	default void parameterRemoved(MethodDef owner, ParameterDef removed) {
+	}
+
+	/**
+	 * Visits a parameter with another name in a namespace.
+	 *
+	 * @param owner     the method of the parameter in the new tree
+	 * @param before    the parameter in the old tree
+	 * @param after     the parameter in the new tree
+	 * @param namespace the namespace of the changed name
+	 * @see #classRenamed(ClassDef, ClassDef, String)
+	 */
+	default void parameterRenamed(MethodDef owner, ParameterDef before, ParameterDef after, String namespace) {
+	}
+
+	/**
+	 * Visits a matched element whose comment was added, removed or changed.
+	 *
+	 * <p>The comments are the ones from {@link Mapped#getComment()}.
+	 *
+	 * @param before the element in the old tree
+	 * @param after  the element in the new tree
+	 */
+	default void commentChanged(Mapped before, Mapped after) {
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mapping.tree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.fabricmc.mapping.reader.v2.TinyMetadata;
+
+/**
+ * Compares two trees element by element.
+ *
+ * <p>The elements of the new tree are hashed by their keys in the key namespace,
+ * per class and per method, so each element of the old tree is matched in constant
+ * time and the whole comparison is linear in the size of the trees.
+ */
+final class TreeDiffer {
+
+	private final TreeDiffVisitor visitor;
+	private final int beforeKey;
+	private final int afterKey;
+	// the namespaces compared for renames, other than the key namespace
+	private final List<String> namespaces = new ArrayList<>();
+	private final List<Integer> beforeNamespaces = new ArrayList<>();
+	private final List<Integer> afterNamespaces = new ArrayList<>();
+
+	private TreeDiffer(TinyMetadata before, TinyMetadata after, String namespace, TreeDiffVisitor visitor) {
+		this.visitor = visitor;
+		this.beforeKey = index(before, namespace);
+		this.afterKey = index(after, namespace);
+		for (String each : before.getNamespaces()) {
+			final int afterIndex = after.index(each);
+			if (afterIndex >= 0 && !each.equals(namespace)) {
+				namespaces.add(each);
+				beforeNamespaces.add(before.index(each));
+				afterNamespaces.add(afterIndex);
+			}
+		}
+	}
+
+	private static int index(TinyMetadata metadata, String namespace) {
+		final int ret = metadata.index(namespace);
+		if (ret < 0)
+			throw new IllegalArgumentException("Unknown namespace: " + namespace);
+		return ret;
+	}
+
+	static void diff(TinyTree before, TinyTree after, String namespace, TreeDiffVisitor visitor) {
+		final TreeDiffer differ = new TreeDiffer(before.getMetadata(), after.getMetadata(), namespace, visitor);
+		// the classes of one pass, as the classes of some trees are views created on access
+		final Unmatched<String, ClassDef> classes = new Unmatched<>(after.getClasses(), clz -> clz.getName(differ.afterKey));
+		for (ClassDef clz : before.getClasses()) {
+			final @Nullable ClassDef match = classes.remove(clz.getName(differ.beforeKey));
+			if (match == null) {
+				visitor.classRemoved(clz);
+			} else {
+				differ.diffClass(clz, match);
+			}
+		}
+		classes.forEach(visitor::classAdded);
+	}
+
+	private void diffClass(ClassDef before, ClassDef after) {
+		for (int i = 0; i < namespaces.size(); i++) {
+			if (!before.getName(beforeNamespaces.get(i)).equals(after.getName(afterNamespaces.get(i)))) {
+				visitor.classRenamed(before, after, namespaces.get(i));
+			}
+		}
+		diffComment(before, after);
+
+		final Unmatched<String, FieldDef> fields = new Unmatched<>(after.getFields(), field -> key(field, afterKey));
+		for (FieldDef field : before.getFields()) {
+			final @Nullable FieldDef match = fields.remove(key(field, beforeKey));
+			if (match == null) {
+				visitor.fieldRemoved(before, field);
+				continue;
+			}
+			for (int i = 0; i < namespaces.size(); i++) {
+				if (!field.getName(beforeNamespaces.get(i)).equals(match.getName(afterNamespaces.get(i)))) {
+					visitor.fieldRenamed(after, field, match, namespaces.get(i));
+				}
+			}
+			diffComment(field, match);
+		}
+		fields.forEach(field -> visitor.fieldAdded(after, field));
+
+		final Unmatched<String, MethodDef> methods = new Unmatched<>(after.getMethods(), method -> key(method, afterKey));
+		for (MethodDef method : before.getMethods()) {
+			final @Nullable MethodDef match = methods.remove(key(method, beforeKey));
+			if (match == null) {
+				visitor.methodRemoved(before, method);
+				continue;
+			}
+			for (int i = 0; i < namespaces.size(); i++) {
+				if (!method.getName(beforeNamespaces.get(i)).equals(match.getName(afterNamespaces.get(i)))) {
+					visitor.methodRenamed(after, method, match, namespaces.get(i));
+				}
+			}
+			diffComment(method, match);
+			diffParameters(method, match);
+		}
+		methods.forEach(method -> visitor.methodAdded(after, method));
+	}
+
+	private void diffParameters(MethodDef before, MethodDef after) {
+		final Collection<ParameterDef> afterParameters = after.getParameters();
+		if (before.getParameters().isEmpty() && afterParameters.isEmpty()) {
+			return;
+		}
+		final Unmatched<Integer, ParameterDef> parameters = new Unmatched<>(afterParameters, ParameterDef::getLocalVariableIndex);
+		for (ParameterDef parameter : before.getParameters()) {
+			final @Nullable ParameterDef match = parameters.remove(parameter.getLocalVariableIndex());
+			if (match == null) {
+				visitor.parameterRemoved(before, parameter);
+				continue;
+			}
+			for (int i = 0; i < namespaces.size(); i++) {
+				if (!parameter.getName(beforeNamespaces.get(i)).equals(match.getName(afterNamespaces.get(i)))) {
+					visitor.parameterRenamed(after, parameter, match, namespaces.get(i));
+				}
+			}
+			diffComment(parameter, match);
+		}
+		parameters.forEach(parameter -> visitor.parameterAdded(after, parameter));
+	}
+
+	private void diffComment(Mapped before, Mapped after) {
+		if (!Objects.equals(before.getComment(), after.getComment())) {
+			visitor.commentChanged(before, after);
+		}
+	}
+
+	private static String key(Descriptored member, int namespace) {
+		// names cannot contain ';'
+		return member.getName(namespace) + ";" + member.getDescriptor(namespace);
+	}
+
+	/**
+	 * The elements of the new tree which are not matched yet, hashed by their keys.
+	 *
+	 * <p>Elements with the same key are matched in their order, so a duplicate is
+	 * left unmatched rather than dropped.
+	 */
+	private static final class Unmatched<K, T> {
+		private final Map<K, T> first;
+		// the later elements of duplicate keys, which are rare
+		private final Map<K, Deque<T>> rest = new LinkedHashMap<>();
+
+		Unmatched(Collection<T> elements, Function<T, K> key) {
+			this.first = new LinkedHashMap<>(elements.size() * 4 / 3 + 1);
+			for (T element : elements) {
+				final K k = key.apply(element);
+				if (first.putIfAbsent(k, element) != null) {
+					rest.computeIfAbsent(k, x -> new ArrayDeque<>()).add(element);
+				}
+			}
+		}
+
+		@Nullable T remove(K key) {
+			final @Nullable T ret = first.remove(key);
+			if (ret != null) {
+				final @Nullable Deque<T> next = rest.get(key);
+				if (next != null) {
+					first.put(key, next.remove());
+					if (next.isEmpty()) {
+						rest.remove(key);
+					}
+				}
+			}
+			return ret;
+		}
+
+		void forEach(Consumer<T> action) {
+			first.values().forEach(action);
+			for (Deque<T> each : rest.values()) {
+				each.forEach(action);
+			}
+		}
+	}
+}
@@ -0,0 +1,970 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.tree;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.fabricmc.mapping.reader.v2.TinyMetadata;
+import net.fabricmc.mapping.util.DescriptorRemapper;
+import net.fabricmc.mapping.util.DescriptorRemapper.ClassLookup;
+
+/**
+ * An index form of a tree, whose records are queried in place.
+ *
+ * <p>Every number is a 4-byte integer, so each record is found by its index alone.
+ * The layout is:
+ * <pre>
+ * magic "TNYI", format version, major version, minor version
+ * namespace, property, string, class, field, method, parameter and local variable counts
+ * namespace strings
+ * property key strings and value strings, or -1
+ * string offsets into the string data, and the end of the string data
+ * class, field, method, parameter and local variable records
+ * string data
+ * </pre>
+ * The strings are sorted by their UTF-8 bytes, so comparing string indices
+ * compares the strings. Every record starts with the raw names and the comment
+ * string, or -1. Classes are sorted by their name in the first namespace, and the
+ * members of a class by name and descriptor in the first namespace. A class is
+ * followed by the start and count of its fields and methods, a field by its
+ * descriptor, a method by its descriptor and the start and count of its parameters
+ * and local variables, a parameter by its local variable index, and a local
+ * variable by its local variable index, start offset and table index.
+ *
+ * <p>The same records back both the trees over an index in a byte buffer and the
+ * compact trees, which hold the numbers in an int array and the strings in a string
+ * array instead. Either way, the records of one kind lie one after another, as an
+ * array of structs, and the elements of the trees are views of them, which are
+ * equal if they view the same record of the same tree.
+ */
+final class TreeIndexFormat {
+
+	private static final int MAGIC = 'T' << 24 | 'N' << 16 | 'Y' << 8 | 'I';
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 12;
+	private static final int NONE = -1;
+	// the numbers after the names and the comment of each record
+	private static final int CLASS_EXTRA = 4;
+	private static final int FIELD_EXTRA = 1;
+	private static final int METHOD_EXTRA = 5;
+	private static final int PARAMETER_EXTRA = 1;
+	private static final int LOCAL_VARIABLE_EXTRA = 3;
+
+	static void write(TinyTree tree, OutputStream out) throws IOException {
+		final Layout layout = new Layout(tree);
+		final DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+		for (int i = 0; i < layout.size; i++) {
+			data.writeInt(layout.ints[i]);
+		}
+		for (String string : layout.strings) {
+			data.write(string.getBytes(StandardCharsets.UTF_8));
+		}
+		data.flush();
+	}
+
+	static TinyTree read(ByteBuffer buffer) throws IllegalArgumentException {
+		try {
+			return new BufferTree(buffer.slice());
+		} catch (IndexOutOfBoundsException ex) {
+			throw new IllegalArgumentException("Truncated or corrupt tree index!", ex);
+		}
+	}
+
+	static TinyTree compact(TinyTree tree) {
+		final Layout layout = new Layout(tree);
+		return new CompactTree(Arrays.copyOf(layout.ints, layout.size), layout.strings);
+	}
+
+	/**
+	 * Compares strings by code points, which is the order of their UTF-8 bytes.
+	 */
+	private static int compare(String left, String right) {
+		int i = 0;
+		int j = 0;
+		while (i < left.length() && j < right.length()) {
+			final int l = left.codePointAt(i);
+			final int r = right.codePointAt(j);
+			if (l != r)
+				return l - r;
+			i += Character.charCount(l);
+			j += Character.charCount(r);
+		}
+		return (left.length() - i) - (right.length() - j);
+	}
+
+	private TreeIndexFormat() {
+	}
+
+	/**
+	 * The numbers and the sorted strings of the index of a tree.
+	 */
+	private static final class Layout {
+		int[] ints = new int[1024];
+		int size;
+		final String[] strings;
+		private final Map<String, Integer> ids;
+		private final List<String> namespaces;
+
+		Layout(TinyTree tree) {
+			final TinyMetadata metadata = tree.getMetadata();
+			this.ids = new HashMap<>();
+			this.namespaces = metadata.getNamespaces();
+
+			// Collect and sort the strings
+			ids.put("", NONE);
+			namespaces.forEach(s -> ids.put(s, NONE));
+			metadata.getProperties().forEach((key, value) -> {
+				ids.put(key, NONE);
+				if (value != null)
+					ids.put(value, NONE);
+			});
+			for (ClassDef clz : tree.getClasses()) {
+				collect(clz);
+				for (FieldDef field : clz.getFields()) {
+					collect(field);
+					ids.put(DescriptoredImpl.signature(field, namespaces), NONE);
+				}
+				for (MethodDef method : clz.getMethods()) {
+					collect(method);
+					ids.put(DescriptoredImpl.signature(method, namespaces), NONE);
+					method.getParameters().forEach(this::collect);
+					method.getLocalVariables().forEach(this::collect);
+				}
+			}
+			strings = ids.keySet().toArray(new String[0]);
+			Arrays.sort(strings, TreeIndexFormat::compare);
+			for (int i = 0; i < strings.length; i++) {
+				ids.put(strings[i], i);
+			}
+
+			// Lay out the records in sections
+			final Layout fields = new Layout(this);
+			final Layout methods = new Layout(this);
+			final Layout parameters = new Layout(this);
+			final Layout localVariables = new Layout(this);
+			final Layout classes = new Layout(this);
+			int fieldCount = 0, methodCount = 0, parameterCount = 0, localVariableCount = 0;
+			for (ClassDef clz : sorted(tree.getClasses())) {
+				classes.addMapped(clz);
+				classes.add(fieldCount);
+				classes.add(clz.getFields().size());
+				classes.add(methodCount);
+				classes.add(clz.getMethods().size());
+				for (FieldDef field : sorted(clz.getFields())) {
+					fields.addMapped(field);
+					fields.addString(DescriptoredImpl.signature(field, namespaces));
+					fieldCount++;
+				}
+				for (MethodDef method : sorted(clz.getMethods())) {
+					methods.addMapped(method);
+					methods.addString(DescriptoredImpl.signature(method, namespaces));
+					methods.add(parameterCount);
+					methods.add(method.getParameters().size());
+					methods.add(localVariableCount);
+					methods.add(method.getLocalVariables().size());
+					methodCount++;
+					for (ParameterDef par : method.getParameters()) {
+						parameters.addMapped(par);
+						parameters.add(par.getLocalVariableIndex());
+						parameterCount++;
+					}
+					for (LocalVariableDef var : method.getLocalVariables()) {
+						localVariables.addMapped(var);
+						localVariables.add(var.getLocalVariableIndex());
+						localVariables.add(var.getLocalVariableStartOffset());
+						localVariables.add(var.getLocalVariableTableIndex());
+						localVariableCount++;
+					}
+				}
+			}
+
+			add(MAGIC);
+			add(VERSION);
+			add(metadata.getMajorVersion());
+			add(metadata.getMinorVersion());
+			add(namespaces.size());
+			add(metadata.getProperties().size());
+			add(strings.length);
+			add(tree.getClasses().size());
+			add(fieldCount);
+			add(methodCount);
+			add(parameterCount);
+			add(localVariableCount);
+			for (String namespace : namespaces) {
+				addString(namespace);
+			}
+			for (Map.Entry<String, @Nullable String> entry : metadata.getProperties().entrySet()) {
+				addString(entry.getKey());
+				addOptional(entry.getValue());
+			}
+			int offset = 0;
+			for (String string : strings) {
+				add(offset);
+				offset += utf8Length(string);
+			}
+			add(offset);
+			for (Layout section : new Layout[]{classes, fields, methods, parameters, localVariables}) {
+				ensureCapacity(section.size);
+				System.arraycopy(section.ints, 0, ints, size, section.size);
+				size += section.size;
+			}
+		}
+
+		/**
+		 * Creates a section using the strings of the {@code parent}.
+		 */
+		private Layout(Layout parent) {
+			this.ids = parent.ids;
+			this.strings = parent.strings;
+			this.namespaces = parent.namespaces;
+		}
+
+		private void collect(Mapped mapped) {
+			for (String name : MappedImpl.rawNames(mapped, namespaces)) {
+				ids.put(name, NONE);
+			}
+			final String comment = mapped.getComment();
+			if (comment != null)
+				ids.put(comment, NONE);
+		}
+
+		private <T extends Mapped> List<T> sorted(Collection<T> entries) {
+			final List<T> ret = new ArrayList<>(entries);
+			final Comparator<T> byName = Comparator.comparingInt(entry -> ids.get(MappedImpl.rawNames(entry, namespaces)[0]));
+			ret.sort(byName.thenComparingInt(entry -> entry instanceof Descriptored ? ids.get(DescriptoredImpl.signature((Descriptored) entry, namespaces)) : 0));
+			return ret;
+		}
+
+		private void ensureCapacity(int extra) {
+			if (size + extra > ints.length) {
+				ints = Arrays.copyOf(ints, Math.max(ints.length * 2, size + extra));
+			}
+		}
+
+		void add(int value) {
+			ensureCapacity(1);
+			ints[size++] = value;
+		}
+
+		void addString(String string) {
+			add(ids.get(string));
+		}
+
+		void addOptional(@Nullable String string) {
+			add(string == null ? NONE : ids.get(string));
+		}
+
+		void addMapped(Mapped mapped) {
+			for (String name : MappedImpl.rawNames(mapped, namespaces)) {
+				addString(name);
+			}
+			addOptional(mapped.getComment());
+		}
+
+		private static int utf8Length(String string) {
+			int ret = 0;
+			for (int i = 0; i < string.length(); i++) {
+				final char c = string.charAt(i);
+				if (c < 0x80) {
+					ret++;
+				} else if (c < 0x800) {
+					ret += 2;
+				} else if (Character.isHighSurrogate(c) && i + 1 < string.length() && Character.isLowSurrogate(string.charAt(i + 1))) {
+					ret += 4;
+					i++;
+				} else {
+					ret += Character.isSurrogate(c) ? 1 : 3; // a lone surrogate is encoded as '?'
+				}
+			}
+			return ret;
+		}
+	}
+
+	/**
+	 * A tree over an index in a byte buffer, which decodes strings on each call.
+	 */
+	private static final class BufferTree extends RecordTree {
+		private final ByteBuffer buffer;
+
+		BufferTree(ByteBuffer buffer) {
+			this.buffer = buffer;
+			init(buffer.capacity() / 4);
+			if (stringData() + at(stringOffsets + stringCount) != buffer.capacity())
+				throw new IllegalArgumentException("Truncated or corrupt tree index!");
+		}
+
+		private int stringData() {
+			return recordsEnd * 4;
+		}
+
+		@Override
+		int at(int index) {
+			return buffer.getInt(index * 4);
+		}
+
+		@Override
+		String string(int id) {
+			final int start = stringData() + at(stringOffsets + id);
+			final int length = stringData() + at(stringOffsets + id + 1) - start;
+			if (buffer.hasArray()) {
+				return new String(buffer.array(), buffer.arrayOffset() + start, length, StandardCharsets.UTF_8);
+			}
+			final byte[] bytes = new byte[length];
+			final ByteBuffer view = buffer.duplicate();
+			view.position(start);
+			view.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		@Override
+		int find(String string) {
+			final byte[] key = string.getBytes(StandardCharsets.UTF_8);
+			int low = 0;
+			int high = stringCount - 1;
+			while (low <= high) {
+				final int mid = (low + high) >>> 1;
+				final int start = stringData() + at(stringOffsets + mid);
+				final int end = stringData() + at(stringOffsets + mid + 1);
+				int cmp = 0;
+				for (int i = 0; cmp == 0 && i < key.length && start + i < end; i++) {
+					cmp = (buffer.get(start + i) & 0xFF) - (key[i] & 0xFF);
+				}
+				if (cmp == 0) {
+					cmp = (end - start) - key.length;
+				}
+				if (cmp < 0) {
+					low = mid + 1;
+				} else if (cmp > 0) {
+					high = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * A tree over an int array and a string array, which holds no object per element.
+	 */
+	private static final class CompactTree extends RecordTree {
+		private final int[] ints;
+		private final String[] strings;
+
+		CompactTree(int[] ints, String[] strings) {
+			this.ints = ints;
+			this.strings = strings;
+			init(ints.length);
+		}
+
+		@Override
+		int at(int index) {
+			return ints[index];
+		}
+
+		@Override
+		String string(int id) {
+			return strings[id];
+		}
+
+		@Override
+		int find(String string) {
+			int low = 0;
+			int high = strings.length - 1;
+			while (low <= high) {
+				final int mid = (low + high) >>> 1;
+				final int cmp = compare(strings[mid], string);
+				if (cmp < 0) {
+					low = mid + 1;
+				} else if (cmp > 0) {
+					high = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * A tree whose elements are views of the records of an index.
+	 *
+	 * <p>Records are addressed by the index of their first number.
+	 */
+	private abstract static class RecordTree implements TinyTree, DescriptorCache.Holder {
+		int namespaceCount;
+		int stringCount;
+		int classCount;
+		int stringOffsets;
+		int recordsEnd;
+		private int classes;
+		private int fields;
+		private int methods;
+		private int parameters;
+		private int localVariables;
+		private @MonotonicNonNull TinyMetadata metadata;
+		private volatile @Nullable DescriptorCache descriptorCache;
+		private @MonotonicNonNull ClassMaps classMaps;
+		private final Map<String, ClassDef> classMap = new ClassMap();
+		private final List<ClassDef> classList = new AbstractList<ClassDef>() {
+			@Override
+			public ClassDef get(int index) {
+				if (index < 0 || index >= classCount)
+					throw new IndexOutOfBoundsException("index " + index + ", size " + classCount);
+				return new IndexedClass(classes + index * (namespaceCount + 1 + CLASS_EXTRA));
+			}
+
+			@Override
+			public int size() {
+				return classCount;
+			}
+		};
+
+		/**
+		 * Gets a number of the index.
+		 */
+		abstract int at(int index);
+
+		abstract String string(int id);
+
+		/**
+		 * Finds the id of a string.
+		 *
+		 * @return the id, or a negative number if absent
+		 */
+		abstract int find(String string);
+
+		/**
+		 * Reads the header, once the numbers can be read.
+		 *
+		 * @param size the count of numbers
+		 */
+		final void init(int size) {
+			if (size < HEADER_SIZE || at(0) != MAGIC)
+				throw new IllegalArgumentException("Not a tree index!");
+			if (at(1) != VERSION)
+				throw new IllegalArgumentException("Unsupported tree index version " + at(1) + "!");
+			this.namespaceCount = at(4);
+			final int propertyCount = at(5);
+			this.stringCount = at(6);
+			this.classCount = at(7);
+			final long namespaces = HEADER_SIZE;
+			final long properties = namespaces + namespaceCount;
+			final long stringOffsets = properties + propertyCount * 2L;
+			final long classes = stringOffsets + stringCount + 1L;
+			final int fieldCount = at(8);
+			final int methodCount = at(9);
+			final int parameterCount = at(10);
+			final int localVariableCount = at(11);
+			final long fields = classes + classCount * (long) (namespaceCount + 1 + CLASS_EXTRA);
+			final long methods = fields + fieldCount * (long) (namespaceCount + 1 + FIELD_EXTRA);
+			final long parameters = methods + methodCount * (long) (namespaceCount + 1 + METHOD_EXTRA);
+			final long localVariables = parameters + parameterCount * (long) (namespaceCount + 1 + PARAMETER_EXTRA);
+			final long end = localVariables + localVariableCount * (long) (namespaceCount + 1 + LOCAL_VARIABLE_EXTRA);
+			if (namespaceCount <= 0 || propertyCount < 0 || stringCount < 0 || classCount < 0 || fieldCount < 0
+					|| methodCount < 0 || parameterCount < 0 || localVariableCount < 0 || end > size)
+				throw new IllegalArgumentException("Truncated or corrupt tree index!");
+			this.stringOffsets = (int) stringOffsets;
+			this.classes = (int) classes;
+			this.fields = (int) fields;
+			this.methods = (int) methods;
+			this.parameters = (int) parameters;
+			this.localVariables = (int) localVariables;
+			this.recordsEnd = (int) end;
+
+			// the children are read without further checks, so their ranges must lie within their sections
+			final int classSize = namespaceCount + 1 + CLASS_EXTRA;
+			for (int i = 0; i < classCount; i++) {
+				final int extras = this.classes + i * classSize + namespaceCount + 1;
+				checkChildren(extras, fieldCount);
+				checkChildren(extras + 2, methodCount);
+			}
+			final int methodSize = namespaceCount + 1 + METHOD_EXTRA;
+			for (int i = 0; i < methodCount; i++) {
+				final int extras = this.methods + i * methodSize + namespaceCount + 1;
+				checkChildren(extras + 1, parameterCount);
+				checkChildren(extras + 3, localVariableCount);
+			}
+
+			final List<String> namespaceList = new ArrayList<>(namespaceCount);
+			for (int i = 0; i < namespaceCount; i++) {
+				namespaceList.add(string(at((int) namespaces + i)));
+			}
+			final Map<String, @Nullable String> propertyMap = new LinkedHashMap<>();
+			for (int i = 0; i < propertyCount; i++) {
+				propertyMap.put(string(at((int) properties + i * 2)), optionalString(at((int) properties + i * 2 + 1)));
+			}
+			this.metadata = new TreeMetadata(at(2), at(3), namespaceList, Collections.unmodifiableMap(propertyMap));
+			this.classMaps = new ClassMaps(this, namespaceCount);
+		}
+
+		/**
+		 * Checks a start and a count of children, which lie at an index and the
+		 * one after it, against the count of records in their section.
+		 */
+		private void checkChildren(int index, int sectionCount) {
+			final int start = at(index);
+			final int count = at(index + 1);
+			if (start < 0 || count < 0 || start > sectionCount - count)
+				throw new IllegalArgumentException("Truncated or corrupt tree index!");
+		}
+
+		@Override
+		public TinyMetadata getMetadata() {
+			if (metadata == null)
+				throw new IllegalStateException();
+			return metadata;
+		}
+
+		@Override
+		public void setDescriptorCache(@Nullable DescriptorCache cache) {
+			this.descriptorCache = cache;
+		}
+
+		@Override
+		public @Nullable DescriptorCache getDescriptorCache() {
+			return descriptorCache;
+		}
+
+		@Override
+		public Map<String, ClassDef> getDefaultNamespaceClassMap() {
+			return classMap;
+		}
+
+		@Override
+		public Map<String, ClassDef> getClassMap(int namespace) {
+			if (classMaps == null)
+				throw new IllegalStateException();
+			return classMaps.get(namespace);
+		}
+
+		@Override
+		public Collection<ClassDef> getClasses() {
+			return classList;
+		}
+
+		@Nullable String optionalString(int id) {
+			return id == NONE ? null : string(id);
+		}
+
+		/**
+		 * Finds the record of a class by its name in the first namespace.
+		 *
+		 * <p>Classes of the same name keep their order in the index, so the first
+		 * of them is found.
+		 *
+		 * @return the record, or a negative number if absent
+		 */
+		int findClass(String name) {
+			final int id = find(name);
+			if (id < 0)
+				return -1;
+			final int classSize = namespaceCount + 1 + CLASS_EXTRA;
+			int low = 0;
+			int high = classCount;
+			while (low < high) {
+				final int mid = (low + high) >>> 1;
+				if (at(classes + mid * classSize) < id) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low < classCount && at(classes + low * classSize) == id ? classes + low * classSize : -1;
+		}
+
+		String mapDescriptor(int namespace, String descriptor) {
+			if (descriptor.indexOf('L') < 0)
+				return descriptor;
+			final @Nullable DescriptorCache cache = descriptorCache;
+			if (cache == null)
+				return DescriptorRemapper.mapDescriptor(descriptor, classLookup(namespace));
+			@Nullable String ret = cache.get(namespace, descriptor);
+			if (ret == null) {
+				ret = DescriptorRemapper.mapDescriptor(descriptor, classLookup(namespace));
+				cache.put(namespace, descriptor, ret);
+			}
+			return ret;
+		}
+
+		private ClassLookup classLookup(int namespace) {
+			return (source, start, end) -> {
+				final int record = findClass(source.substring(start, end));
+				return record < 0 ? null : new IndexedClass(record).getName(namespace);
+			};
+		}
+
+		/**
+		 * The classes by their names in the first namespace, which maps the first
+		 * class of a name like the maps of the other trees.
+		 */
+		private final class ClassMap extends AbstractMap<String, ClassDef> {
+			// racy, but the count is always the same
+			private int size = -1;
+
+			/**
+			 * Checks whether a class record is the first of its name, which the records
+			 * of the same name directly follow.
+			 */
+			boolean isFirst(int index) {
+				final int classSize = namespaceCount + 1 + CLASS_EXTRA;
+				return index == 0 || at(classes + index * classSize) != at(classes + (index - 1) * classSize);
+			}
+
+			@Override
+			public @Nullable ClassDef get(@Nullable Object key) {
+				if (!(key instanceof String))
+					return null;
+				final int record = findClass((String) key);
+				return record < 0 ? null : new IndexedClass(record);
+			}
+
+			@Override
+			public boolean containsKey(@Nullable Object key) {
+				return key instanceof String && findClass((String) key) >= 0;
+			}
+
+			@Override
+			public int size() {
+				int ret = size;
+				if (ret < 0) {
+					ret = 0;
+					for (int i = 0; i < classCount; i++) {
+						if (isFirst(i))
+							ret++;
+					}
+					size = ret;
+				}
+				return ret;
+			}
+
+			@Override
+			public Set<Entry<String, ClassDef>> entrySet() {
+				return new AbstractSet<Entry<String, ClassDef>>() {
+					@Override
+					public Iterator<Entry<String, ClassDef>> iterator() {
+						return new Iterator<Entry<String, ClassDef>>() {
+							private int index = 0;
+
+							@Override
+							public boolean hasNext() {
+								while (index < classCount && !isFirst(index)) {
+									index++;
+								}
+								return index < classCount;
+							}
+
+							@Override
+							public Entry<String, ClassDef> next() {
+								if (!hasNext())
+									throw new NoSuchElementException();
+								final IndexedClass next = (IndexedClass) classList.get(index++);
+								return new SimpleImmutableEntry<>(next.getName(0), next);
+							}
+						};
+					}
+
+					@Override
+					public int size() {
+						return ClassMap.this.size();
+					}
+				};
+			}
+		}
+
+		private abstract class IndexedMapped implements Mapped {
+			final int record;
+
+			IndexedMapped(int record) {
+				this.record = record;
+			}
+
+			int namespace(String namespace) {
+				final int ret = getMetadata().index(namespace);
+				if (ret < 0)
+					throw new IllegalArgumentException("Unknown namespace: " + namespace);
+				return ret;
+			}
+
+			int namespace(int namespace) {
+				if (namespace < 0 || namespace >= namespaceCount)
+					throw new IllegalArgumentException("Unknown namespace index: " + namespace);
+				return namespace;
+			}
+
+			/**
+			 * Gets a number after the names and the comment of the record.
+			 */
+			int extra(int index) {
+				return at(record + namespaceCount + 1 + index);
+			}
+
+			/**
+			 * Lists the records of a section which are referenced by this record.
+			 */
+			<T> List<T> children(int section, int recordExtra, int startIndex, IntFunction<? extends T> factory) {
+				final int recordSize = namespaceCount + 1 + recordExtra;
+				return new RecordList<>(section + extra(startIndex) * recordSize, extra(startIndex + 1), recordSize, factory);
+			}
+
+			private RecordTree tree() {
+				return RecordTree.this;
+			}
+
+			@Override
+			public boolean equals(@Nullable Object obj) {
+				if (obj == this)
+					return true;
+				if (obj == null || obj.getClass() != getClass())
+					return false;
+				final IndexedMapped other = (IndexedMapped) obj;
+				return other.record == record && other.tree() == tree();
+			}
+
+			@Override
+			public int hashCode() {
+				return System.identityHashCode(tree()) * 31 + record;
+			}
+
+			@Override
+			public String getName(String namespace) {
+				return getName(namespace(namespace));
+			}
+
+			@Override
+			public String getName(int namespace) {
+				for (int i = namespace(namespace); i >= 0; i--) {
+					String name = string(at(record + i));
+					if (!name.isEmpty())
+						return name;
+				}
+				return "";
+			}
+
+			@Override
+			public String getRawName(String namespace) {
+				return getRawName(namespace(namespace));
+			}
+
+			@Override
+			public String getRawName(int namespace) {
+				return string(at(record + namespace(namespace)));
+			}
+
+			@Override
+			public @Nullable String getComment() {
+				return optionalString(at(record + namespaceCount));
+			}
+		}
+
+		private abstract class IndexedDescriptored extends IndexedMapped implements Descriptored {
+			IndexedDescriptored(int record) {
+				super(record);
+			}
+
+			@Override
+			public String getDescriptor(String namespace) {
+				return getDescriptor(namespace(namespace));
+			}
+
+			@Override
+			public String getDescriptor(int namespace) {
+				final int t = namespace(namespace);
+				final String descriptor = string(extra(0));
+				return t == 0 ? descriptor : mapDescriptor(t, descriptor);
+			}
+		}
+
+		private final class IndexedClass extends IndexedMapped implements ClassDef {
+			IndexedClass(int record) {
+				super(record);
+			}
+
+			@Override
+			public Collection<MethodDef> getMethods() {
+				return children(methods, METHOD_EXTRA, 2, IndexedMethod::new);
+			}
+
+			@Override
+			public Collection<FieldDef> getFields() {
+				return children(fields, FIELD_EXTRA, 0, IndexedField::new);
+			}
+
+			@Override
+			public @Nullable MethodDef getMethod(String namespace, String name, String descriptor) {
+				return getMethod(namespace(namespace), name, descriptor);
+			}
+
+			@Override
+			public @Nullable MethodDef getMethod(int namespace, String name, String descriptor) {
+				if (namespace(namespace) != 0)
+					return ClassDef.super.getMethod(namespace, name, descriptor);
+				final int member = findMember(methods, METHOD_EXTRA, 2, name, descriptor);
+				return member < 0 ? null : new IndexedMethod(member);
+			}
+
+			@Override
+			public @Nullable FieldDef getField(String namespace, String name, String descriptor) {
+				return getField(namespace(namespace), name, descriptor);
+			}
+
+			@Override
+			public @Nullable FieldDef getField(int namespace, String name, String descriptor) {
+				if (namespace(namespace) != 0)
+					return ClassDef.super.getField(namespace, name, descriptor);
+				final int member = findMember(fields, FIELD_EXTRA, 0, name, descriptor);
+				return member < 0 ? null : new IndexedField(member);
+			}
+
+			/**
+			 * Finds the record of a member by its name and descriptor in the first namespace,
+			 * comparing string ids against the sorted member records.
+			 *
+			 * @return the record, or a negative number if absent
+			 */
+			private int findMember(int section, int recordExtra, int startIndex, String name, String descriptor) {
+				final int nameId = find(name);
+				final int descriptorId = nameId < 0 ? -1 : find(descriptor);
+				if (descriptorId < 0)
+					return -1;
+				final int recordSize = namespaceCount + 1 + recordExtra;
+				final int start = section + extra(startIndex) * recordSize;
+				int low = 0;
+				int high = extra(startIndex + 1) - 1;
+				while (low <= high) {
+					final int mid = (low + high) >>> 1;
+					final int member = start + mid * recordSize;
+					int cmp = Integer.compare(at(member), nameId);
+					if (cmp == 0)
+						cmp = Integer.compare(at(member + namespaceCount + 1), descriptorId);
+					if (cmp < 0) {
+						low = mid + 1;
+					} else if (cmp > 0) {
+						high = mid - 1;
+					} else {
+						return member;
+					}
+				}
+				return -1;
+			}
+		}
+
+		private final class IndexedField extends IndexedDescriptored implements FieldDef {
+			IndexedField(int record) {
+				super(record);
+			}
+		}
+
+		private final class IndexedMethod extends IndexedDescriptored implements MethodDef {
+			IndexedMethod(int record) {
+				super(record);
+			}
+
+			@Override
+			public Collection<ParameterDef> getParameters() {
+				return children(parameters, PARAMETER_EXTRA, 1, IndexedParameter::new);
+			}
+
+			@Override
+			public Collection<LocalVariableDef> getLocalVariables() {
+				return children(localVariables, LOCAL_VARIABLE_EXTRA, 3, IndexedLocalVariable::new);
+			}
+		}
+
+		private final class IndexedParameter extends IndexedMapped implements ParameterDef {
+			IndexedParameter(int record) {
+				super(record);
+			}
+
+			@Override
+			public int getLocalVariableIndex() {
+				return extra(0);
+			}
+		}
+
+		private final class IndexedLocalVariable extends IndexedMapped implements LocalVariableDef {
+			IndexedLocalVariable(int record) {
+				super(record);
+			}
+
+			@Override
+			public int getLocalVariableIndex() {
+				return extra(0);
+			}
+
+			@Override
+			public int getLocalVariableStartOffset() {
+				return extra(1);
+			}
+
+			@Override
+			public int getLocalVariableTableIndex() {
+				return extra(2);
+			}
+		}
+	}
+
+	private static final class RecordList<T> extends AbstractList<T> {
+		private final int start;
+		private final int size;
+		private final int recordSize;
+		private final IntFunction<? extends T> factory;
+
+		RecordList(int start, int size, int recordSize, IntFunction<? extends T> factory) {
+			this.start = start;
+			this.size = size;
+			this.recordSize = recordSize;
+			this.factory = factory;
+		}
+
+		@Override
+		public T get(int index) {
+			if (index < 0 || index >= size)
+				throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+			return factory.apply(start + index * recordSize);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+}
@@ -0,0 +1,558 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mapping.tree;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.fabricmc.mapping.reader.v2.FilteringTinyVisitor;
+import net.fabricmc.mapping.reader.v2.MappingGetter;
+import net.fabricmc.mapping.reader.v2.MappingParseException;
+import net.fabricmc.mapping.reader.v2.TinyMetadata;
+import net.fabricmc.mapping.reader.v2.TinyV2Factory;
+import net.fabricmc.mapping.reader.v2.TinyV2PushParser;
+import net.fabricmc.mapping.reader.v2.TinyVisitor;
+import net.fabricmc.mapping.util.ClassNameTable;
+import net.fabricmc.mapping.util.DescriptorRemapper;
+
+/**
+ * Joins two mappings on a namespace they share.
+ *
+ * <p>The merged mapping has the namespaces of the left mapping followed by the ones
+ * of the right mapping but the shared one. Classes are matched by their names in
+ * the shared namespace, fields and methods by their names and descriptors in it,
+ * parameters by their local variable index and local variables by all their indices.
+ * An element of only one mapping keeps its name from the shared namespace in the
+ * namespaces of the other, and the comment of the left mapping wins over the right.
+ */
+final class TreeMerger {
+
+	private final TinyVisitor visitor;
+	private final @Nullable FilteringTinyVisitor filter;
+	private final Side left;
+	private final Side right;
+	private final int leftCount;
+	// the namespaces of the right mapping in the merged mapping, after the left ones
+	private final int[] rightKept;
+	private final int namespaceCount;
+
+	private TreeMerger(Side left, Side right, TinyVisitor visitor) {
+		this.visitor = visitor;
+		this.filter = visitor instanceof FilteringTinyVisitor ? (FilteringTinyVisitor) visitor : null;
+		this.left = left;
+		this.right = right;
+		final List<String> namespaces = new ArrayList<>(left.namespaces);
+		final List<String> rightNamespaces = right.namespaces;
+		this.rightKept = new int[rightNamespaces.size() - 1];
+		for (int i = 0, j = 0; i < rightNamespaces.size(); i++) {
+			if (i != right.shared) {
+				rightKept[j++] = i;
+				namespaces.add(rightNamespaces.get(i));
+			}
+		}
+		this.leftCount = left.namespaces.size();
+		this.namespaceCount = namespaces.size();
+
+		final Map<String, @Nullable String> properties = new LinkedHashMap<>(left.metadata.getProperties());
+		for (Map.Entry<String, String> entry : right.metadata.getProperties().entrySet()) {
+			properties.putIfAbsent(entry.getKey(), entry.getValue());
+		}
+		properties.remove("escaped-names"); // the names passed on are unescaped
+		visitor.start(new TreeMetadata(2, 0, namespaces, Collections.unmodifiableMap(properties)));
+	}
+
+	static void merge(TinyTree leftTree, TinyTree rightTree, String namespace, TinyVisitor visitor) {
+		final Side left = Side.of(leftTree, namespace);
+		final Side right = Side.of(rightTree, namespace);
+		final TreeMerger merger = new TreeMerger(left, right, visitor);
+
+		final Map<String, ClassDef> rightClasses = rightTree.getClassMap(right.shared);
+		merger.join(leftTree.getClasses(), rightTree.getClasses(), clz -> rightClasses.get(clz.getName(left.shared)), merger::mergeClass);
+	}
+
+	static void mergeSorted(ByteBuffer leftBuffer, ByteBuffer rightBuffer, String namespace, TinyVisitor visitor) throws MappingParseException {
+		final Side left = Side.read(leftBuffer, namespace);
+		final Side right = Side.read(rightBuffer, namespace);
+		final TreeMerger merger = new TreeMerger(left, right, visitor);
+
+		final ClassStream leftClasses = new ClassStream(leftBuffer, "left", left.shared);
+		final ClassStream rightClasses = new ClassStream(rightBuffer, "right", right.shared);
+		@Nullable ClassDef leftClass = leftClasses.next();
+		@Nullable ClassDef rightClass = rightClasses.next();
+		while (leftClass != null || rightClass != null) {
+			final int order = leftClass == null ? 1 : rightClass == null ? -1 : leftClass.getName(left.shared).compareTo(rightClass.getName(right.shared));
+			if (order <= 0) {
+				merger.mergeClass(leftClass, order == 0 ? rightClass : null);
+			} else {
+				merger.mergeClass(null, rightClass);
+			}
+			if (order <= 0) {
+				leftClass = leftClasses.next();
+			}
+			if (order >= 0) {
+				rightClass = rightClasses.next();
+			}
+		}
+	}
+
+	/**
+	 * Passes every left element with its match to {@code merge}, and then every right
+	 * element without a match, each in their order.
+	 */
+	private <T> void join(Collection<? extends T> lefts, Collection<? extends T> rights, Function<T, @Nullable T> matcher, BiConsumer<@Nullable T, @Nullable T> merge) {
+		// equal rather than identical, as the elements of some trees are views created on access
+		final Set<T> matched = new HashSet<>();
+		for (T each : lefts) {
+			final @Nullable T match = rights.isEmpty() ? null : matcher.apply(each);
+			if (match != null && !matched.add(match)) {
+				merge.accept(each, null); // the match belongs to an earlier element
+			} else {
+				merge.accept(each, match);
+			}
+		}
+		for (T each : rights) {
+			if (!matched.contains(each)) {
+				merge.accept(null, each);
+			}
+		}
+	}
+
+	private static <T> Map<Object, T> index(Collection<? extends T> elements, Function<T, Object> key) {
+		final Map<Object, T> ret = new HashMap<>();
+		for (T each : elements) {
+			ret.putIfAbsent(key.apply(each), each);
+		}
+		return ret;
+	}
+
+	private void mergeClass(@Nullable ClassDef l, @Nullable ClassDef r) {
+		if (visitClass(names(l, r))) {
+			comment(l, r);
+			final Collection<FieldDef> leftFields = l == null ? Collections.emptyList() : l.getFields();
+			final Collection<FieldDef> rightFields = r == null ? Collections.emptyList() : r.getFields();
+			final Map<Object, FieldDef> fields = index(rightFields, field -> right.key(field));
+			join(leftFields, rightFields, field -> fields.get(left.key(field)), this::mergeField);
+
+			final Collection<MethodDef> leftMethods = l == null ? Collections.emptyList() : l.getMethods();
+			final Collection<MethodDef> rightMethods = r == null ? Collections.emptyList() : r.getMethods();
+			final Map<Object, MethodDef> methods = index(rightMethods, method -> right.key(method));
+			join(leftMethods, rightMethods, method -> methods.get(left.key(method)), this::mergeMethod);
+		}
+		visitor.pop(1);
+	}
+
+	private void mergeField(@Nullable FieldDef l, @Nullable FieldDef r) {
+		final MappingGetter names = names(l, r);
+		final String descriptor = descriptor(l, r);
+		if (visitField(names, descriptor)) {
+			comment(l, r);
+		}
+		visitor.pop(1);
+	}
+
+	private void mergeMethod(@Nullable MethodDef l, @Nullable MethodDef r) {
+		final MappingGetter names = names(l, r);
+		final String descriptor = descriptor(l, r);
+		if (visitMethod(names, descriptor)) {
+			comment(l, r);
+			final Collection<ParameterDef> leftParameters = l == null ? Collections.emptyList() : l.getParameters();
+			final Collection<ParameterDef> rightParameters = r == null ? Collections.emptyList() : r.getParameters();
+			final Map<Object, ParameterDef> parameters = index(rightParameters, ParameterDef::getLocalVariableIndex);
+			join(leftParameters, rightParameters, parameter -> parameters.get(parameter.getLocalVariableIndex()), this::mergeParameter);
+
+			final Collection<LocalVariableDef> leftVariables = l == null ? Collections.emptyList() : l.getLocalVariables();
+			final Collection<LocalVariableDef> rightVariables = r == null ? Collections.emptyList() : r.getLocalVariables();
+			final Map<Object, LocalVariableDef> variables = index(rightVariables, TreeMerger::key);
+			join(leftVariables, rightVariables, variable -> variables.get(key(variable)), this::mergeLocalVariable);
+		}
+		visitor.pop(1);
+	}
+
+	private void mergeParameter(@Nullable ParameterDef l, @Nullable ParameterDef r) {
+		final MappingGetter names = names(l, r);
+		final int index = (l != null ? l : nonNull(r)).getLocalVariableIndex();
+		if (visitParameter(names, index)) {
+			comment(l, r);
+		}
+		visitor.pop(1);
+	}
+
+	private void mergeLocalVariable(@Nullable LocalVariableDef l, @Nullable LocalVariableDef r) {
+		final MappingGetter names = names(l, r);
+		final LocalVariableDef variable = l != null ? l : nonNull(r);
+		if (visitLocalVariable(names, variable.getLocalVariableIndex(), variable.getLocalVariableStartOffset(), variable.getLocalVariableTableIndex())) {
+			comment(l, r);
+		}
+		visitor.pop(1);
+	}
+
+	// like the parser, skips the children of elements a filtering visitor rejects
+	private boolean visitClass(MappingGetter names) {
+		if (filter != null)
+			return filter.visitClass(names);
+		visitor.pushClass(names);
+		return true;
+	}
+
+	private boolean visitField(MappingGetter names, String descriptor) {
+		if (filter != null)
+			return filter.visitField(names, descriptor);
+		visitor.pushField(names, descriptor);
+		return true;
+	}
+
+	private boolean visitMethod(MappingGetter names, String descriptor) {
+		if (filter != null)
+			return filter.visitMethod(names, descriptor);
+		visitor.pushMethod(names, descriptor);
+		return true;
+	}
+
+	private boolean visitParameter(MappingGetter names, int index) {
+		if (filter != null)
+			return filter.visitParameter(names, index);
+		visitor.pushParameter(names, index);
+		return true;
+	}
+
+	private boolean visitLocalVariable(MappingGetter names, int index, int startOffset, int tableIndex) {
+		if (filter != null)
+			return filter.visitLocalVariable(names, index, startOffset, tableIndex);
+		visitor.pushLocalVariable(names, index, startOffset, tableIndex);
+		return true;
+	}
+
+	private static String key(LocalVariableDef variable) {
+		return variable.getLocalVariableIndex() + ":" + variable.getLocalVariableStartOffset() + ":" + variable.getLocalVariableTableIndex();
+	}
+
+	private static <T> T nonNull(@Nullable T value) {
+		if (value == null)
+			throw new IllegalStateException();
+		return value;
+	}
+
+	private void comment(@Nullable Mapped l, @Nullable Mapped r) {
+		@Nullable String comment = l == null ? null : l.getComment();
+		if (comment == null && r != null) {
+			comment = r.getComment();
+		}
+		if (comment != null) {
+			visitor.pushComment(comment);
+			visitor.pop(1);
+		}
+	}
+
+	private MappingGetter names(@Nullable Mapped l, @Nullable Mapped r) {
+		final String[] ret = new String[namespaceCount];
+		if (l != null) {
+			System.arraycopy(MappedImpl.rawNames(l, left.namespaces), 0, ret, 0, leftCount);
+		} else {
+			ret[0] = nonNull(r).getName(right.shared);
+			for (int i = 1; i < leftCount; i++) {
+				ret[i] = "";
+			}
+		}
+		if (rightKept.length > 0) {
+			if (r != null) {
+				System.arraycopy(MappedImpl.project(MappedImpl.rawNames(r, right.namespaces), rightKept), 0, ret, leftCount, rightKept.length);
+			} else {
+				ret[leftCount] = nonNull(l).getName(left.shared);
+				for (int i = leftCount + 1; i < namespaceCount; i++) {
+					ret[i] = "";
+				}
+			}
+		}
+		return new NameGetter(ret);
+	}
+
+	private String descriptor(@Nullable Descriptored l, @Nullable Descriptored r) {
+		if (l != null) {
+			return l.getDescriptor(0);
+		}
+		return left.fromShared(right.toShared(nonNull(r).getDescriptor(0)));
+	}
+
+	/**
+	 * One of the mappings, with the class names needed to move descriptors between
+	 * its first namespace and the shared one.
+	 */
+	private static final class Side implements FilteringTinyVisitor {
+		private final String namespace;
+		private @MonotonicNonNull TinyMetadata metadata;
+		private List<String> namespaces = Collections.emptyList();
+		private int shared = -1;
+		private final ClassNameTable<String> toShared = new ClassNameTable<>();
+		private final ClassNameTable<String> fromShared = new ClassNameTable<>();
+		private final DescriptorRemapper.ClassLookup toSharedLookup = DescriptorRemapper.ClassLookup.of(toShared);
+		private final DescriptorRemapper.ClassLookup fromSharedLookup = DescriptorRemapper.ClassLookup.of(fromShared);
+
+		private Side(String namespace) {
+			this.namespace = namespace;
+		}
+
+		static Side of(TinyTree tree, String namespace) {
+			final Side ret = new Side(namespace);
+			ret.start(tree.getMetadata());
+			ret.check();
+			if (ret.shared != 0) {
+				for (ClassDef clz : tree.getClasses()) {
+					ret.add(clz.getName(0), clz.getName(ret.shared));
+				}
+			}
+			return ret;
+		}
+
+		static Side read(ByteBuffer buffer, String namespace) throws MappingParseException {
+			final Side ret = new Side(namespace);
+			TinyV2Factory.visit(buffer, ret);
+			ret.check();
+			return ret;
+		}
+
+		private void check() {
+			if (shared < 0)
+				throw new IllegalArgumentException("Unknown namespace: " + namespace);
+		}
+
+		private void add(String name, String sharedName) {
+			toShared.putIfAbsent(name, sharedName);
+			fromShared.putIfAbsent(sharedName, name);
+		}
+
+		String toShared(String descriptor) {
+			return shared == 0 ? descriptor : DescriptorRemapper.mapDescriptor(descriptor, toSharedLookup);
+		}
+
+		String fromShared(String descriptor) {
+			return shared == 0 ? descriptor : DescriptorRemapper.mapDescriptor(descriptor, fromSharedLookup);
+		}
+
+		/**
+		 * Gets the key of a field or method in the shared namespace.
+		 */
+		String key(Descriptored member) {
+			// names cannot contain ';'
+			return member.getName(shared) + ";" + toShared(member.getDescriptor(0));
+		}
+
+		@Override
+		public void start(TinyMetadata metadata) {
+			this.metadata = metadata;
+			this.namespaces = metadata.getNamespaces();
+			this.shared = metadata.index(namespace);
+		}
+
+		@Override
+		public boolean allowsGetterReuse() {
+			return true;
+		}
+
+		@Override
+		public boolean visitClass(MappingGetter name) {
+			if (shared > 0) {
+				add(name.get(0), name.get(shared));
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Reads a mapping class by class, holding one class at a time.
+	 */
+	private static final class ClassStream implements TinyVisitor {
+		private final ByteBuffer buffer;
+		private final String side;
+		private final int shared;
+		private final int limit;
+		private int position;
+		private final TinyV2PushParser parser;
+		private final DescriptorMapper descriptors = new DescriptorMapper(Collections.emptyMap());
+		private ToIntFunction<String> namespaceMapper = namespace -> -1;
+		private final Deque<MappedImpl> stack = new ArrayDeque<>(4);
+		private boolean pushedComment;
+		private @Nullable ClassImpl current;
+		private @Nullable MethodImpl inMethod;
+		private @Nullable String previous;
+
+		ClassStream(ByteBuffer buffer, String side, int shared) {
+			this.buffer = buffer;
+			this.side = side;
+			this.shared = shared;
+			this.position = buffer.position();
+			this.limit = buffer.limit();
+			this.parser = TinyV2Factory.pushParser(this);
+		}
+
+		@Nullable ClassImpl next() throws MappingParseException {
+			current = null;
+			while (current == null && position < limit) {
+				final int end = chunkEnd(position);
+				final ByteBuffer chunk = buffer.duplicate();
+				chunk.limit(end).position(position);
+				parser.feed(chunk);
+				position = end;
+				if (position == limit) {
+					parser.end();
+				}
+			}
+			final @Nullable ClassImpl ret = current;
+			if (ret != null) {
+				final String name = ret.getName(shared);
+				if (previous != null && previous.compareTo(name) > 0)
+					throw new IllegalArgumentException("The " + side + " mapping is not sorted: " + name + " after " + previous + "!");
+				previous = name;
+			}
+			return ret;
+		}
+
+		/**
+		 * Finds the end of the line at {@code from} and the indented lines after it.
+		 */
+		private int chunkEnd(int from) {
+			int i = from;
+			do {
+				int b;
+				while (i < limit && (b = buffer.get(i)) != '\n' && b != '\r') {
+					i++;
+				}
+				if (i < limit && buffer.get(i) == '\r') {
+					i++;
+				}
+				if (i < limit && buffer.get(i) == '\n') {
+					i++;
+				}
+			} while (i < limit && buffer.get(i) == '\t');
+			return i;
+		}
+
+		@Override
+		public void start(TinyMetadata metadata) {
+			this.namespaceMapper = metadata::index;
+		}
+
+		@Override
+		public boolean allowsGetterReuse() {
+			return true;
+		}
+
+		@Override
+		public void pushClass(MappingGetter name) {
+			final ClassImpl clz = new ClassImpl(namespaceMapper, name.getRawNames());
+			current = clz;
+			stack.addLast(clz);
+		}
+
+		@Override
+		public void pushField(MappingGetter name, String descriptor) {
+			final FieldImpl field = new FieldImpl(descriptors, namespaceMapper, name.getRawNames(), descriptor);
+			nonNull(current).fields.add(field);
+			stack.addLast(field);
+		}
+
+		@Override
+		public void pushMethod(MappingGetter name, String descriptor) {
+			final MethodImpl method = new MethodImpl(descriptors, namespaceMapper, name.getRawNames(), descriptor);
+			nonNull(current).methods.add(method);
+			inMethod = method;
+			stack.addLast(method);
+		}
+
+		@Override
+		public void pushParameter(MappingGetter name, int localVariableIndex) {
+			final ParameterImpl parameter = new ParameterImpl(namespaceMapper, name.getRawNames(), localVariableIndex);
+			nonNull(inMethod).parameters.add(parameter);
+			stack.addLast(parameter);
+		}
+
+		@Override
+		public void pushLocalVariable(MappingGetter name, int localVariableIndex, int localVariableStartOffset, int localVariableTableIndex) {
+			final LocalVariableImpl variable = new LocalVariableImpl(namespaceMapper, name.getRawNames(), localVariableIndex, localVariableStartOffset, localVariableTableIndex);
+			nonNull(inMethod).localVariables.add(variable);
+			stack.addLast(variable);
+		}
+
+		@Override
+		public void pushComment(String comment) {
+			nonNull(stack.peekLast()).setComment(comment);
+			pushedComment = true;
+		}
+
+		@Override
+		public void pop(int count) {
+			if (pushedComment) {
+				pushedComment = false;
+				count--;
+			}
+			for (int i = 0; i < count; i++) {
+				stack.removeLast();
+			}
+		}
+	}
+
+	private static final class NameGetter implements MappingGetter {
+		private final String[] names;
+
+		NameGetter(String[] names) {
+			this.names = names;
+		}
+
+		@Override
+		public String get(int namespace) {
+			int index = namespace;
+			while (index > 0 && names[index].isEmpty())
+				index--;
+			return names[index];
+		}
+
+		@Override
+		public String getRaw(int namespace) {
+			return names[namespace];
+		}
+
+		@Override
+		public String[] getRawNames() {
+			return names.clone();
+		}
+
+		@Override
+		public String[] getAllNames() {
+			final String[] ret = names.clone();
+			for (int i = 1; i < ret.length; i++) {
+				if (ret[i].isEmpty()) {
+					ret[i] = ret[i - 1];
+				}
+			}
+			return ret;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.tree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.fabricmc.mapping.reader.v2.TinyMetadata;
+
+/**
+ * Metadata for trees whose namespaces are not the ones of a parsed file.
+ */
+final class TreeMetadata implements TinyMetadata {
+
+	private final int majorVersion;
+	private final int minorVersion;
+	private final List<String> namespaces;
+	private final Map<String, Integer> namespacesToIds;
+	private final Map<String, @Nullable String> properties;
+
+	TreeMetadata(int majorVersion, int minorVersion, List<String> namespaces, Map<String, @Nullable String> properties) {
+		this.majorVersion = majorVersion;
+		this.minorVersion = minorVersion;
+		this.namespaces = Collections.unmodifiableList(new ArrayList<>(namespaces));
+		this.namespacesToIds = new HashMap<>();
+		for (int i = 0; i < namespaces.size(); i++) {
+			if (namespacesToIds.put(namespaces.get(i), i) != null) {
+				throw new IllegalArgumentException("Duplicate namespace: " + namespaces.get(i));
+			}
+		}
+		this.properties = properties;
+	}
+
+	/**
+	 * Creates metadata like the {@code source} but with other namespaces.
+	 */
+	static TreeMetadata withNamespaces(TinyMetadata source, List<String> namespaces) {
+		return new TreeMetadata(source.getMajorVersion(), source.getMinorVersion(), namespaces, source.getProperties());
+	}
+
+	/**
+	 * Gets the index of each namespace of {@code namespaces} in the {@code source}.
+	 */
+	static int[] indices(TinyMetadata source, List<String> namespaces) {
+		if (namespaces.isEmpty()) {
+			throw new IllegalArgumentException("No namespace selected!");
+		}
+		int[] ret = new int[namespaces.size()];
+		for (int i = 0; i < ret.length; i++) {
+			ret[i] = source.index(namespaces.get(i));
+			if (ret[i] < 0) {
+				throw new IllegalArgumentException("Unknown namespace: " + namespaces.get(i));
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public int getMajorVersion() {
+		return majorVersion;
+	}
+
+	@Override
+	public int getMinorVersion() {
+		return minorVersion;
+	}
+
+	@Override
+	public List<String> getNamespaces() {
+		return namespaces;
+	}
+
+	@Override
+	public Map<String, @Nullable String> getProperties() {
+		return properties;
+	}
+
+	@Override
+	public int index(String namespace) {
+		return namespacesToIds.getOrDefault(namespace, -1);
+	}
+}
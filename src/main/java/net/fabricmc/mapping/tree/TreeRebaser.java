@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mapping.tree;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+import net.fabricmc.mapping.reader.v2.TinyMetadata;
+import net.fabricmc.mapping.util.ClassNameTable;
+import net.fabricmc.mapping.util.DescriptorRemapper;
+
+/**
+ * Copies trees with another namespace first.
+ *
+ * <p>The copy is built in one pass over the members: descriptors are mapped to the
+ * new first namespace once per distinct descriptor, and the names of every element
+ * are reordered with {@link MappedImpl#project(String[], int[])}.
+ */
+final class TreeRebaser {
+
+	private final List<String> sourceNamespaces;
+	private final int[] order;
+	private final ToIntFunction<String> namespaceMapper;
+	private final DescriptorMapper descriptorMapper;
+	private final Map<String, String> descriptors = new HashMap<>();
+	private final DescriptorRemapper.ClassLookup lookup;
+
+	private TreeRebaser(List<String> sourceNamespaces, int[] order, TinyMetadata metadata, Map<String, ClassImpl> classNames, ClassNameTable<String> sourceClassNames) {
+		this.sourceNamespaces = sourceNamespaces;
+		this.order = order;
+		this.namespaceMapper = metadata::index;
+		this.descriptorMapper = new DescriptorMapper(classNames);
+		this.lookup = DescriptorRemapper.ClassLookup.of(sourceClassNames);
+	}
+
+	static TinyTree rebase(TinyTree tree, String namespace) {
+		final TinyMetadata source = tree.getMetadata();
+		final int first = source.index(namespace);
+		if (first < 0)
+			throw new IllegalArgumentException("Unknown namespace: " + namespace);
+		if (first == 0)
+			return tree;
+
+		final List<String> sourceNamespaces = source.getNamespaces();
+		final List<String> namespaces = new ArrayList<>(sourceNamespaces.size());
+		final int[] order = new int[sourceNamespaces.size()];
+		namespaces.add(namespace);
+		for (int i = 0, j = 1; i < order.length; i++) {
+			if (i != first) {
+				order[j++] = i;
+				namespaces.add(sourceNamespaces.get(i));
+			}
+		}
+		order[0] = first;
+		final TinyMetadata metadata = TreeMetadata.withNamespaces(source, namespaces);
+
+		final Collection<ClassDef> sourceClasses = tree.getClasses();
+		final ClassNameTable<String> sourceClassNames = new ClassNameTable<>(sourceClasses.size());
+		for (ClassDef clz : sourceClasses) {
+			sourceClassNames.putIfAbsent(clz.getName(0), clz.getName(first));
+		}
+
+		final Map<String, ClassImpl> classNames = new HashMap<>(sourceClasses.size() * 4 / 3 + 1);
+		final Collection<ClassDef> classes = new ArrayList<>(sourceClasses.size());
+		final TreeRebaser rebaser = new TreeRebaser(sourceNamespaces, order, metadata, classNames, sourceClassNames);
+		for (ClassDef clz : sourceClasses) {
+			final ClassImpl copy = rebaser.copyClass(clz);
+			classes.add(copy);
+			classNames.putIfAbsent(copy.getName(0), copy);
+		}
+		return new TinyMappingFactory.Tree(metadata, classNames, classes, rebaser.descriptorMapper);
+	}
+
+	private String[] names(Mapped mapped) {
+		return MappedImpl.project(MappedImpl.rawNames(mapped, sourceNamespaces), order);
+	}
+
+	private String descriptor(Descriptored descriptored) {
+		return descriptors.computeIfAbsent(DescriptoredImpl.signature(descriptored, sourceNamespaces), descriptor -> DescriptorRemapper.mapDescriptor(descriptor, lookup));
+	}
+
+	private ClassImpl copyClass(ClassDef clz) {
+		final ClassImpl ret = new ClassImpl(namespaceMapper, names(clz));
+		ret.setComment(clz.getComment());
+		for (FieldDef field : clz.getFields()) {
+			final FieldImpl copy = new FieldImpl(descriptorMapper, namespaceMapper, names(field), descriptor(field));
+			copy.setComment(field.getComment());
+			ret.fields.add(copy);
+		}
+		for (MethodDef method : clz.getMethods()) {
+			ret.methods.add(copyMethod(method));
+		}
+		return ret;
+	}
+
+	private MethodImpl copyMethod(MethodDef method) {
+		final MethodImpl ret = new MethodImpl(descriptorMapper, namespaceMapper, names(method), descriptor(method));
+		ret.setComment(method.getComment());
+		for (ParameterDef parameter : method.getParameters()) {
+			final ParameterImpl copy = new ParameterImpl(namespaceMapper, names(parameter), parameter.getLocalVariableIndex());
+			copy.setComment(parameter.getComment());
+			ret.parameters.add(copy);
+		}
+		for (LocalVariableDef variable : method.getLocalVariables()) {
+			final LocalVariableImpl copy = new LocalVariableImpl(namespaceMapper, names(variable), variable.getLocalVariableIndex(), variable.getLocalVariableStartOffset(), variable.getLocalVariableTableIndex());
+			copy.setComment(variable.getComment());
+			ret.localVariables.add(copy);
+		}
+		return ret;
+	}
+}
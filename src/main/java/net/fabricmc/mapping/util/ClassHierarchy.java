@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mapping.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Provides the direct supertypes of classes, such as read from class files.
+ *
+ * <p>The class names are in internal form, like {@code java/lang/String}.
+ */
+@FunctionalInterface
+public interface ClassHierarchy {
+
+	/**
+	 * Gets the direct superclass and superinterfaces of a class.
+	 *
+	 * @param className the name of the class
+	 * @return the superclass followed by the superinterfaces, or an empty
+	 * collection if the class is unknown
+	 */
+	Collection<String> getSupertypes(String className);
+
+	/**
+	 * Creates a hierarchy backed by a map from class names to their supertypes.
+	 *
+	 * @param supertypes the map
+	 * @return the hierarchy
+	 */
+	static ClassHierarchy of(Map<String, ? extends Collection<String>> supertypes) {
+		return className -> {
+			final Collection<String> ret = supertypes.get(className);
+			return ret == null ? Collections.emptyList() : ret;
+		};
+	}
+}
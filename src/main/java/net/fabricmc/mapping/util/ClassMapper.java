@@ -31,6 +31,7 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 public final class ClassMapper {
 
 	private final Function<String, @Nullable String> mapper;
+	private final DescriptorRemapper.ClassLookup lookup;
 
 	/**
 	 * Creates the mapper.
@@ -51,6 +52,7 @@ public final class ClassMapper {
 	 */
 	public ClassMapper(Function<String, @Nullable String> classMapping) {
 		this.mapper = classMapping;
+		this.lookup = DescriptorRemapper.ClassLookup.of(classMapping);
 	}
 
 	/**
@@ -73,26 +75,17 @@ public final class ClassMapper {
 	 * @return the mapped descriptor
 	 */
 	public String mapDescriptor(String old) {
-		int lastL = old.indexOf('L');
-		int lastSemi = -1;
-		if (lastL < 0) {
-			return old;
-		}
-		StringBuilder builder = new StringBuilder((int) (old.length() * 1.2)); // approximate
-		while (lastL >= 0) {
-			if (lastSemi + 1 < lastL) {
-				builder.append(old, lastSemi + 1, lastL);
-			}
-			lastSemi = old.indexOf(';', lastL + 1);
-			if (lastSemi == -1)
-				return old; // Invalid desc, nah!
-			builder.append('L').append(mapClass(old.substring(lastL + 1, lastSemi))).append(';');
-			lastL = old.indexOf('L', lastSemi + 1);
-		}
+		return DescriptorRemapper.mapDescriptor(old, lookup);
+	}
 
-		if (lastSemi + 1 < old.length()) {
-			builder.append(old, lastSemi + 1, old.length());
-		}
-		return builder.toString();
+	/**
+	 * Maps a generic signature.
+	 *
+	 * @param old the original signature
+	 * @return the mapped signature
+	 * @throws IllegalArgumentException if the signature is malformed
+	 */
+	public String mapSignature(String old) {
+		return DescriptorRemapper.mapSignature(old, lookup);
 	}
 }
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mapping.util;
+
+import java.util.Objects;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A hash table of values keyed by class names.
+ *
+ * <p>Unlike a map, the table can be probed with a range of a string, such as a
+ * class name within a descriptor, without creating a substring. It hashes the
+ * range like {@link String#hashCode()}, so putting a name uses its cached hash
+ * code, and uses open addressing with linear probing.
+ *
+ * <p>The table is not synchronized; it can be read concurrently once it is
+ * filled and safely published.
+ *
+ * @param <V> the type of the values
+ */
+public final class ClassNameTable<V> {
+
+	private static final int MIN_CAPACITY = 16;
+
+	private int size;
+	private int mask;
+	private int[] hashes;
+	private @Nullable String[] keys;
+	private @Nullable Object[] values;
+
+	/**
+	 * Creates an empty table.
+	 */
+	public ClassNameTable() {
+		this(0);
+	}
+
+	/**
+	 * Creates an empty table sized for a number of classes.
+	 *
+	 * @param expectedSize the expected number of classes
+	 */
+	public ClassNameTable(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	/**
+	 * Gets the number of classes in this table.
+	 *
+	 * @return the number of classes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Puts the value of a class, replacing its previous value.
+	 *
+	 * @param name  the name of the class
+	 * @param value the value
+	 * @return the previous value, or {@code null} if there was none
+	 * @throws NullPointerException if the value is {@code null}
+	 */
+	public @Nullable V put(String name, V value) {
+		Objects.requireNonNull(value, "value");
+		final int hash = spread(name.hashCode());
+		int i = find(hash, name, 0, name.length());
+		if (values[i] != null) {
+			final @Nullable V ret = value(i);
+			values[i] = value;
+			return ret;
+		}
+		if ((size + 1) * 2 > hashes.length) {
+			rehash(hashes.length << 1);
+			i = find(hash, name, 0, name.length());
+		}
+		hashes[i] = hash;
+		keys[i] = name;
+		values[i] = value;
+		size++;
+		return null;
+	}
+
+	/**
+	 * Puts the value of a class unless it already has one.
+	 *
+	 * @param name  the name of the class
+	 * @param value the value
+	 * @return the present value, or {@code null} if there was none and the value was put
+	 * @throws NullPointerException if the value is {@code null}
+	 */
+	public @Nullable V putIfAbsent(String name, V value) {
+		Objects.requireNonNull(value, "value");
+		final @Nullable V ret = get(name);
+		return ret != null ? ret : put(name, value);
+	}
+
+	/**
+	 * Gets the value of a class.
+	 *
+	 * @param name the name of the class
+	 * @return the value, or {@code null} if the class is not in this table
+	 */
+	public @Nullable V get(String name) {
+		return value(find(spread(name.hashCode()), name, 0, name.length()));
+	}
+
+	/**
+	 * Gets the value of a class whose name is a range of a string.
+	 *
+	 * @param source the string holding the class name
+	 * @param start  the start of the class name, inclusive
+	 * @param end    the end of the class name, exclusive
+	 * @return the value, or {@code null} if the class is not in this table
+	 */
+	public @Nullable V get(String source, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + source.charAt(i);
+		}
+		return value(find(spread(hash), source, start, end));
+	}
+
+	private static int spread(int hash) {
+		return hash ^ hash >>> 16;
+	}
+
+	@SuppressWarnings("unchecked")
+	private @Nullable V value(int i) {
+		return (V) values[i];
+	}
+
+	/**
+	 * Finds the slot of a class, or the empty slot where it would be put.
+	 */
+	private int find(int hash, String source, int start, int end) {
+		int i = hash & mask;
+		while (values[i] != null) {
+			if (hashes[i] == hash && DescriptorRemapper.matches(source, start, end, keys[i])) {
+				return i;
+			}
+			i = i + 1 & mask;
+		}
+		return i;
+	}
+
+	private void allocate(int capacity) {
+		mask = capacity - 1;
+		hashes = new int[capacity];
+		keys = new String[capacity];
+		values = new Object[capacity];
+	}
+
+	private void rehash(int capacity) {
+		final int[] oldHashes = hashes;
+		final @Nullable String[] oldKeys = keys;
+		final @Nullable Object[] oldValues = values;
+		allocate(capacity);
+		for (int j = 0; j < oldValues.length; j++) {
+			if (oldValues[j] != null) {
+				int i = oldHashes[j] & mask;
+				while (values[i] != null) {
+					i = i + 1 & mask;
+				}
+				hashes[i] = oldHashes[j];
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+}
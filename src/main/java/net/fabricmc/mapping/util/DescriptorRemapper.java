@@ -0,0 +1,275 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.util;
+
+import java.util.function.Function;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Remaps the class names referenced by descriptors and generic signatures.
+ *
+ * <p>Class names are looked up by their range in the descriptor or signature, so
+ * a {@link ClassLookup} which can search by range, such as one backed by a
+ * {@link ClassNameTable}, needs no substring. When no referenced class changes
+ * its name, the passed string itself is returned and nothing is allocated.
+ */
+public final class DescriptorRemapper {
+
+	/**
+	 * Looks up the new name of a class in internal form, like {@code java/lang/String}.
+	 */
+	@FunctionalInterface
+	public interface ClassLookup {
+		/**
+		 * Looks up the new name of the class whose name is a range of a string.
+		 *
+		 * @param source the string holding the class name
+		 * @param start  the start of the class name, inclusive
+		 * @param end    the end of the class name, exclusive
+		 * @return the new name, or {@code null} if the name is unchanged
+		 */
+		@Nullable String map(String source, int start, int end);
+
+		/**
+		 * Creates a lookup backed by a function of whole class names.
+		 *
+		 * @param mapper the function, which returns {@code null} for unchanged names
+		 * @return the lookup
+		 */
+		static ClassLookup of(Function<String, @Nullable String> mapper) {
+			return (source, start, end) -> mapper.apply(source.substring(start, end));
+		}
+
+		/**
+		 * Creates a lookup backed by a table of new class names, which is probed by
+		 * range without a substring.
+		 *
+		 * @param table the table, which holds no value for unchanged names
+		 * @return the lookup
+		 */
+		static ClassLookup of(ClassNameTable<String> table) {
+			return table::get;
+		}
+	}
+
+	/**
+	 * Remaps a field or method descriptor.
+	 *
+	 * <p>If the descriptor is invalid, the passed descriptor is returned.
+	 *
+	 * @param descriptor the descriptor
+	 * @param lookup     the lookup of class names
+	 * @return the remapped descriptor
+	 */
+	public static String mapDescriptor(String descriptor, ClassLookup lookup) {
+		int start = descriptor.indexOf('L');
+		if (start < 0) {
+			return descriptor;
+		}
+		@Nullable StringBuilder builder = null;
+		int copied = 0;
+		while (start >= 0) {
+			final int end = descriptor.indexOf(';', start + 1);
+			if (end < 0)
+				return descriptor; // Invalid desc, nah!
+			final @Nullable String mapped = lookup.map(descriptor, start + 1, end);
+			if (mapped != null && !matches(descriptor, start + 1, end, mapped)) {
+				if (builder == null) {
+					builder = new StringBuilder(descriptor.length() + 16);
+				}
+				builder.append(descriptor, copied, start + 1).append(mapped);
+				copied = end;
+			}
+			start = descriptor.indexOf('L', end + 1);
+		}
+		return builder == null ? descriptor : builder.append(descriptor, copied, descriptor.length()).toString();
+	}
+
+	/**
+	 * Remaps a generic signature of a class, field or method.
+	 *
+	 * <p>The names of inner classes after a {@code .} separator are looked up by
+	 * their binary name, such as {@code pkg/Outer$Inner}, and replaced by the part
+	 * of the new name after its outer class, or else after its last {@code $}. They
+	 * are kept if the new name has no {@code $}, as a signature cannot express it.
+	 *
+	 * @param signature the signature
+	 * @param lookup    the lookup of class names
+	 * @return the remapped signature
+	 * @throws IllegalArgumentException if the signature is malformed
+	 */
+	public static String mapSignature(String signature, ClassLookup lookup) throws IllegalArgumentException {
+		if (signature.indexOf('L') < 0) {
+			return signature;
+		}
+		final SignatureRemapper remapper = new SignatureRemapper(signature, lookup);
+		int i = 0;
+		if (remapper.at(0) == '<') {
+			i = remapper.typeParameters(0);
+		}
+		while (i < signature.length()) {
+			final char c = signature.charAt(i);
+			i = c == '(' || c == ')' || c == '^' ? i + 1 : remapper.type(i);
+		}
+		return remapper.result();
+	}
+
+	static boolean matches(String source, int start, int end, String name) {
+		return name.length() == end - start && source.regionMatches(start, name, 0, name.length());
+	}
+
+	private DescriptorRemapper() {
+	}
+
+	/**
+	 * A recursive descent over the grammar of generic signatures, which copies
+	 * the signature lazily once a class name is replaced.
+	 */
+	private static final class SignatureRemapper {
+		private final String signature;
+		private final ClassLookup lookup;
+		private @Nullable StringBuilder builder;
+		private int copied;
+
+		SignatureRemapper(String signature, ClassLookup lookup) {
+			this.signature = signature;
+			this.lookup = lookup;
+		}
+
+		char at(int index) {
+			if (index >= signature.length())
+				throw new IllegalArgumentException("Unexpected end of signature " + signature + "!");
+			return signature.charAt(index);
+		}
+
+		int indexOf(char c, int from) {
+			final int ret = signature.indexOf(c, from);
+			if (ret < 0)
+				throw new IllegalArgumentException("Missing '" + c + "' in signature " + signature + "!");
+			return ret;
+		}
+
+		// <T:Lbound;U::Linterface;>
+		int typeParameters(int i) {
+			i++;
+			while (at(i) != '>') {
+				i = indexOf(':', i);
+				while (at(i) == ':') {
+					i++;
+					final char c = at(i);
+					if (c == 'L' || c == 'T' || c == '[') {
+						i = type(i);
+					}
+				}
+			}
+			return i + 1;
+		}
+
+		int type(int i) {
+			switch (at(i)) {
+				case 'L':
+					return classType(i);
+				case 'T':
+					return indexOf(';', i) + 1;
+				case '[':
+					return type(i + 1);
+				default:
+					return i + 1;
+			}
+		}
+
+		// Lpkg/Outer<TT;>.Inner<*>;
+		int classType(int i) {
+			int start = i + 1;
+			int end = nameEnd(start);
+			final @Nullable String mapped = lookup.map(signature, start, end);
+			if (mapped != null && !matches(signature, start, end, mapped)) {
+				replace(start, end, mapped);
+			}
+			@Nullable String outer = null;
+			@Nullable String mappedOuter = null;
+			while (true) {
+				i = end;
+				char c = at(i);
+				if (c == '<') {
+					i++;
+					while ((c = at(i)) != '>') {
+						if (c == '*') {
+							i++;
+						} else {
+							i = type(c == '+' || c == '-' ? i + 1 : i);
+						}
+					}
+					c = at(++i);
+				}
+				if (c != '.') {
+					if (c != ';')
+						throw new IllegalArgumentException("Invalid class type in signature " + signature + "!");
+					return i + 1;
+				}
+				if (outer == null || mappedOuter == null) {
+					outer = signature.substring(start, end);
+					mappedOuter = mapped == null ? outer : mapped;
+				}
+				start = i + 1;
+				end = nameEnd(start);
+				final String name = signature.substring(start, end);
+				outer = outer + '$' + name;
+				final @Nullable String mappedInner = lookup.map(outer, 0, outer.length());
+				if (mappedInner == null) {
+					mappedOuter = mappedOuter + '$' + name;
+					continue;
+				}
+				final int prefix = mappedOuter.length();
+				final String inner;
+				if (mappedInner.length() > prefix && mappedInner.charAt(prefix) == '$' && mappedInner.startsWith(mappedOuter)) {
+					inner = mappedInner.substring(prefix + 1);
+				} else {
+					final int split = mappedInner.lastIndexOf('$');
+					inner = split < 0 ? name : mappedInner.substring(split + 1); // not an inner class any more
+				}
+				if (!inner.equals(name)) {
+					replace(start, end, inner);
+				}
+				mappedOuter = mappedInner;
+			}
+		}
+
+		private int nameEnd(int i) {
+			char c;
+			while ((c = at(i)) != ';' && c != '<' && c != '.') {
+				i++;
+			}
+			return i;
+		}
+
+		private void replace(int start, int end, String replacement) {
+			StringBuilder builder = this.builder;
+			if (builder == null) {
+				builder = this.builder = new StringBuilder(signature.length() + 16);
+			}
+			builder.append(signature, copied, start).append(replacement);
+			copied = end;
+		}
+
+		String result() {
+			final @Nullable StringBuilder builder = this.builder;
+			return builder == null ? signature : builder.append(signature, copied, signature.length()).toString();
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mapping.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Maps member references through the class hierarchy.
+ *
+ * <p>A reference may name a subclass of the class declaring the member, so a
+ * member not mapped on the owner of a reference is looked up on the supertypes
+ * of the owner, in the order the JVM resolves it: the superclass chain first,
+ * then the superinterfaces for methods, and the direct superinterfaces before
+ * the superclass for fields (JVMS §5.4.3.2). The result for each owner, name and
+ * descriptor is cached, including for the supertypes visited on the way.
+ *
+ * <p>This resolver is safe for concurrent use if its lookups and hierarchy are.
+ */
+public final class HierarchyResolver {
+
+	// marks a member which is not mapped on a class or its supertypes
+	private static final String UNMAPPED = new String();
+
+	/**
+	 * Looks up the mapped name of a member declared by a class.
+	 */
+	@FunctionalInterface
+	public interface MemberLookup {
+		/**
+		 * Looks up the mapped name of a member declared by a class.
+		 *
+		 * @param owner      the declaring class
+		 * @param name       the name of the member
+		 * @param descriptor the descriptor of the member
+		 * @return the mapped name, or {@code null} if the class declares no such mapped member
+		 */
+		@Nullable String map(String owner, String name, String descriptor);
+	}
+
+	private final ClassHierarchy hierarchy;
+	private final MemberLookup fields;
+	private final MemberLookup methods;
+	private final Map<EntryTriple, String> fieldCache = new ConcurrentHashMap<>();
+	private final Map<EntryTriple, String> methodCache = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates the resolver.
+	 *
+	 * @param hierarchy the class hierarchy, in the namespace of the references
+	 * @param fields    the lookup of fields declared by a class
+	 * @param methods   the lookup of methods declared by a class
+	 */
+	public HierarchyResolver(ClassHierarchy hierarchy, MemberLookup fields, MemberLookup methods) {
+		this.hierarchy = hierarchy;
+		this.fields = fields;
+		this.methods = methods;
+	}
+
+	/**
+	 * Maps the name of a field reference.
+	 *
+	 * @param owner      the owner of the reference
+	 * @param name       the name of the field
+	 * @param descriptor the descriptor of the field
+	 * @return the mapped name, or {@code name} if the field is not mapped
+	 */
+	public String mapFieldName(String owner, String name, String descriptor) {
+		final @Nullable String ret = resolve(fields, fieldCache, true, owner, name, descriptor, null);
+		return ret == null ? name : ret;
+	}
+
+	/**
+	 * Maps the name of a method reference.
+	 *
+	 * @param owner      the owner of the reference
+	 * @param name       the name of the method
+	 * @param descriptor the descriptor of the method
+	 * @return the mapped name, or {@code name} if the method is not mapped
+	 */
+	public String mapMethodName(String owner, String name, String descriptor) {
+		final @Nullable String ret = resolve(methods, methodCache, false, owner, name, descriptor, null);
+		return ret == null ? name : ret;
+	}
+
+	/**
+	 * Resolves a member on a class and its supertypes.
+	 *
+	 * @param interfacesFirst whether the superinterfaces are searched before the superclass
+	 */
+	private @Nullable String resolve(MemberLookup lookup, Map<EntryTriple, String> cache, boolean interfacesFirst, String owner, String name, String descriptor, @Nullable Set<String> visiting) {
+		final EntryTriple key = new EntryTriple(owner, name, descriptor);
+		final @Nullable String cached = cache.get(key);
+		if (cached != null) {
+			return cached == UNMAPPED ? null : cached;
+		}
+
+		@Nullable String ret = lookup.map(owner, name, descriptor);
+		boolean complete = true;
+		if (ret == null) {
+			if (visiting == null) {
+				visiting = new HashSet<>();
+			}
+			visiting.add(owner);
+			final Collection<String> supertypes = hierarchy.getSupertypes(owner);
+			final Iterable<String> order = interfacesFirst && supertypes.size() > 1 ? interfacesFirst(supertypes) : supertypes;
+			for (String supertype : order) {
+				if (visiting.contains(supertype)) {
+					complete = false; // a cycle, whose members are resolved from elsewhere
+					continue;
+				}
+				ret = resolve(lookup, cache, interfacesFirst, supertype, name, descriptor, visiting);
+				if (ret != null) {
+					break;
+				}
+			}
+			visiting.remove(owner);
+		}
+		if (ret != null || complete) {
+			cache.putIfAbsent(key, ret == null ? UNMAPPED : ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * Moves the superclass, which comes first, behind the superinterfaces.
+	 */
+	private static List<String> interfacesFirst(Collection<String> supertypes) {
+		final List<String> ret = new ArrayList<>(supertypes);
+		ret.add(ret.remove(0));
+		return ret;
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mapping.util;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A hash table of values keyed by the owner, name and descriptor of members.
+ *
+ * <p>Unlike a map keyed by {@link EntryTriple}, the table is probed with the
+ * three strings directly, so a lookup creates no key object. It combines the
+ * cached hash codes of the strings and uses open addressing with linear probing.
+ *
+ * <p>The table is not synchronized; it can be read concurrently once it is
+ * filled and safely published.
+ */
+public final class MemberTable {
+
+	private static final int MIN_CAPACITY = 16;
+
+	private int size;
+	private int mask;
+	private int[] hashes;
+	private @Nullable String[] owners;
+	private @Nullable String[] names;
+	private @Nullable String[] descriptors;
+	private @Nullable String[] values;
+
+	/**
+	 * Creates an empty table.
+	 */
+	public MemberTable() {
+		this(0);
+	}
+
+	/**
+	 * Creates an empty table sized for a number of members.
+	 *
+	 * @param expectedSize the expected number of members
+	 */
+	public MemberTable(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	/**
+	 * Gets the number of members in this table.
+	 *
+	 * @return the number of members
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Puts the value of a member, replacing its previous value.
+	 *
+	 * @param owner      the owner of the member
+	 * @param name       the name of the member
+	 * @param descriptor the descriptor of the member
+	 * @param value      the value
+	 * @return the previous value, or {@code null} if there was none
+	 */
+	public @Nullable String put(String owner, String name, String descriptor, String value) {
+		final int hash = hash(owner, name, descriptor);
+		int i = find(hash, owner, name, descriptor);
+		if (values[i] != null) {
+			final @Nullable String ret = values[i];
+			values[i] = value;
+			return ret;
+		}
+		if ((size + 1) * 2 > hashes.length) {
+			rehash(hashes.length << 1);
+			i = find(hash, owner, name, descriptor);
+		}
+		hashes[i] = hash;
+		owners[i] = owner;
+		names[i] = name;
+		descriptors[i] = descriptor;
+		values[i] = value;
+		size++;
+		return null;
+	}
+
+	/**
+	 * Gets the value of a member.
+	 *
+	 * @param owner      the owner of the member
+	 * @param name       the name of the member
+	 * @param descriptor the descriptor of the member
+	 * @return the value, or {@code null} if the member is not in this table
+	 */
+	public @Nullable String get(String owner, String name, String descriptor) {
+		return values[find(hash(owner, name, descriptor), owner, name, descriptor)];
+	}
+
+	/**
+	 * Gets the value of a member, or a default value.
+	 *
+	 * @param owner        the owner of the member
+	 * @param name         the name of the member
+	 * @param descriptor   the descriptor of the member
+	 * @param defaultValue the value returned if the member is not in this table
+	 * @return the value, or {@code defaultValue} if the member is not in this table
+	 */
+	public String getOrDefault(String owner, String name, String descriptor, String defaultValue) {
+		final @Nullable String ret = get(owner, name, descriptor);
+		return ret == null ? defaultValue : ret;
+	}
+
+	private static int hash(String owner, String name, String descriptor) {
+		final int hash = (owner.hashCode() * 31 + name.hashCode()) * 31 + descriptor.hashCode();
+		return hash ^ hash >>> 16;
+	}
+
+	/**
+	 * Finds the slot of a member, or the empty slot where it would be put.
+	 */
+	private int find(int hash, String owner, String name, String descriptor) {
+		int i = hash & mask;
+		while (values[i] != null) {
+			if (hashes[i] == hash && name.equals(names[i]) && descriptor.equals(descriptors[i]) && owner.equals(owners[i])) {
+				return i;
+			}
+			i = i + 1 & mask;
+		}
+		return i;
+	}
+
+	private void allocate(int capacity) {
+		mask = capacity - 1;
+		hashes = new int[capacity];
+		owners = new String[capacity];
+		names = new String[capacity];
+		descriptors = new String[capacity];
+		values = new String[capacity];
+	}
+
+	private void rehash(int capacity) {
+		final int[] oldHashes = hashes;
+		final @Nullable String[] oldOwners = owners;
+		final @Nullable String[] oldNames = names;
+		final @Nullable String[] oldDescriptors = descriptors;
+		final @Nullable String[] oldValues = values;
+		allocate(capacity);
+		for (int j = 0; j < oldValues.length; j++) {
+			if (oldValues[j] != null) {
+				int i = oldHashes[j] & mask;
+				while (values[i] != null) {
+					i = i + 1 & mask;
+				}
+				hashes[i] = oldHashes[j];
+				owners[i] = oldOwners[j];
+				names[i] = oldNames[j];
+				descriptors[i] = oldDescriptors[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+}
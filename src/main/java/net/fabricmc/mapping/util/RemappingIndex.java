@@ -0,0 +1,373 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mapping.util;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import net.fabricmc.mapping.reader.v2.TinyMetadata;
+import net.fabricmc.mapping.tree.ClassDef;
+import net.fabricmc.mapping.tree.Descriptored;
+import net.fabricmc.mapping.tree.FieldDef;
+import net.fabricmc.mapping.tree.Mapped;
+import net.fabricmc.mapping.tree.MethodDef;
+import net.fabricmc.mapping.tree.TinyTree;
+
+/**
+ * The class and member names of a mapping from one namespace to another, indexed
+ * for remapping.
+ *
+ * <p>Classes and members are keyed by their names and descriptors in the source
+ * namespace. If several classes or members have the same key, the last one wins.
+ *
+ * <p>Indices are immutable, so the one of a tree from {@link #of(TinyTree, int, int)}
+ * is shared by all remappers between the same namespaces.
+ */
+public final class RemappingIndex {
+
+	private static final int MIN_CHUNK_SIZE = 256;
+	// per tree and namespace pair, softly held so the remappers decide how long an index lives
+	private static final Map<TinyTree, AtomicReferenceArray<@Nullable SoftReference<RemappingIndex>>> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+	private final Map<String, String> classNames;
+	private final Map<String, String> reverseClassNames;
+	private final MemberTable fieldNames;
+	private final MemberTable methodNames;
+
+	private RemappingIndex(Map<String, String> classNames, Map<String, String> reverseClassNames, MemberTable fieldNames, MemberTable methodNames) {
+		this.classNames = Collections.unmodifiableMap(classNames);
+		this.reverseClassNames = Collections.unmodifiableMap(reverseClassNames);
+		this.fieldNames = fieldNames;
+		this.methodNames = methodNames;
+	}
+
+	/**
+	 * Obtains the index of a tree from one namespace to another.
+	 *
+	 * <p>The index is built once and shared by later calls for the same tree and
+	 * namespaces as long as any of them keeps it; the cache itself holds neither
+	 * trees nor indices strongly.
+	 *
+	 * @param tree the tree
+	 * @param from the source namespace
+	 * @param to   the target namespace
+	 * @return the index
+	 * @throws IllegalArgumentException if either namespace does not exist
+	 */
+	public static RemappingIndex of(TinyTree tree, String from, String to) {
+		final TinyMetadata metadata = tree.getMetadata();
+		return of(tree, index(metadata, from), index(metadata, to), null);
+	}
+
+	private static int index(TinyMetadata metadata, String namespace) {
+		final int index = metadata.index(namespace);
+		if (index < 0)
+			throw new IllegalArgumentException("Unknown namespace: " + namespace);
+		return index;
+	}
+
+	/**
+	 * Obtains the index of a tree from one namespace to another.
+	 *
+	 * @param tree the tree
+	 * @param from the index of the source namespace
+	 * @param to   the index of the target namespace
+	 * @return the index
+	 * @throws IllegalArgumentException if either index is not one of a namespace of the tree
+	 * @see #of(TinyTree, String, String)
+	 */
+	public static RemappingIndex of(TinyTree tree, int from, int to) {
+		return of(tree, from, to, null);
+	}
+
+	/**
+	 * Obtains the index of a tree from one namespace to another, building it in
+	 * parallel if it is not shared yet.
+	 *
+	 * @param tree the tree
+	 * @param from the index of the source namespace
+	 * @param to   the index of the target namespace
+	 * @param pool the pool the index is built on, or {@code null} to build it on the calling thread
+	 * @return the index
+	 * @throws IllegalArgumentException if either index is not one of a namespace of the tree
+	 * @see #of(TinyTree, String, String)
+	 * @see #build(Collection, String, String, ForkJoinPool)
+	 */
+	public static RemappingIndex of(TinyTree tree, int from, int to, @Nullable ForkJoinPool pool) {
+		final int namespaceCount = tree.getMetadata().getNamespaces().size();
+		if (from < 0 || from >= namespaceCount)
+			throw new IllegalArgumentException("Unknown namespace index: " + from);
+		if (to < 0 || to >= namespaceCount)
+			throw new IllegalArgumentException("Unknown namespace index: " + to);
+		final AtomicReferenceArray<@Nullable SoftReference<RemappingIndex>> indices = CACHE.computeIfAbsent(tree, t -> new AtomicReferenceArray<>(namespaceCount * namespaceCount));
+		final int slot = from * namespaceCount + to;
+		while (true) {
+			final @Nullable SoftReference<RemappingIndex> current = indices.get(slot);
+			final @Nullable RemappingIndex held = current == null ? null : current.get();
+			if (held != null) {
+				return held;
+			}
+			final RemappingIndex ret = build(tree.getClasses(), Namespace.of(from), Namespace.of(to), pool);
+			if (indices.compareAndSet(slot, current, new SoftReference<>(ret))) {
+				return ret;
+			}
+		}
+	}
+
+	/**
+	 * Builds the index of classes from one namespace to another.
+	 *
+	 * @param classes the classes
+	 * @param from    the source namespace
+	 * @param to      the target namespace
+	 * @return the index
+	 */
+	public static RemappingIndex build(Collection<ClassDef> classes, String from, String to) {
+		return build(classes, Namespace.of(from), Namespace.of(to), null);
+	}
+
+	/**
+	 * Builds the index of classes from one namespace to another.
+	 *
+	 * @param classes the classes
+	 * @param from    the index of the source namespace
+	 * @param to      the index of the target namespace
+	 * @return the index
+	 */
+	public static RemappingIndex build(Collection<ClassDef> classes, int from, int to) {
+		return build(classes, Namespace.of(from), Namespace.of(to), null);
+	}
+
+	/**
+	 * Builds the index of classes from one namespace to another in parallel.
+	 *
+	 * <p>The classes are split into runs, whose names and descriptors are computed
+	 * on the {@code pool}. The runs are then merged in order, so the index is the
+	 * same as one built by {@link #build(Collection, String, String)}.
+	 *
+	 * @param classes the classes
+	 * @param from    the source namespace
+	 * @param to      the target namespace
+	 * @param pool    the pool the runs are computed on
+	 * @return the index
+	 */
+	public static RemappingIndex build(Collection<ClassDef> classes, String from, String to, ForkJoinPool pool) {
+		return build(classes, Namespace.of(from), Namespace.of(to), pool);
+	}
+
+	/**
+	 * Builds the index of classes from one namespace to another in parallel.
+	 *
+	 * @param classes the classes
+	 * @param from    the index of the source namespace
+	 * @param to      the index of the target namespace
+	 * @param pool    the pool the runs are computed on
+	 * @return the index
+	 * @see #build(Collection, String, String, ForkJoinPool)
+	 */
+	public static RemappingIndex build(Collection<ClassDef> classes, int from, int to, ForkJoinPool pool) {
+		return build(classes, Namespace.of(from), Namespace.of(to), pool);
+	}
+
+	private static RemappingIndex build(Collection<ClassDef> classes, Namespace from, Namespace to, @Nullable ForkJoinPool pool) {
+		int fieldCount = 0;
+		int methodCount = 0;
+		for (ClassDef clz : classes) {
+			fieldCount += clz.getFields().size();
+			methodCount += clz.getMethods().size();
+		}
+		final Map<String, String> classNames = new HashMap<>(classes.size() * 4 / 3 + 1);
+		final Map<String, String> reverseClassNames = new HashMap<>(classes.size() * 4 / 3 + 1);
+		final MemberTable fieldNames = new MemberTable(fieldCount);
+		final MemberTable methodNames = new MemberTable(methodCount);
+
+		final int chunkCount = pool == null ? 1 : Math.max(1, Math.min(pool.getParallelism() * 4, classes.size() / MIN_CHUNK_SIZE));
+		if (pool == null || chunkCount == 1) {
+			for (ClassDef clz : classes) {
+				final String className = from.name(clz);
+				final String mappedClassName = to.name(clz);
+				classNames.put(className, mappedClassName);
+				reverseClassNames.put(mappedClassName, className);
+				for (FieldDef field : clz.getFields()) {
+					fieldNames.put(className, from.name(field), from.descriptor(field), to.name(field));
+				}
+				for (MethodDef method : clz.getMethods()) {
+					methodNames.put(className, from.name(method), from.descriptor(method), to.name(method));
+				}
+			}
+		} else {
+			final List<ClassDef> list = new ArrayList<>(classes);
+			final List<ForkJoinTask<Chunk>> tasks = new ArrayList<>(chunkCount);
+			for (int i = 0; i < chunkCount; i++) {
+				final List<ClassDef> run = list.subList((int) ((long) list.size() * i / chunkCount), (int) ((long) list.size() * (i + 1) / chunkCount));
+				tasks.add(pool.submit(() -> new Chunk(run, from, to)));
+			}
+			for (ForkJoinTask<Chunk> task : tasks) {
+				task.join().mergeInto(classNames, reverseClassNames, fieldNames, methodNames);
+			}
+		}
+		return new RemappingIndex(classNames, reverseClassNames, fieldNames, methodNames);
+	}
+
+	/**
+	 * Gets the map from class names in the source namespace to the target namespace.
+	 *
+	 * @return the unmodifiable class name map
+	 */
+	public Map<String, String> getClassNames() {
+		return classNames;
+	}
+
+	/**
+	 * Gets the map from class names in the target namespace back to the source namespace.
+	 *
+	 * <p>If several classes have the same name in the target namespace, the last one wins.
+	 *
+	 * @return the unmodifiable reverse class name map
+	 */
+	public Map<String, String> getReverseClassNames() {
+		return reverseClassNames;
+	}
+
+	/**
+	 * Maps a class name to the target namespace.
+	 *
+	 * @param className the class name in the source namespace
+	 * @return the mapped name, or {@code null} if the class is not mapped
+	 */
+	public @Nullable String mapClassName(String className) {
+		return classNames.get(className);
+	}
+
+	/**
+	 * Maps a class name from the target namespace back to the source namespace.
+	 *
+	 * @param className the class name in the target namespace
+	 * @return the name in the source namespace, or {@code null} if the class is not mapped
+	 */
+	public @Nullable String unmapClassName(String className) {
+		return reverseClassNames.get(className);
+	}
+
+	/**
+	 * Maps a field name to the target namespace.
+	 *
+	 * @param owner      the class declaring the field, in the source namespace
+	 * @param name       the name of the field in the source namespace
+	 * @param descriptor the descriptor of the field in the source namespace
+	 * @return the mapped name, or {@code null} if the field is not mapped
+	 */
+	public @Nullable String mapFieldName(String owner, String name, String descriptor) {
+		return fieldNames.get(owner, name, descriptor);
+	}
+
+	/**
+	 * Maps a method name to the target namespace.
+	 *
+	 * @param owner      the class declaring the method, in the source namespace
+	 * @param name       the name of the method in the source namespace
+	 * @param descriptor the descriptor of the method in the source namespace
+	 * @return the mapped name, or {@code null} if the method is not mapped
+	 */
+	public @Nullable String mapMethodName(String owner, String name, String descriptor) {
+		return methodNames.get(owner, name, descriptor);
+	}
+
+	/**
+	 * The names of a run of classes, computed in parallel with other runs.
+	 */
+	private static final class Chunk {
+		// pairs of class names, and quadruples of member owners, names, descriptors and mapped names
+		private final List<String> classes = new ArrayList<>();
+		private final List<String> fields = new ArrayList<>();
+		private final List<String> methods = new ArrayList<>();
+
+		Chunk(List<ClassDef> run, Namespace from, Namespace to) {
+			for (ClassDef clz : run) {
+				final String className = from.name(clz);
+				classes.add(className);
+				classes.add(to.name(clz));
+				for (FieldDef field : clz.getFields()) {
+					Collections.addAll(fields, className, from.name(field), from.descriptor(field), to.name(field));
+				}
+				for (MethodDef method : clz.getMethods()) {
+					Collections.addAll(methods, className, from.name(method), from.descriptor(method), to.name(method));
+				}
+			}
+		}
+
+		void mergeInto(Map<String, String> classNames, Map<String, String> reverseClassNames, MemberTable fieldNames, MemberTable methodNames) {
+			for (int i = 0; i < classes.size(); i += 2) {
+				classNames.put(classes.get(i), classes.get(i + 1));
+				reverseClassNames.put(classes.get(i + 1), classes.get(i));
+			}
+			for (int i = 0; i < fields.size(); i += 4) {
+				fieldNames.put(fields.get(i), fields.get(i + 1), fields.get(i + 2), fields.get(i + 3));
+			}
+			for (int i = 0; i < methods.size(); i += 4) {
+				methodNames.put(methods.get(i), methods.get(i + 1), methods.get(i + 2), methods.get(i + 3));
+			}
+		}
+	}
+
+	/**
+	 * A namespace given by its name or by its index.
+	 */
+	private interface Namespace {
+		String name(Mapped mapped);
+
+		String descriptor(Descriptored descriptored);
+
+		static Namespace of(String namespace) {
+			return new Namespace() {
+				@Override
+				public String name(Mapped mapped) {
+					return mapped.getName(namespace);
+				}
+
+				@Override
+				public String descriptor(Descriptored descriptored) {
+					return descriptored.getDescriptor(namespace);
+				}
+			};
+		}
+
+		static Namespace of(int namespace) {
+			return new Namespace() {
+				@Override
+				public String name(Mapped mapped) {
+					return mapped.getName(namespace);
+				}
+
+				@Override
+				public String descriptor(Descriptored descriptored) {
+					return descriptored.getDescriptor(namespace);
+				}
+			};
+		}
+	}
+}
@@ -17,14 +17,11 @@
 package net.fabricmc.mapping.util;
 
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.spongepowered.asm.mixin.extensibility.IRemapper;
 
 import net.fabricmc.mapping.tree.ClassDef;
-import net.fabricmc.mapping.tree.FieldDef;
-import net.fabricmc.mapping.tree.MethodDef;
 import net.fabricmc.mapping.tree.TinyTree;
 
 /**
@@ -32,43 +29,87 @@ import net.fabricmc.mapping.tree.TinyTree;
  */
 public class MixinRemapper implements IRemapper {
 
-	private final Map<EntryTriple, String> fieldNames = new HashMap<>();
-	private final Map<EntryTriple, String> methodNames = new HashMap<>();
+	private final RemappingIndex index;
 	private final ClassMapper mapper;
 	private final ClassMapper unmapper;
+	private final @Nullable HierarchyResolver resolver;
 
 	public MixinRemapper(TinyTree mapping, String from, String to) {
-		this(mapping.getClasses(), from, to);
+		this(RemappingIndex.of(mapping, from, to));
 	}
 
 	public MixinRemapper(Collection<ClassDef> classes, String from, String to) {
-		Map<String, String> classNames = new HashMap<>();
-		Map<String, String> unmapClassNames = new HashMap<>();
-		for (ClassDef clz : classes) {
-			String className = clz.getName(from);
-			String mappedClassName = clz.getName(to);
-			classNames.put(className, mappedClassName);
-			unmapClassNames.put(mappedClassName, className);
-			for (FieldDef field : clz.getFields()) {
-				fieldNames.put(new EntryTriple(className, field.getName(from), field.getDescriptor(from)), field.getName(to));
-			}
-			for (MethodDef method : clz.getMethods()) {
-				methodNames.put(new EntryTriple(className, method.getName(from), method.getDescriptor(from)), method.getName(to));
-			}
-		}
-
-		this.mapper = new ClassMapper(classNames);
-		this.unmapper = new ClassMapper(unmapClassNames);
+		this(RemappingIndex.build(classes, from, to));
+	}
+
+	/**
+	 * Creates a remapper between two namespaces given by their indices from
+	 * {@link net.fabricmc.mapping.reader.v2.TinyMetadata#index(String)}.
+	 */
+	public MixinRemapper(TinyTree mapping, int from, int to) {
+		this(RemappingIndex.of(mapping, from, to));
+	}
+
+	public MixinRemapper(Collection<ClassDef> classes, int from, int to) {
+		this(RemappingIndex.build(classes, from, to));
+	}
+
+	/**
+	 * Creates a remapper which also maps member references whose owner inherits
+	 * the member.
+	 *
+	 * @param mapping   the mapping
+	 * @param from      the source namespace
+	 * @param to        the target namespace
+	 * @param hierarchy the class hierarchy in the source namespace
+	 * @see HierarchyResolver
+	 */
+	public MixinRemapper(TinyTree mapping, String from, String to, ClassHierarchy hierarchy) {
+		this(RemappingIndex.of(mapping, from, to), hierarchy);
+	}
+
+	public MixinRemapper(TinyTree mapping, int from, int to, ClassHierarchy hierarchy) {
+		this(RemappingIndex.of(mapping, from, to), hierarchy);
+	}
+
+	/**
+	 * Creates a remapper backed by an index, such as one built in parallel by
+	 * {@link RemappingIndex#build(Collection, String, String, java.util.concurrent.ForkJoinPool)}.
+	 *
+	 * @param index the index
+	 */
+	public MixinRemapper(RemappingIndex index) {
+		this(index, null);
+	}
+
+	/**
+	 * Creates a remapper backed by an index which also maps member references whose
+	 * owner inherits the member.
+	 *
+	 * @param index     the index
+	 * @param hierarchy the class hierarchy in the source namespace, or {@code null}
+	 */
+	public MixinRemapper(RemappingIndex index, @Nullable ClassHierarchy hierarchy) {
+		this.index = index;
+		this.mapper = new ClassMapper(index.getClassNames());
+		this.unmapper = new ClassMapper(index.getReverseClassNames());
+		this.resolver = hierarchy == null ? null : new HierarchyResolver(hierarchy, index::mapFieldName, index::mapMethodName);
 	}
 
 	@Override
 	public String mapMethodName(String owner, String name, String desc) {
-		return methodNames.getOrDefault(new EntryTriple(owner, name, desc), name);
+		if (resolver != null)
+			return resolver.mapMethodName(owner, name, desc);
+		final @Nullable String ret = index.mapMethodName(owner, name, desc);
+		return ret == null ? name : ret;
 	}
 
 	@Override
 	public String mapFieldName(String owner, String name, String desc) {
-		return fieldNames.getOrDefault(new EntryTriple(owner, name, desc), name);
+		if (resolver != null)
+			return resolver.mapFieldName(owner, name, desc);
+		final @Nullable String ret = index.mapFieldName(owner, name, desc);
+		return ret == null ? name : ret;
 	}
 
 	@Override
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.reader.v2;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.fabricmc.mapping.tree.ClassDef;
+import net.fabricmc.mapping.tree.MethodDef;
+import net.fabricmc.mapping.tree.TinyMappingFactory;
+import net.fabricmc.mapping.tree.TinyTree;
+
+public class FilteringTinyVisitorTest {
+
+	@Test
+	public void testFindOneClass() throws IOException {
+		ClassFinder finder = new ClassFinder("net/minecraft/class_1158");
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(FilteringTinyVisitorTest.class.getResourceAsStream("/bigboi_mappings.tinyv2"), StandardCharsets.UTF_8))) {
+			TinyV2Factory.visit(reader, finder);
+		}
+
+		Assertions.assertEquals(0, finder.depth);
+		Assertions.assertEquals(9, finder.members.size());
+		Assertions.assertEquals("getX", finder.members.get(0));
+		Assertions.assertTrue(finder.members.contains("components"));
+		Assertions.assertEquals(1, finder.parameters);
+	}
+
+	@Test
+	public void testSlimTree() throws IOException {
+		TinyTree full;
+		TinyTree slim;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(FilteringTinyVisitorTest.class.getResourceAsStream("/bigboi_mappings.tinyv2"), StandardCharsets.UTF_8))) {
+			full = TinyMappingFactory.load(reader, false);
+		}
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(FilteringTinyVisitorTest.class.getResourceAsStream("/bigboi_mappings.tinyv2"), StandardCharsets.UTF_8))) {
+			slim = TinyMappingFactory.load(reader, true);
+		}
+
+		Assertions.assertEquals(full.getClasses().size(), slim.getClasses().size());
+		for (ClassDef clz : slim.getClasses()) {
+			ClassDef other = full.getDefaultNamespaceClassMap().get(clz.getName("official"));
+			Assertions.assertEquals(other.getMethods().size(), clz.getMethods().size());
+			Assertions.assertEquals(other.getFields().size(), clz.getFields().size());
+			for (MethodDef method : clz.getMethods()) {
+				Assertions.assertTrue(method.getParameters().isEmpty());
+				Assertions.assertNull(method.getComment());
+			}
+		}
+	}
+
+	private static final class ClassFinder implements FilteringTinyVisitor {
+		private final String target;
+		final List<String> members = new ArrayList<>();
+		int parameters;
+		int depth;
+
+		ClassFinder(String target) {
+			this.target = target;
+		}
+
+		@Override
+		public boolean visitClass(MappingGetter name) {
+			depth++;
+			return name.getRawView(1).toString().equals(target);
+		}
+
+		@Override
+		public boolean visitField(MappingGetter name, String descriptor) {
+			depth++;
+			members.add(name.get(2));
+			return false;
+		}
+
+		@Override
+		public boolean visitMethod(MappingGetter name, String descriptor) {
+			depth++;
+			members.add(name.get(2));
+			return name.get(2).equals("cos");
+		}
+
+		@Override
+		public void pushParameter(MappingGetter name, int localVariableIndex) {
+			depth++;
+			parameters++;
+		}
+
+		@Override
+		public void pushComment(String comment) {
+			depth++;
+		}
+
+		@Override
+		public void pop(int count) {
+			depth -= count;
+		}
+	}
+}
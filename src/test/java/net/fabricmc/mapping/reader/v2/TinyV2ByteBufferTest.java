@@ -0,0 +1,194 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.reader.v2;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+public class TinyV2ByteBufferTest {
+
+	@Test
+	public void testSameEventsAsReader() throws IOException {
+		for (String resource : new String[]{"/inhtree.tiny", "/bigboi_mappings.tinyv2"}) {
+			byte[] content = readResource(resource);
+			List<String> expected = visitReader(content);
+
+			Assertions.assertEquals(expected, visitBuffer(ByteBuffer.wrap(content)), resource);
+
+			ByteBuffer direct = ByteBuffer.allocateDirect(content.length);
+			direct.put(content).flip();
+			Assertions.assertEquals(expected, visitBuffer(direct), resource);
+			Assertions.assertEquals(0, direct.position());
+		}
+	}
+
+	@Test
+	public void testReusedGetters() throws IOException {
+		byte[] content = readResource("/bigboi_mappings.tinyv2");
+		List<String> expected = visitBuffer(ByteBuffer.wrap(content));
+
+		ReusingRecorder recorder = new ReusingRecorder();
+		TinyV2Factory.visit(ByteBuffer.wrap(content), recorder);
+		Assertions.assertEquals(expected, recorder.events);
+		Assertions.assertEquals(3, recorder.getters.size());
+
+		recorder = new ReusingRecorder();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8))) {
+			TinyV2Factory.visit(reader, recorder);
+		}
+		Assertions.assertEquals(expected, recorder.events);
+	}
+
+	@Test
+	public void testLineTerminators() throws IOException {
+		String unix = "tiny\t2\t0\ta\tb\n\tescaped-names\nc\tA\tB\n\tc\tcom\\tment\n\tm\t()V\tm\tn\n\t\tp\t1\tx\ty\n\t\tv\t2\t3\t-1\ts\t\n";
+		List<String> expected = visitReader(unix.getBytes(StandardCharsets.UTF_8));
+
+		Assertions.assertEquals(expected, visitBuffer(ByteBuffer.wrap(unix.getBytes(StandardCharsets.UTF_8))));
+		Assertions.assertEquals(expected, visitBuffer(ByteBuffer.wrap(unix.replace("\n", "\r\n").getBytes(StandardCharsets.UTF_8))));
+		Assertions.assertEquals(expected, visitBuffer(ByteBuffer.wrap(unix.substring(0, unix.length() - 1).getBytes(StandardCharsets.UTF_8))));
+	}
+
+	@Test
+	public void testSignedNumbers() throws IOException {
+		String signed = "tiny\t2\t0\ta\tb\nc\tA\tB\n\tm\t()V\tm\tn\n\t\tp\t+1\tx\ty\n\t\tv\t+2\t3\t-1\ts\t\n";
+		List<String> expected = visitReader(signed.replace("+", "").getBytes(StandardCharsets.UTF_8));
+
+		Assertions.assertEquals(expected, visitReader(signed.getBytes(StandardCharsets.UTF_8)));
+		Assertions.assertEquals(expected, visitBuffer(ByteBuffer.wrap(signed.getBytes(StandardCharsets.UTF_8))));
+		for (String number : new String[]{"+", "-", "+-1", "-+1", "++1"}) {
+			byte[] broken = signed.replace("+1", number).getBytes(StandardCharsets.UTF_8);
+			Assertions.assertThrows(MappingParseException.class, () -> visitBuffer(ByteBuffer.wrap(broken)), number);
+		}
+	}
+
+	@Test
+	public void testBrokenInput() {
+		Assertions.assertThrows(MappingParseException.class, () -> visitBuffer(ByteBuffer.allocate(0)));
+		Assertions.assertThrows(MappingParseException.class, () -> visitBuffer(ByteBuffer.wrap("tiny\t2\t0\ta\tb\nc\tA\tB\n\t\tp\t1\tx\ty\n".getBytes(StandardCharsets.UTF_8))));
+		Assertions.assertThrows(MappingParseException.class, () -> visitBuffer(ByteBuffer.wrap("tiny\t2\t0\ta\tb\nc\tA\n".getBytes(StandardCharsets.UTF_8))));
+	}
+
+	private static byte[] readResource(String name) throws IOException {
+		try (InputStream in = TinyV2ByteBufferTest.class.getResourceAsStream(name)) {
+			byte[] buf = new byte[8192];
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			int n;
+			while ((n = in.read(buf)) > 0) {
+				out.write(buf, 0, n);
+			}
+			return out.toByteArray();
+		}
+	}
+
+	private static List<String> visitReader(byte[] content) throws IOException {
+		Recorder recorder = new Recorder();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8))) {
+			TinyV2Factory.visit(reader, recorder);
+		}
+		return recorder.events;
+	}
+
+	private static List<String> visitBuffer(ByteBuffer buffer) {
+		Recorder recorder = new Recorder();
+		TinyV2Factory.visit(buffer, recorder);
+		return recorder.events;
+	}
+
+	static class Recorder implements TinyVisitor {
+		final List<String> events = new ArrayList<>();
+
+		@Override
+		public void start(TinyMetadata metadata) {
+			events.add("start " + metadata.getNamespaces() + " " + metadata.getProperties());
+		}
+
+		@Override
+		public void pushClass(MappingGetter name) {
+			events.add("class " + names(name));
+		}
+
+		@Override
+		public void pushField(MappingGetter name, String descriptor) {
+			events.add("field " + descriptor + " " + names(name));
+		}
+
+		@Override
+		public void pushMethod(MappingGetter name, String descriptor) {
+			events.add("method " + descriptor + " " + names(name));
+		}
+
+		@Override
+		public void pushParameter(MappingGetter name, int localVariableIndex) {
+			events.add("parameter " + localVariableIndex + " " + names(name));
+		}
+
+		@Override
+		public void pushLocalVariable(MappingGetter name, int localVariableIndex, int localVariableStartOffset, int localVariableTableIndex) {
+			events.add("local " + localVariableIndex + " " + localVariableStartOffset + " " + localVariableTableIndex + " " + names(name));
+		}
+
+		@Override
+		public void pushComment(String comment) {
+			events.add("comment " + comment);
+		}
+
+		@Override
+		public void pop(int count) {
+			events.add("pop " + count);
+		}
+
+		String names(MappingGetter name) {
+			return Arrays.toString(name.getRawNames()) + Arrays.toString(name.getAllNames()) + name.get(name.getRawNames().length - 1);
+		}
+	}
+
+	static final class ReusingRecorder extends Recorder {
+		final Set<MappingGetter> getters = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		@Override
+		public boolean allowsGetterReuse() {
+			return true;
+		}
+
+		@Override
+		String names(MappingGetter name) {
+			getters.add(name);
+			int count = name.getRawNames().length;
+			String[] raw = new String[count];
+			for (int i = 0; i < count; i++) {
+				raw[i] = name.getRawView(i).toString();
+			}
+			return Arrays.toString(raw) + Arrays.toString(name.getAllNames()) + name.getView(count - 1);
+		}
+	}
+}
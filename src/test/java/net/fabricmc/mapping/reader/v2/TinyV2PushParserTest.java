@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.reader.v2;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+public class TinyV2PushParserTest {
+
+	@Test
+	public void testChunkedBytes() throws IOException {
+		byte[] content = readResource("/bigboi_mappings.tinyv2");
+		List<String> expected = visitReader(content);
+		Random random = new Random(42);
+
+		for (int maxChunk : new int[]{1, 7, 4096}) {
+			TinyV2ByteBufferTest.Recorder recorder = new TinyV2ByteBufferTest.Recorder();
+			TinyV2PushParser parser = TinyV2Factory.pushParser(recorder);
+			ByteBuffer chunk = ByteBuffer.allocate(maxChunk);
+			for (int i = 0; i < content.length; ) {
+				int length = Math.min(content.length - i, 1 + random.nextInt(maxChunk));
+				chunk.clear();
+				chunk.put(content, i, length).flip();
+				parser.feed(chunk);
+				Assertions.assertFalse(chunk.hasRemaining());
+				i += length;
+			}
+			parser.end();
+			Assertions.assertEquals(expected, recorder.events, "chunks up to " + maxChunk);
+		}
+	}
+
+	@Test
+	public void testChunkedChars() throws IOException {
+		byte[] content = readResource("/inhtree.tiny");
+		List<String> expected = visitReader(content);
+		char[] chars = new String(content, StandardCharsets.UTF_8).toCharArray();
+
+		TinyV2ByteBufferTest.ReusingRecorder recorder = new TinyV2ByteBufferTest.ReusingRecorder();
+		TinyV2PushParser parser = TinyV2Factory.pushParser(recorder);
+		for (int i = 0; i < chars.length; i += 5) {
+			parser.feed(chars, i, Math.min(5, chars.length - i));
+		}
+		parser.end();
+		Assertions.assertEquals(expected, recorder.events);
+	}
+
+	@Test
+	public void testLineTerminators() throws IOException {
+		String unix = "tiny\t2\t0\ta\tb\n\tescaped-names\nc\tA\tB\n\tc\tcom\\tment\n\tm\t()V\tm\tn\n\t\tp\t1\tx\ty\n\t\tv\t2\t3\t-1\ts\t";
+		List<String> expected = visitReader(unix.getBytes(StandardCharsets.UTF_8));
+		String windows = unix.replace("\n", "\r\n");
+
+		for (int split = 0; split <= windows.length(); split++) {
+			TinyV2ByteBufferTest.Recorder recorder = new TinyV2ByteBufferTest.Recorder();
+			TinyV2PushParser parser = TinyV2Factory.pushParser(recorder);
+			parser.feed(windows.substring(0, split));
+			parser.feed(windows.substring(split));
+			parser.end();
+			Assertions.assertEquals(expected, recorder.events, "split at " + split);
+		}
+	}
+
+	@Test
+	public void testBrokenInput() {
+		Assertions.assertThrows(MappingParseException.class, () -> TinyV2Factory.pushParser(new TinyV2ByteBufferTest.Recorder()).end());
+		Assertions.assertThrows(MappingParseException.class, () -> TinyV2Factory.pushParser(new TinyV2ByteBufferTest.Recorder()).feed("tiny\t2\t0\ta\tb\nc\tA\tB\n\t\tp\t1\tx\ty\n"));
+
+		TinyV2PushParser parser = TinyV2Factory.pushParser(new TinyV2ByteBufferTest.Recorder());
+		parser.feed("tiny\t2\t0\ta\tb\nc\tA\tB\n\tm\t()V");
+		Assertions.assertThrows(IllegalStateException.class, () -> parser.feed(ByteBuffer.allocate(1)));
+		Assertions.assertThrows(MappingParseException.class, parser::end);
+		Assertions.assertThrows(IllegalStateException.class, () -> parser.feed("c\tB\tC\n"));
+	}
+
+	private static byte[] readResource(String name) throws IOException {
+		try (InputStream in = TinyV2PushParserTest.class.getResourceAsStream(name)) {
+			byte[] buf = new byte[8192];
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			int n;
+			while ((n = in.read(buf)) > 0) {
+				out.write(buf, 0, n);
+			}
+			return out.toByteArray();
+		}
+	}
+
+	private static List<String> visitReader(byte[] content) throws IOException {
+		TinyV2ByteBufferTest.Recorder recorder = new TinyV2ByteBufferTest.Recorder();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8))) {
+			TinyV2Factory.visit(reader, recorder);
+		}
+		return recorder.events;
+	}
+}
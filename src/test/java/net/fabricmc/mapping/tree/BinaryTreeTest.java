@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.tree;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+public class BinaryTreeTest {
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		for (byte[] content : new byte[][]{TreeDump.readYarn(), TreeDump.readResource("/bigboi_mappings.tinyv2"), TreeDump.readResource("/inhtree.tiny")}) {
+			TinyTree expected = TinyMappingFactory.load(ByteBuffer.wrap(content));
+			byte[] binary = toBinary(expected);
+			TinyTree actual = TinyMappingFactory.loadBinary(ByteBuffer.wrap(binary));
+
+			Assertions.assertEquals(TreeDump.dump(expected), TreeDump.dump(actual));
+			Assertions.assertEquals(expected.getDefaultNamespaceClassMap().keySet(), actual.getDefaultNamespaceClassMap().keySet());
+			Assertions.assertEquals(expected.getMetadata().getProperties(), actual.getMetadata().getProperties());
+			Assertions.assertEquals(expected.getMetadata().getMajorVersion(), actual.getMetadata().getMajorVersion());
+			Assertions.assertArrayEquals(binary, toBinary(actual));
+		}
+	}
+
+	@Test
+	public void testBrokenInput() throws IOException {
+		byte[] binary = toBinary(TinyMappingFactory.load(ByteBuffer.wrap(TreeDump.readResource("/inhtree.tiny"))));
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TinyMappingFactory.loadBinary(ByteBuffer.wrap("tiny\t2\t0\ta\n".getBytes(StandardCharsets.UTF_8))));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TinyMappingFactory.loadBinary(ByteBuffer.wrap(Arrays.copyOf(binary, binary.length / 2))));
+
+		// negative and oversized string counts and lengths, as varints after the magic and the version
+		byte[] magic = {'T', 'N', 'Y', 'B', 2};
+		byte[] negative = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F};
+		byte[] huge = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+		for (byte[] count : new byte[][]{negative, huge}) {
+			Assertions.assertThrows(IllegalArgumentException.class, () -> TinyMappingFactory.loadBinary(ByteBuffer.wrap(concat(magic, count))));
+			Assertions.assertThrows(IllegalArgumentException.class, () -> TinyMappingFactory.loadBinary(direct(concat(magic, new byte[]{1}, count, new byte[8]))));
+		}
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (byte[] part : parts) {
+			out.write(part, 0, part.length);
+		}
+		return out.toByteArray();
+	}
+
+	private static ByteBuffer direct(byte[] content) {
+		ByteBuffer ret = ByteBuffer.allocateDirect(content.length);
+		ret.put(content).flip();
+		return ret;
+	}
+
+	@Test
+	public void testCache() throws IOException {
+		Path directory = Files.createTempDirectory("tiny-cache");
+		try {
+			Path mappings = directory.resolve("mappings.tiny");
+			Path cache = directory.resolve("cache/mappings.bin");
+			byte[] content = TreeDump.readResource("/bigboi_mappings.tinyv2");
+			Files.write(mappings, content);
+			Object expected = TreeDump.dump(TinyMappingFactory.load(ByteBuffer.wrap(content)));
+
+			Assertions.assertEquals(expected, TreeDump.dump(TinyMappingFactory.loadCached(mappings, cache)));
+			Assertions.assertTrue(Files.isRegularFile(cache));
+			Assertions.assertEquals(expected, TreeDump.dump(TinyMappingFactory.loadCached(mappings, cache)));
+
+			// changed mappings are parsed again
+			Files.write(mappings, "v1\ta\tb\nCLASS\tA\tB\n".getBytes(StandardCharsets.UTF_8));
+			TinyTree changed = TinyMappingFactory.loadCached(mappings, cache);
+			Assertions.assertEquals("B", changed.getDefaultNamespaceClassMap().get("A").getName("b"));
+			Assertions.assertEquals(1, changed.getClasses().size());
+
+			// broken caches are replaced
+			Files.write(cache, new byte[]{32, 1, 2});
+			Assertions.assertEquals(1, TinyMappingFactory.loadCached(mappings, cache).getClasses().size());
+			Assertions.assertEquals(1, TinyMappingFactory.loadCached(mappings, cache).getClasses().size());
+		} finally {
+			try (Stream<Path> files = Files.walk(directory)) {
+				files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+			}
+		}
+	}
+
+	private static byte[] toBinary(TinyTree tree) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TinyMappingFactory.writeBinary(tree, out);
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.tree;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ClassMapTest {
+
+	@Test
+	public void testEveryNamespace() throws IOException {
+		TinyTree tree = TinyMappingFactory.load(ByteBuffer.wrap(TreeDump.readYarn()));
+		for (TinyTree actual : new TinyTree[]{tree, TinyMappingFactory.compact(tree)}) {
+			List<String> namespaces = actual.getMetadata().getNamespaces();
+			Assertions.assertSame(actual.getDefaultNamespaceClassMap(), actual.getClassMap(namespaces.get(0)));
+			for (String namespace : namespaces) {
+				Map<String, ClassDef> map = actual.getClassMap(namespace);
+				Assertions.assertSame(map, actual.getClassMap(namespace));
+				for (ClassDef clz : actual.getClasses()) {
+					Assertions.assertEquals(clz.getName(0), map.get(clz.getName(namespace)).getName(0));
+				}
+			}
+			Assertions.assertThrows(IllegalArgumentException.class, () -> actual.getClassMap("unknown"));
+			Assertions.assertThrows(IllegalArgumentException.class, () -> actual.getClassMap(namespaces.size()));
+		}
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TinyMappingFactory.EMPTY_TREE.getClassMap(0));
+	}
+
+	@Test
+	public void testDuplicateNames() throws IOException {
+		String mappings = "tiny\t2\t0\ta\tb\n"
+				+ "c\tA\tFirst\n"
+				+ "c\tA\tSecond\n"
+				+ "c\tC\tX\n"
+				+ "c\tD\tX\n";
+		TinyTree tree = TinyMappingFactory.load(ByteBuffer.wrap(mappings.getBytes(StandardCharsets.UTF_8)));
+		TinyTree legacy = TinyMappingFactory.loadLegacy(new BufferedReader(new StringReader("v1\ta\tb\nCLASS\tA\tFirst\nCLASS\tA\tSecond\nCLASS\tC\tX\nCLASS\tD\tX\n")));
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		TinyMappingFactory.writeBinary(tree, binary);
+		ByteArrayOutputStream index = new ByteArrayOutputStream();
+		TinyMappingFactory.writeIndex(tree, index);
+		TinyTree[] trees = {
+				tree,
+				legacy,
+				TinyMappingFactory.loadLegacy(ByteBuffer.wrap("v1\ta\tb\nCLASS\tA\tFirst\nCLASS\tA\tSecond\nCLASS\tC\tX\nCLASS\tD\tX\n".getBytes(StandardCharsets.UTF_8))),
+				TinyMappingFactory.loadParallel(ByteBuffer.wrap(mappings.getBytes(StandardCharsets.UTF_8)), false),
+				TinyMappingFactory.loadBinary(ByteBuffer.wrap(binary.toByteArray())),
+				TinyMappingFactory.loadIndex(ByteBuffer.wrap(index.toByteArray())),
+				TinyMappingFactory.compact(tree)
+		};
+		for (int i = 0; i < trees.length; i++) {
+			TinyTree actual = trees[i];
+			Assertions.assertEquals("First", actual.getDefaultNamespaceClassMap().get("A").getName(1), "tree " + i);
+			Assertions.assertEquals("First", actual.getClassMap(0).get("A").getName("b"), "tree " + i);
+			Assertions.assertEquals("C", actual.getClassMap("b").get("X").getName(0), "tree " + i);
+			Map<String, ClassDef> classes = actual.getDefaultNamespaceClassMap();
+			Assertions.assertEquals(3, classes.size(), "tree " + i);
+			Assertions.assertEquals(classes.size(), new ArrayList<>(classes.entrySet()).size(), "tree " + i);
+			Assertions.assertEquals(classes.size(), new HashSet<>(classes.keySet()).size(), "tree " + i);
+			for (Map.Entry<String, ClassDef> entry : classes.entrySet()) {
+				Assertions.assertEquals(classes.get(entry.getKey()).getName(1), entry.getValue().getName(1), "tree " + i);
+			}
+		}
+		TinyTree rebased = TinyMappingFactory.rebase(tree, "b");
+		Assertions.assertEquals("C", rebased.getDefaultNamespaceClassMap().get("X").getName("a"));
+		Assertions.assertEquals("First", rebased.getClassMap("a").get("A").getName(0));
+	}
+
+	@Test
+	public void testDescriptorsIgnoreLaterChanges() throws IOException {
+		String mappings = "tiny\t2\t0\ta\tb\n"
+				+ "c\tA\tB\n"
+				+ "c\tC\tD\n"
+				+ "\tf\tLA;\tf\tg\n";
+		TinyTree tree = TinyMappingFactory.load(ByteBuffer.wrap(mappings.getBytes(StandardCharsets.UTF_8)));
+		Map<String, ClassDef> classes = tree.getDefaultNamespaceClassMap();
+		FieldDef field = classes.get("C").getFields().iterator().next();
+		Assertions.assertEquals("LB;", field.getDescriptor("b"));
+
+		// same-size changes, which a size check would miss
+		ClassDef other = classes.get("C");
+		classes.remove("A");
+		classes.put("A", other);
+		Assertions.assertEquals("LB;", field.getDescriptor("b"));
+		classes.put("A", other);
+		Assertions.assertEquals("LB;", field.getDescriptor(1));
+	}
+
+	@Test
+	public void testConcurrentBuild() throws Exception {
+		TinyTree tree = TinyMappingFactory.load(ByteBuffer.wrap(TreeDump.readYarn()));
+		String namespace = tree.getMetadata().getNamespaces().get(1);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Map<String, ClassDef>>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(() -> tree.getClassMap(namespace)));
+			}
+			for (Future<Map<String, ClassDef>> future : futures) {
+				Assertions.assertSame(futures.get(0).get(), future.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		tree.buildClassMaps();
+		Assertions.assertSame(tree.getClassMap(tree.getMetadata().index(namespace)), tree.getClassMap(namespace));
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.tree;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DescriptorCacheTest {
+
+	@Test
+	public void testSameDescriptors() throws IOException {
+		byte[] content = TreeDump.readYarn();
+		TinyTree expected = TinyMappingFactory.load(ByteBuffer.wrap(content));
+		String target = expected.getMetadata().getNamespaces().get(1);
+		List<String> descriptors = descriptors(expected, target);
+
+		for (int maxEntries : new int[]{0, 100, Integer.MAX_VALUE}) {
+			TinyTree cached = TinyMappingFactory.load(ByteBuffer.wrap(content));
+			TinyMappingFactory.cacheDescriptors(cached, maxEntries);
+			Assertions.assertEquals(descriptors, descriptors(cached, target));
+			Assertions.assertEquals(descriptors, descriptors(cached, target));
+
+			TinyTree compact = TinyMappingFactory.compact(expected);
+			TinyMappingFactory.cacheDescriptors(compact, maxEntries);
+			Assertions.assertEquals(descriptors, descriptors(compact, target));
+		}
+	}
+
+	@Test
+	public void testMaterialize() throws IOException {
+		TinyTree tree = TinyMappingFactory.load(ByteBuffer.wrap(TreeDump.readYarn()));
+		String target = tree.getMetadata().getNamespaces().get(1);
+		List<String> descriptors = descriptors(tree, target);
+		TinyMappingFactory.materializeDescriptors(tree, target);
+
+		// members sharing a descriptor share the cached string
+		Map<String, String> seen = new HashMap<>();
+		for (ClassDef clz : tree.getClasses()) {
+			for (MethodDef method : clz.getMethods()) {
+				String descriptor = method.getDescriptor(target);
+				if (descriptor.indexOf('L') >= 0) {
+					Assertions.assertSame(seen.computeIfAbsent(descriptor, k -> descriptor), descriptor);
+				}
+			}
+		}
+		Assertions.assertEquals(descriptors, descriptors(tree, target));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TinyMappingFactory.materializeDescriptors(tree, "unknown"));
+	}
+
+	@Test
+	public void testConcurrentFill() throws IOException {
+		TinyTree tree = TinyMappingFactory.load(ByteBuffer.wrap(TreeDump.readYarn()));
+		String target = tree.getMetadata().getNamespaces().get(1);
+		List<String> descriptors = descriptors(tree, target);
+		TinyMappingFactory.cacheDescriptors(tree, Integer.MAX_VALUE);
+
+		new ArrayList<>(tree.getClasses()).parallelStream().forEach(clz -> clz.getMethods().forEach(method -> method.getDescriptor(target)));
+		Assertions.assertEquals(descriptors, descriptors(tree, target));
+	}
+
+	private static List<String> descriptors(TinyTree tree, String namespace) {
+		List<String> ret = new ArrayList<>();
+		for (ClassDef clz : tree.getClasses()) {
+			for (FieldDef field : clz.getFields()) {
+				ret.add(field.getDescriptor(namespace));
+			}
+			for (MethodDef method : clz.getMethods()) {
+				ret.add(method.getDescriptor(namespace));
+			}
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mapping.tree;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class DiffTest {
+
+	private static final String BEFORE = "tiny\t2\t0\tofficial\tintermediary\tnamed\n"
+			+ "c\ta\tclass_1\tpkg/Apple\n"
+			+ "\tc\tAn apple.\n"
+			+ "\tf\tI\ta\tfield_1\tseeds\n"
+			+ "\tm\t(Lb;)V\ta\tmethod_1\tplant\n"
+			+ "\t\tp\t1\t\t\tbear\n"
+			+ "\t\tp\t2\t\t\tdepth\n"
+			+ "\tm\t()V\tb\tmethod_2\trot\n"
+			+ "c\tb\tclass_2\tpkg/Bear\n"
+			+ "c\tc\tclass_3\tpkg/Cherry\n";
+	private static final String AFTER = "tiny\t2\t0\tofficial\tintermediary\tnamed\n"
+			+ "c\tb\tclass_1\tpkg/fruit/Apple\n"
+			+ "\tc\tA red apple.\n"
+			+ "\tf\tI\tb\tfield_1\tseeds\n"
+			+ "\tm\t(Lc;)V\tc\tmethod_1\tplantIn\n"
+			+ "\t\tp\t1\t\t\tbearer\n"
+			+ "\t\tp\t3\t\t\tdepth\n"
+			+ "\tf\tJ\ta\tfield_2\tweight\n"
+			+ "c\tc\tclass_2\tpkg/Bear\n"
+			+ "c\td\tclass_4\tpkg/Date\n";
+
+	private static TinyTree load(String content) throws IOException {
+		return TinyMappingFactory.load(new BufferedReader(new StringReader(content)));
+	}
+
+	@Test
+	public void testChanges() throws IOException {
+		List<String> changes = new ArrayList<>();
+		TinyMappingFactory.diff(load(BEFORE), load(AFTER), "intermediary", new Recorder(changes));
+
+		Assertions.assertEquals(Arrays.asList(
+				"class renamed class_1 official",
+				"class renamed class_1 named",
+				"comment class_1 An apple. -> A red apple.",
+				"field renamed class_1 field_1 official",
+				"field added class_1 field_2",
+				"method renamed class_1 method_1 official",
+				"method renamed class_1 method_1 named",
+				"parameter renamed plantIn bearer named",
+				"parameter removed plant depth",
+				"parameter added plantIn depth",
+				"method removed class_1 method_2",
+				"class renamed class_2 official",
+				"class removed class_3",
+				"class added class_4"), changes);
+	}
+
+	@Test
+	public void testDuplicateKeys() throws IOException {
+		String before = "tiny\t2\t0\tofficial\tintermediary\tnamed\n"
+				+ "c\ta\tclass_1\tpkg/Apple\n"
+				+ "\tf\tI\ta\tfield_1\tseeds\n";
+		String after = "tiny\t2\t0\tofficial\tintermediary\tnamed\n"
+				+ "c\ta\tclass_1\tpkg/Apple\n"
+				+ "\tf\tI\ta\tfield_1\tseeds\n"
+				+ "\tf\tI\tb\tfield_1\tpits\n"
+				+ "c\tb\tclass_1\tpkg/Apricot\n";
+		List<String> changes = new ArrayList<>();
+		TinyMappingFactory.diff(load(before), load(after), "intermediary", new Recorder(changes));
+		Assertions.assertEquals(Arrays.asList("field added class_1 field_1", "class added class_1"), changes);
+
+		changes.clear();
+		TinyMappingFactory.diff(load(after), load(before), "intermediary", new Recorder(changes));
+		Assertions.assertEquals(Arrays.asList("field removed class_1 field_1", "class removed class_1"), changes);
+	}
+
+	@Test
+	public void testSameTree() throws IOException {
+		List<String> changes = new ArrayList<>();
+		byte[] yarn = TreeDump.readYarn();
+		TinyMappingFactory.diff(TinyMappingFactory.load(ByteBuffer.wrap(yarn)), TinyMappingFactory.compact(TinyMappingFactory.load(ByteBuffer.wrap(yarn))), "intermediary", new Recorder(changes));
+		Assertions.assertEquals(new ArrayList<>(), changes);
+	}
+
+	@Test
+	public void testUnknownNamespace() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TinyMappingFactory.diff(load(BEFORE), load(AFTER), "nope", new TreeDiffVisitor() {
+		}));
+	}
+
+	private static final class Recorder implements TreeDiffVisitor {
+		private final List<String> changes;
+
+		Recorder(List<String> changes) {
+			this.changes = changes;
+		}
+
+		@Override
+		public void classAdded(ClassDef added) {
+			changes.add("class added " + added.getName("intermediary"));
+		}
+
+		@Override
+		public void classRemoved(ClassDef removed) {
+			changes.add("class removed " + removed.getName("intermediary"));
+		}
+
+		@Override
+		public void classRenamed(ClassDef before, ClassDef after, String namespace) {
+			changes.add("class renamed " + after.getName("intermediary") + " " + namespace);
+		}
+
+		@Override
+		public void fieldAdded(ClassDef owner, FieldDef added) {
+			changes.add("field added " + owner.getName("intermediary") + " " + added.getName("intermediary"));
+		}
+
+		@Override
+		public void fieldRemoved(ClassDef owner, FieldDef removed) {
+			changes.add("field removed " + owner.getName("intermediary") + " " + removed.getName("intermediary"));
+		}
+
+		@Override
+		public void fieldRenamed(ClassDef owner, FieldDef before, FieldDef after, String namespace) {
+			changes.add("field renamed " + owner.getName("intermediary") + " " + after.getName("intermediary") + " " + namespace);
+		}
+
+		@Override
+		public void methodAdded(ClassDef owner, MethodDef added) {
+			changes.add("method added " + owner.getName("intermediary") + " " + added.getName("intermediary"));
+		}
+
+		@Override
+		public void methodRemoved(ClassDef owner, MethodDef removed) {
+			changes.add("method removed " + owner.getName("intermediary") + " " + removed.getName("intermediary"));
+		}
+
+		@Override
+		public void methodRenamed(ClassDef owner, MethodDef before, MethodDef after, String namespace) {
+			changes.add("method renamed " + owner.getName("intermediary") + " " + after.getName("intermediary") + " " + namespace);
+		}
+
+		@Override
+		public void parameterAdded(MethodDef owner, ParameterDef added) {
+			changes.add("parameter added " + owner.getName("named") + " " + added.getName("named"));
+		}
+
+		@Override
+		public void parameterRemoved(MethodDef owner, ParameterDef removed) {
+			changes.add("parameter removed " + owner.getName("named") + " " + removed.getName("named"));
+		}
+
+		@Override
+		public void parameterRenamed(MethodDef owner, ParameterDef before, ParameterDef after, String namespace) {
+			changes.add("parameter renamed " + owner.getName("named") + " " + after.getName("named") + " " + namespace);
+		}
+
+		@Override
+		public void commentChanged(Mapped before, Mapped after) {
+			changes.add("comment " + after.getName("intermediary") + " " + before.getComment() + " -> " + after.getComment());
+		}
+	}
+}
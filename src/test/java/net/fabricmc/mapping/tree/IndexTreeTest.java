@@ -0,0 +1,254 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.tree;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class IndexTreeTest {
+
+	@Test
+	public void testSameContent() throws IOException {
+		for (byte[] content : new byte[][]{TreeDump.readYarn(), TreeDump.readResource("/bigboi_mappings.tinyv2")}) {
+			TinyTree expected = TinyMappingFactory.load(ByteBuffer.wrap(content));
+			TinyTree actual = TinyMappingFactory.loadIndex(ByteBuffer.wrap(toIndex(expected)));
+
+			Assertions.assertEquals(expected.getMetadata().getNamespaces(), actual.getMetadata().getNamespaces());
+			Assertions.assertEquals(expected.getMetadata().getProperties(), actual.getMetadata().getProperties());
+			Assertions.assertEquals(expected.getMetadata().getMinorVersion(), actual.getMetadata().getMinorVersion());
+			Assertions.assertEquals(canonical(expected), canonical(actual));
+			Assertions.assertEquals(expected.getDefaultNamespaceClassMap().keySet(), actual.getDefaultNamespaceClassMap().keySet());
+		}
+	}
+
+	@Test
+	public void testLookups() throws IOException {
+		TinyTree expected = TinyMappingFactory.load(ByteBuffer.wrap(TreeDump.readYarn()));
+		Path file = Files.createTempFile("tiny-index", ".bin");
+		try {
+			Files.write(file, toIndex(expected));
+			TinyTree actual = TinyMappingFactory.mapIndex(file);
+
+			List<String> namespaces = expected.getMetadata().getNamespaces();
+			for (ClassDef clz : expected.getClasses()) {
+				String name = clz.getName(namespaces.get(0));
+				ClassDef found = actual.getDefaultNamespaceClassMap().get(name);
+				Assertions.assertNotNull(found, name);
+				Assertions.assertEquals(clz.getName(namespaces.get(1)), found.getName(namespaces.get(1)));
+				Assertions.assertEquals(clz.getFields().size(), found.getFields().size());
+				Assertions.assertTrue(actual.getDefaultNamespaceClassMap().containsKey(name));
+			}
+			Assertions.assertNull(actual.getDefaultNamespaceClassMap().get("does/not/Exist"));
+			Assertions.assertFalse(actual.getDefaultNamespaceClassMap().containsKey(""));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testCompact() throws IOException {
+		TinyTree expected = TinyMappingFactory.load(ByteBuffer.wrap(TreeDump.readYarn()));
+		TinyTree compact = TinyMappingFactory.compact(expected);
+
+		Assertions.assertEquals(canonical(expected), canonical(compact));
+		Assertions.assertEquals(TreeDump.dump(TinyMappingFactory.loadIndex(ByteBuffer.wrap(toIndex(expected)))), TreeDump.dump(compact));
+		Assertions.assertEquals(TreeDump.dump(compact), TreeDump.dump(TinyMappingFactory.compact(compact)));
+		for (ClassDef clz : expected.getClasses()) {
+			String name = clz.getName(expected.getMetadata().getNamespaces().get(0));
+			Assertions.assertEquals(name, compact.getDefaultNamespaceClassMap().get(name).getRawName(expected.getMetadata().getNamespaces().get(0)));
+		}
+	}
+
+	@Test
+	public void testMemberLookups() throws IOException {
+		TinyTree expected = TinyMappingFactory.load(ByteBuffer.wrap(TreeDump.readYarn()));
+		List<String> namespaces = expected.getMetadata().getNamespaces();
+		for (TinyTree actual : new TinyTree[]{TinyMappingFactory.loadIndex(ByteBuffer.wrap(toIndex(expected))), TinyMappingFactory.compact(expected)}) {
+			for (ClassDef clz : expected.getClasses()) {
+				ClassDef found = actual.getDefaultNamespaceClassMap().get(clz.getName(0));
+				for (MethodDef method : clz.getMethods()) {
+					MethodDef hit = found.getMethod(0, method.getName(0), method.getDescriptor(0));
+					Assertions.assertNotNull(hit, method.getName(0));
+					Assertions.assertEquals(method.getName(1), hit.getName(1));
+					Assertions.assertEquals(method.getDescriptor(1), hit.getDescriptor(namespaces.get(1)));
+					Assertions.assertEquals(hit.getName(0), found.getMethod(1, method.getName(1), method.getDescriptor(1)).getName(0));
+				}
+				for (FieldDef field : clz.getFields()) {
+					FieldDef hit = found.getField(namespaces.get(0), field.getName(0), field.getDescriptor(0));
+					Assertions.assertNotNull(hit, field.getName(0));
+					Assertions.assertEquals(field.getName(1), hit.getName(1));
+				}
+				Assertions.assertNull(found.getMethod(0, "doesNotExist", "()V"));
+				Assertions.assertNull(found.getField(0, "doesNotExist", "I"));
+			}
+		}
+	}
+
+	@Test
+	public void testViewEquality() throws IOException {
+		TinyTree tree = TinyMappingFactory.load(ByteBuffer.wrap(TreeDump.readResource("/bigboi_mappings.tinyv2")));
+		TinyTree compact = TinyMappingFactory.compact(tree);
+		TinyTree index = TinyMappingFactory.loadIndex(ByteBuffer.wrap(toIndex(tree)));
+		for (TinyTree actual : new TinyTree[]{compact, index}) {
+			Set<Object> elements = new HashSet<>();
+			for (ClassDef clz : actual.getClasses()) {
+				Assertions.assertTrue(actual.getClasses().contains(clz));
+				Assertions.assertEquals(clz, actual.getDefaultNamespaceClassMap().get(clz.getName(0)));
+				Assertions.assertEquals(clz.hashCode(), actual.getDefaultNamespaceClassMap().get(clz.getName(0)).hashCode());
+				Assertions.assertTrue(elements.add(clz));
+				for (FieldDef field : clz.getFields()) {
+					Assertions.assertTrue(clz.getFields().contains(field));
+					Assertions.assertTrue(elements.add(field));
+				}
+				for (MethodDef method : clz.getMethods()) {
+					Assertions.assertEquals(method, clz.getMethod(0, method.getName(0), method.getDescriptor(0)));
+					Assertions.assertTrue(elements.add(method));
+					for (ParameterDef parameter : method.getParameters()) {
+						Assertions.assertTrue(method.getParameters().contains(parameter));
+						Assertions.assertTrue(elements.add(parameter));
+					}
+				}
+			}
+			for (ClassDef clz : actual.getClasses()) {
+				Assertions.assertFalse(elements.add(clz));
+			}
+		}
+		ClassDef first = compact.getClasses().iterator().next();
+		Assertions.assertNotEquals(first, TinyMappingFactory.compact(tree).getClasses().iterator().next());
+		Assertions.assertNotEquals(first, index.getClasses().iterator().next());
+	}
+
+	@Test
+	public void testMemberLookupProbes() throws IOException {
+		String mappings = "tiny\t2\t0\ta\tb\n"
+				+ "c\tA\tB\n"
+				+ "\tm\t()V\ta\tx\n"
+				+ "\tm\t()V\tb\ty\n"
+				+ "\tm\t()V\tc\tz\n";
+		byte[] index = toIndex(TinyMappingFactory.load(ByteBuffer.wrap(mappings.getBytes(StandardCharsets.UTF_8))));
+		// Break the first name of the first method, which a search for the middle one never reads
+		ByteBuffer buffer = ByteBuffer.wrap(index);
+		int namespaceCount = buffer.getInt(4 * 4);
+		int recordStart = 12 + namespaceCount + buffer.getInt(5 * 4) * 2 + buffer.getInt(6 * 4) + 1
+				+ buffer.getInt(7 * 4) * (namespaceCount + 5) + buffer.getInt(8 * 4) * (namespaceCount + 2);
+		buffer.putInt(recordStart * 4, Integer.MAX_VALUE);
+		ClassDef clz = TinyMappingFactory.loadIndex(buffer).getDefaultNamespaceClassMap().get("A");
+
+		Assertions.assertEquals("y", clz.getMethod(0, "b", "()V").getName(1));
+		Assertions.assertThrows(IndexOutOfBoundsException.class, () -> {
+			for (MethodDef method : clz.getMethods()) {
+				method.getName(0);
+			}
+		});
+	}
+
+	@Test
+	public void testBrokenInput() throws IOException {
+		byte[] index = toIndex(TinyMappingFactory.load(ByteBuffer.wrap(TreeDump.readResource("/inhtree.tiny"))));
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TinyMappingFactory.loadIndex(ByteBuffer.allocate(8)));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TinyMappingFactory.loadIndex(ByteBuffer.wrap(Arrays.copyOf(index, index.length - 1))));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TinyMappingFactory.loadIndex(ByteBuffer.wrap(Arrays.copyOf(index, 40))));
+	}
+
+	@Test
+	public void testBrokenChildren() throws IOException {
+		byte[] index = toIndex(TinyMappingFactory.load(ByteBuffer.wrap(TreeDump.readResource("/inhtree.tiny"))));
+		ByteBuffer header = ByteBuffer.wrap(index);
+		int namespaceCount = header.getInt(4 * 4);
+		int classes = 12 + namespaceCount + header.getInt(5 * 4) * 2 + header.getInt(6 * 4) + 1;
+		int fields = classes + header.getInt(7 * 4) * (namespaceCount + 5);
+		int methods = fields + header.getInt(8 * 4) * (namespaceCount + 2);
+		int classExtras = classes + namespaceCount + 1;
+		int methodExtras = methods + namespaceCount + 1;
+		Assertions.assertTrue(header.getInt(9 * 4) > 0);
+		TinyMappingFactory.loadIndex(ByteBuffer.wrap(index));
+
+		// field count of the first class past the fields
+		assertBroken(index, classExtras + 1, header.getInt(8 * 4) + 1);
+		// negative method start of the first class
+		assertBroken(index, classExtras + 2, -1);
+		// parameter count of the first method overflowing past the start
+		assertBroken(index, methodExtras + 2, Integer.MAX_VALUE);
+		// negative local variable count of the first method
+		assertBroken(index, methodExtras + 4, -1);
+		// negative total field count
+		assertBroken(index, 8, -1);
+	}
+
+	private static void assertBroken(byte[] index, int number, int value) {
+		byte[] broken = index.clone();
+		ByteBuffer.wrap(broken).putInt(number * 4, value);
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TinyMappingFactory.loadIndex(ByteBuffer.wrap(broken)));
+	}
+
+	private static byte[] toIndex(TinyTree tree) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TinyMappingFactory.writeIndex(tree, out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Dumps a tree with its classes and members sorted, as the index sorts them.
+	 */
+	private static List<String> canonical(TinyTree tree) {
+		List<String> classes = new ArrayList<>();
+		List<String> members = new ArrayList<>();
+		StringBuilder clz = null;
+		StringBuilder member = null;
+		for (String line : TreeDump.dump(tree)) {
+			if (line.startsWith("\t\t")) {
+				member.append('\n').append(line);
+			} else if (line.startsWith("\t")) {
+				if (member != null)
+					members.add(member.toString());
+				member = new StringBuilder(line);
+			} else {
+				if (member != null)
+					members.add(member.toString());
+				if (clz != null) {
+					Collections.sort(members);
+					classes.add(clz.append(members).toString());
+				}
+				member = null;
+				members.clear();
+				clz = new StringBuilder(line);
+			}
+		}
+		if (member != null)
+			members.add(member.toString());
+		if (clz != null) {
+			Collections.sort(members);
+			classes.add(clz.append(members).toString());
+		}
+		Collections.sort(classes);
+		return classes;
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.tree;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class LegacyLoadTest {
+
+	@Test
+	public void testSameTreeAsReader() throws IOException {
+		String v1 = toV1(TinyMappingFactory.load(ByteBuffer.wrap(TreeDump.readYarn())));
+
+		TinyTree expected = TinyMappingFactory.loadLegacy(new BufferedReader(new StringReader(v1)));
+		byte[] content = v1.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer direct = ByteBuffer.allocateDirect(content.length);
+		direct.put(content).flip();
+
+		for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.wrap(content), direct}) {
+			TinyTree actual = TinyMappingFactory.loadLegacy(buffer);
+			Assertions.assertEquals(TreeDump.dump(expected), TreeDump.dump(actual));
+			Assertions.assertEquals(expected.getDefaultNamespaceClassMap().keySet(), actual.getDefaultNamespaceClassMap().keySet());
+			Assertions.assertEquals(0, buffer.position());
+		}
+	}
+
+	@Test
+	public void testMembersWithoutClass() {
+		String v1 = "v1\ta\tb\r\nMETHOD\tC\t(LA;)V\tm\tn\r\nFIELD\tA\tLC;\tf\tg\r\nCLASS\tA\tB\r\nFIELD\tC\tI\tx\ty\r\n";
+		TinyTree tree = TinyMappingFactory.loadLegacy(ByteBuffer.wrap(v1.getBytes(StandardCharsets.UTF_8)));
+
+		Assertions.assertEquals(2, tree.getClasses().size());
+		ClassDef a = tree.getDefaultNamespaceClassMap().get("A");
+		Assertions.assertEquals("B", a.getName("b"));
+		Assertions.assertEquals("LC;", a.getFields().iterator().next().getDescriptor("b"));
+
+		ClassDef c = tree.getDefaultNamespaceClassMap().get("C");
+		Assertions.assertEquals("C", c.getName("b"));
+		Assertions.assertEquals(1, c.getFields().size());
+		MethodDef method = c.getMethods().iterator().next();
+		Assertions.assertEquals("n", method.getName("b"));
+		Assertions.assertEquals("(LB;)V", method.getDescriptor("b"));
+	}
+
+	@Test
+	public void testBrokenInput() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TinyMappingFactory.loadLegacy(ByteBuffer.allocate(0)));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TinyMappingFactory.loadLegacy(ByteBuffer.wrap("tiny\t2\t0\ta\tb\n".getBytes(StandardCharsets.UTF_8))));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TinyMappingFactory.loadLegacy(ByteBuffer.wrap("v1\ta\ta\n".getBytes(StandardCharsets.UTF_8))));
+	}
+
+	private static String toV1(TinyTree tree) {
+		List<String> namespaces = tree.getMetadata().getNamespaces();
+		StringBuilder classes = new StringBuilder("v1\t").append(String.join("\t", namespaces)).append('\n');
+		StringBuilder fields = new StringBuilder();
+		StringBuilder methods = new StringBuilder();
+		for (ClassDef clz : tree.getClasses()) {
+			String owner = clz.getName(namespaces.get(0));
+			classes.append("CLASS");
+			for (String namespace : namespaces) {
+				classes.append('\t').append(clz.getName(namespace));
+			}
+			classes.append('\n');
+			for (FieldDef field : clz.getFields()) {
+				fields.append("FIELD\t").append(owner).append('\t').append(field.getDescriptor(namespaces.get(0)));
+				for (String namespace : namespaces) {
+					fields.append('\t').append(field.getName(namespace));
+				}
+				fields.append('\n');
+			}
+			for (MethodDef method : clz.getMethods()) {
+				methods.append("METHOD\t").append(owner).append('\t').append(method.getDescriptor(namespaces.get(0)));
+				for (String namespace : namespaces) {
+					methods.append('\t').append(method.getName(namespace));
+				}
+				methods.append('\n');
+			}
+		}
+		return classes.append(fields).append(methods).toString();
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.tree;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class MemberLookupTest {
+
+	@Test
+	public void testFindsEveryMember() throws IOException {
+		TinyTree tree = TinyMappingFactory.load(ByteBuffer.wrap(TreeDump.readYarn()));
+		List<String> namespaces = tree.getMetadata().getNamespaces();
+		for (ClassDef clz : tree.getClasses()) {
+			for (String namespace : namespaces) {
+				int index = tree.getMetadata().index(namespace);
+				for (MethodDef method : clz.getMethods()) {
+					String name = method.getName(namespace);
+					String descriptor = method.getDescriptor(namespace);
+					Assertions.assertEquals(method.getName(0), clz.getMethod(namespace, name, descriptor).getName(0));
+					Assertions.assertSame(clz.getMethod(namespace, name, descriptor), clz.getMethod(index, name, descriptor));
+				}
+				for (FieldDef field : clz.getFields()) {
+					String name = field.getName(namespace);
+					String descriptor = field.getDescriptor(namespace);
+					Assertions.assertEquals(field.getName(0), clz.getField(namespace, name, descriptor).getName(0));
+					Assertions.assertSame(clz.getField(namespace, name, descriptor), clz.getField(index, name, descriptor));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSameAsLinearScan() throws IOException {
+		TinyTree tree = TinyMappingFactory.load(ByteBuffer.wrap(TreeDump.readResource("/bigboi_mappings.tinyv2")));
+		TinyTree compact = TinyMappingFactory.compact(tree);
+		String namespace = tree.getMetadata().getNamespaces().get(1);
+		for (ClassDef clz : tree.getClasses()) {
+			ClassDef other = compact.getDefaultNamespaceClassMap().get(clz.getName(0));
+			for (MethodDef method : clz.getMethods()) {
+				MethodDef found = other.getMethod(namespace, method.getName(namespace), method.getDescriptor(namespace));
+				Assertions.assertNotNull(found);
+				Assertions.assertSame(clz.getMethod(namespace, found.getName(namespace), found.getDescriptor(namespace)), clz.getMethod(0, found.getName(0), found.getDescriptor(0)));
+			}
+			Assertions.assertNull(clz.getMethod(namespace, "doesNotExist", "()V"));
+			Assertions.assertNull(other.getField(namespace, "doesNotExist", "I"));
+		}
+	}
+
+	@Test
+	public void testRebuiltAfterChange() {
+		String v1 = "v1\tofficial\tnamed\nCLASS\ta\tpkg/A\nFIELD\ta\tI\tb\tcount\n";
+		TinyTree tree = TinyMappingFactory.loadLegacy(ByteBuffer.wrap(v1.getBytes(StandardCharsets.UTF_8)));
+		ClassImpl clz = (ClassImpl) tree.getDefaultNamespaceClassMap().get("a");
+		Assertions.assertNotNull(clz.getField("named", "count", "I"));
+		Assertions.assertNull(clz.getField("named", "total", "J"));
+
+		clz.fields.add(new FieldImpl(((FieldImpl) clz.fields.iterator().next()).mapper, clz.namespaceMapper, new String[]{"c", "total"}, "J"));
+		Assertions.assertNotNull(clz.getField("named", "total", "J"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> clz.getField("unknown", "count", "I"));
+	}
+}
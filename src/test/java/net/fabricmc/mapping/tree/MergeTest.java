@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mapping.tree;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.fabricmc.mapping.reader.v2.MappingGetter;
+import net.fabricmc.mapping.reader.v2.TinyMetadata;
+import net.fabricmc.mapping.reader.v2.TinyVisitor;
+
+public class MergeTest {
+
+	private static final String LEFT = "tiny\t2\t0\tofficial\tintermediary\n"
+			+ "c\ta\tclass_1\n"
+			+ "\tf\tLb;\ta\tfield_1\n"
+			+ "\tm\t(Lb;)V\ta\tmethod_1\n"
+			+ "c\tb\tclass_2\n"
+			+ "\tc\tLeft comment\n"
+			+ "c\tz\tclass_4\n";
+	private static final String RIGHT = "tiny\t2\t0\tintermediary\tnamed\n"
+			+ "c\tclass_1\tpkg/Apple\n"
+			+ "\tc\tAn apple.\n"
+			+ "\tf\tLclass_2;\tfield_1\tseed\n"
+			+ "\tm\t(Lclass_2;)V\tmethod_1\tplant\n"
+			+ "\t\tp\t1\t\tbearer\n"
+			+ "\tm\t(Lclass_5;)V\tmethod_2\teat\n"
+			+ "c\tclass_2\tpkg/Bear\n"
+			+ "\tc\tRight comment\n"
+			+ "c\tclass_5\tpkg/Cherry";
+
+	private static TinyTree load(String content) throws IOException {
+		return TinyMappingFactory.load(new BufferedReader(new StringReader(content)));
+	}
+
+	private static ByteBuffer buffer(String content) {
+		return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testMergeTrees() throws IOException {
+		TinyTree tree = TinyMappingFactory.merge(load(LEFT), load(RIGHT), "intermediary");
+		Assertions.assertEquals(Arrays.asList("official", "intermediary", "named"), tree.getMetadata().getNamespaces());
+
+		ClassDef apple = tree.getDefaultNamespaceClassMap().get("a");
+		Assertions.assertEquals("pkg/Apple", apple.getName("named"));
+		Assertions.assertEquals("An apple.", apple.getComment());
+		FieldDef seed = apple.getField("official", "a", "Lb;");
+		Assertions.assertEquals("seed", seed.getName("named"));
+		Assertions.assertEquals("Lpkg/Bear;", seed.getDescriptor("named"));
+		MethodDef plant = apple.getMethod("intermediary", "method_1", "(Lclass_2;)V");
+		Assertions.assertEquals("plant", plant.getName("named"));
+		Assertions.assertEquals("bearer", plant.getParameters().iterator().next().getName("named"));
+		MethodDef eat = apple.getMethod("named", "eat", "(Lpkg/Cherry;)V");
+		Assertions.assertEquals("method_2", eat.getName("official"));
+		Assertions.assertEquals("(Lclass_5;)V", eat.getDescriptor("official"));
+
+		Assertions.assertEquals("Left comment", tree.getDefaultNamespaceClassMap().get("b").getComment());
+		Assertions.assertEquals("class_4", tree.getDefaultNamespaceClassMap().get("z").getName("named"));
+		ClassDef cherry = tree.getClassMap("named").get("pkg/Cherry");
+		Assertions.assertEquals("class_5", cherry.getName("official"));
+		Assertions.assertEquals("class_5", cherry.getName("intermediary"));
+		Assertions.assertEquals(4, tree.getClasses().size());
+	}
+
+	@Test
+	public void testStreamingSameAsTrees() throws IOException {
+		List<String> expected = new ArrayList<>();
+		TinyMappingFactory.merge(load(LEFT), load(RIGHT), "intermediary", new Recorder(expected));
+		List<String> actual = new ArrayList<>();
+		TinyMappingFactory.mergeSorted(buffer(LEFT), buffer(RIGHT), "intermediary", new Recorder(actual));
+		Assertions.assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testCompactTrees() throws IOException {
+		TinyTree expected = TinyMappingFactory.merge(load(LEFT), load(RIGHT), "intermediary");
+		TinyTree actual = TinyMappingFactory.merge(TinyMappingFactory.compact(load(LEFT)), TinyMappingFactory.compact(load(RIGHT)), "intermediary");
+		Assertions.assertEquals(TreeDump.dump(expected), TreeDump.dump(actual));
+	}
+
+	@Test
+	public void testDuplicateNames() throws IOException {
+		String left = "tiny\t2\t0\tofficial\tintermediary\n"
+				+ "c\ta\tclass_1\n"
+				+ "c\ta\tclass_2\n"
+				+ "c\tc\tclass_3\n"
+				+ "\tf\tLa;\tf\tfield_1\n";
+		String right = "tiny\t2\t0\tintermediary\tnamed\n"
+				+ "c\tclass_1\tpkg/First\n"
+				+ "c\tclass_2\tpkg/Second\n"
+				+ "c\tclass_3\tpkg/Cherry\n"
+				+ "\tf\tLclass_1;\tfield_1\tseed\n";
+		TinyTree tree = TinyMappingFactory.merge(load(left), load(right), "intermediary");
+
+		Assertions.assertEquals("pkg/First", tree.getDefaultNamespaceClassMap().get("a").getName("named"));
+		FieldDef seed = tree.getDefaultNamespaceClassMap().get("c").getField("official", "f", "La;");
+		Assertions.assertNotNull(seed);
+		Assertions.assertEquals("seed", seed.getName("named"));
+		Assertions.assertEquals("Lpkg/First;", seed.getDescriptor("named"));
+		Assertions.assertEquals(1, tree.getDefaultNamespaceClassMap().get("c").getFields().size());
+	}
+
+	@Test
+	public void testUnsorted() {
+		String unsorted = "tiny\t2\t0\tintermediary\tnamed\nc\tclass_2\tpkg/Bear\nc\tclass_1\tpkg/Apple\n";
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TinyMappingFactory.mergeSorted(buffer(LEFT), buffer(unsorted), "intermediary", new TinyVisitor() {
+		}));
+	}
+
+	@Test
+	public void testBadNamespaces() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TinyMappingFactory.merge(load(LEFT), load(RIGHT), "named"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TinyMappingFactory.merge(load(LEFT), load(LEFT), "intermediary"));
+	}
+
+	private static final class Recorder implements TinyVisitor {
+		private final List<String> events;
+
+		Recorder(List<String> events) {
+			this.events = events;
+		}
+
+		@Override
+		public void start(TinyMetadata metadata) {
+			events.add("start " + metadata.getNamespaces());
+		}
+
+		@Override
+		public void pushClass(MappingGetter name) {
+			events.add("c " + Arrays.toString(name.getRawNames()));
+		}
+
+		@Override
+		public void pushField(MappingGetter name, String descriptor) {
+			events.add("f " + descriptor + " " + Arrays.toString(name.getRawNames()));
+		}
+
+		@Override
+		public void pushMethod(MappingGetter name, String descriptor) {
+			events.add("m " + descriptor + " " + Arrays.toString(name.getRawNames()));
+		}
+
+		@Override
+		public void pushParameter(MappingGetter name, int localVariableIndex) {
+			events.add("p " + localVariableIndex + " " + Arrays.toString(name.getRawNames()));
+		}
+
+		@Override
+		public void pushComment(String comment) {
+			events.add("# " + comment);
+		}
+
+		@Override
+		public void pop(int count) {
+			events.add("pop " + count);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.tree;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class NamespaceIndexTest {
+
+	@Test
+	public void testSameAsNamed() throws IOException {
+		TinyTree tree = TinyMappingFactory.load(ByteBuffer.wrap(TreeDump.readResource("/bigboi_mappings.tinyv2")));
+		String v1 = "v1\tofficial\tintermediary\tnamed\nCLASS\ta\tpkg/A\tpkg/Apple\nFIELD\ta\tI\tb\tfield_1\tcount\nMETHOD\ta\t(La;)V\tc\tmethod_2\tsetApple\n";
+		TinyTree legacy = TinyMappingFactory.loadLegacy(ByteBuffer.wrap(v1.getBytes(StandardCharsets.UTF_8)));
+		for (TinyTree actual : new TinyTree[]{tree, TinyMappingFactory.compact(tree), legacy, TinyMappingFactory.load(ByteBuffer.wrap(TreeDump.readResource("/inhtree.tiny")))}) {
+			List<String> namespaces = actual.getMetadata().getNamespaces();
+			for (ClassDef clz : actual.getClasses()) {
+				check(actual, namespaces, clz);
+				for (FieldDef field : clz.getFields()) {
+					check(actual, namespaces, field);
+				}
+				for (MethodDef method : clz.getMethods()) {
+					check(actual, namespaces, method);
+					for (ParameterDef parameter : method.getParameters()) {
+						check(actual, namespaces, parameter);
+					}
+					for (LocalVariableDef local : method.getLocalVariables()) {
+						check(actual, namespaces, local);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testUnknownIndex() throws IOException {
+		TinyTree compact = TinyMappingFactory.compact(TinyMappingFactory.load(ByteBuffer.wrap(TreeDump.readResource("/bigboi_mappings.tinyv2"))));
+		ClassDef clz = compact.getClasses().iterator().next();
+		int namespaceCount = compact.getMetadata().getNamespaces().size();
+		Assertions.assertThrows(IllegalArgumentException.class, () -> clz.getName(-1));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> clz.getRawName(namespaceCount));
+	}
+
+	private static void check(TinyTree tree, List<String> namespaces, Mapped mapped) {
+		for (String namespace : namespaces) {
+			int index = tree.getMetadata().index(namespace);
+			Assertions.assertEquals(mapped.getName(namespace), mapped.getName(index));
+			Assertions.assertEquals(mapped.getRawName(namespace), mapped.getRawName(index));
+			if (mapped instanceof Descriptored) {
+				Assertions.assertEquals(((Descriptored) mapped).getDescriptor(namespace), ((Descriptored) mapped).getDescriptor(index));
+			}
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.tree;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelLoadTest {
+
+	@Test
+	public void testSameTreeAsSequential() throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (byte[] content : new byte[][]{TreeDump.readYarn(), TreeDump.readResource("/bigboi_mappings.tinyv2"), TreeDump.readResource("/inhtree.tiny")}) {
+				TinyTree expected = TinyMappingFactory.load(ByteBuffer.wrap(content));
+				TinyTree actual = TinyMappingFactory.loadParallel(ByteBuffer.wrap(content), false, pool);
+
+				Assertions.assertEquals(TreeDump.dump(expected), TreeDump.dump(actual));
+				Assertions.assertEquals(expected.getDefaultNamespaceClassMap().keySet(), actual.getDefaultNamespaceClassMap().keySet());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testEmptyBody() {
+		TinyTree tree = TinyMappingFactory.loadParallel(ByteBuffer.wrap("tiny\t2\t0\ta\tb\n".getBytes()), false);
+		Assertions.assertEquals(2, tree.getMetadata().getNamespaces().size());
+		Assertions.assertTrue(tree.getClasses().isEmpty());
+	}
+}
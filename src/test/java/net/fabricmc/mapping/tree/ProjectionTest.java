@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.tree;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import net.fabricmc.mapping.reader.v2.MappingParseException;
+
+public class ProjectionTest {
+
+	@Test
+	public void testDropFirstNamespace() throws IOException {
+		byte[] content = TreeDump.readYarn();
+		List<String> kept = Arrays.asList("intermediary", "named");
+		TinyTree full = TinyMappingFactory.load(ByteBuffer.wrap(content));
+		TinyTree projected = TinyMappingFactory.load(ByteBuffer.wrap(content), false, kept);
+
+		Assertions.assertEquals(kept, projected.getMetadata().getNamespaces());
+		Assertions.assertEquals(0, projected.getMetadata().index("intermediary"));
+		Assertions.assertEquals(-1, projected.getMetadata().index("official"));
+		Assertions.assertEquals(full.getClasses().size(), projected.getDefaultNamespaceClassMap().size());
+
+		Iterator<ClassDef> projectedClasses = projected.getClasses().iterator();
+		for (ClassDef clz : full.getClasses()) {
+			ClassDef other = projectedClasses.next();
+			Assertions.assertSame(other, projected.getDefaultNamespaceClassMap().get(clz.getName("intermediary")));
+			assertSameNames(clz, other, kept);
+			Iterator<MethodDef> methods = other.getMethods().iterator();
+			for (MethodDef method : clz.getMethods()) {
+				MethodDef otherMethod = methods.next();
+				assertSameNames(method, otherMethod, kept);
+				for (String namespace : kept) {
+					Assertions.assertEquals(method.getDescriptor(namespace), otherMethod.getDescriptor(namespace));
+				}
+				Iterator<ParameterDef> parameters = otherMethod.getParameters().iterator();
+				for (ParameterDef parameter : method.getParameters()) {
+					assertSameNames(parameter, parameters.next(), kept);
+				}
+			}
+			Iterator<FieldDef> fields = other.getFields().iterator();
+			for (FieldDef field : clz.getFields()) {
+				FieldDef otherField = fields.next();
+				assertSameNames(field, otherField, kept);
+				Assertions.assertEquals(field.getDescriptor("intermediary"), otherField.getDescriptor("intermediary"));
+			}
+		}
+	}
+
+	@Test
+	public void testInheritedNames() {
+		String content = "tiny\t2\t0\ta\tb\tc\nc\tA\tB\t\n\tm\t(LA;)V\tm\t\t\n\t\tp\t1\t\tx\t\n";
+		TinyTree tree = TinyMappingFactory.load(ByteBuffer.wrap(content.getBytes()), false, Arrays.asList("c", "a"));
+		ClassDef clz = tree.getDefaultNamespaceClassMap().get("B");
+		Assertions.assertEquals("B", clz.getRawName("c"));
+		Assertions.assertEquals("A", clz.getRawName("a"));
+
+		MethodDef method = clz.getMethods().iterator().next();
+		Assertions.assertEquals("m", method.getRawName("c"));
+		Assertions.assertEquals("m", method.getRawName("a"));
+		Assertions.assertEquals("(LB;)V", method.getDescriptor("c"));
+		Assertions.assertEquals("(LA;)V", method.getDescriptor("a"));
+
+		ParameterDef parameter = method.getParameters().iterator().next();
+		Assertions.assertEquals("x", parameter.getRawName("c"));
+		Assertions.assertEquals("", parameter.getRawName("a"));
+	}
+
+	@Test
+	public void testUnknownNamespace() {
+		Assertions.assertThrows(MappingParseException.class, () -> TinyMappingFactory.load(ByteBuffer.wrap("tiny\t2\t0\ta\tb\n".getBytes()), false, Arrays.asList("a", "z")));
+	}
+
+	private static void assertSameNames(Mapped expected, Mapped actual, List<String> namespaces) {
+		for (String namespace : namespaces) {
+			Assertions.assertEquals(expected.getName(namespace), actual.getName(namespace));
+		}
+		Assertions.assertEquals(expected.getComment(), actual.getComment());
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mapping.tree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class RebaseTest {
+
+	@Test
+	public void testSameAsProjectedLoad() throws IOException {
+		byte[] content = TreeDump.readYarn();
+		List<String> namespaces = Arrays.asList("named", "intermediary");
+		TinyTree loaded = TinyMappingFactory.load(ByteBuffer.wrap(content), false, namespaces);
+		TinyTree rebased = TinyMappingFactory.rebase(TinyMappingFactory.load(ByteBuffer.wrap(content)), "named");
+
+		Assertions.assertEquals(namespaces, rebased.getMetadata().getNamespaces());
+		Assertions.assertEquals(TreeDump.dump(loaded), TreeDump.dump(rebased));
+		Assertions.assertEquals(loaded.getDefaultNamespaceClassMap().keySet(), rebased.getDefaultNamespaceClassMap().keySet());
+	}
+
+	@Test
+	public void testCompactTree() throws IOException {
+		TinyTree tree = TinyMappingFactory.load(ByteBuffer.wrap(TreeDump.readResource("/bigboi_mappings.tinyv2")));
+		TinyTree rebased = TinyMappingFactory.rebase(TinyMappingFactory.compact(tree), "named");
+
+		Assertions.assertEquals(TreeDump.dump(TinyMappingFactory.rebase(tree, "named")), TreeDump.dump(rebased));
+	}
+
+	@Test
+	public void testDuplicateNames() throws IOException {
+		TinyTree tree = TinyMappingFactory.load(ByteBuffer.wrap(("tiny\t2\t0\ta\tb\n"
+				+ "c\tA\tFirst\n"
+				+ "c\tA\tSecond\n"
+				+ "c\tC\tD\n"
+				+ "\tf\tLA;\tf\tg\n").getBytes(StandardCharsets.UTF_8)));
+		TinyTree rebased = TinyMappingFactory.rebase(tree, "b");
+
+		FieldDef field = rebased.getDefaultNamespaceClassMap().get("D").getFields().iterator().next();
+		Assertions.assertEquals("LFirst;", field.getDescriptor(0));
+		Assertions.assertEquals(tree.getDefaultNamespaceClassMap().get("C").getFields().iterator().next().getDescriptor("b"), field.getDescriptor(0));
+		Assertions.assertEquals("LA;", field.getDescriptor("a"));
+	}
+
+	@Test
+	public void testFirstOrUnknownNamespace() throws IOException {
+		TinyTree tree = TinyMappingFactory.load(ByteBuffer.wrap(TreeDump.readResource("/inhtree.tiny")));
+		Assertions.assertSame(tree, TinyMappingFactory.rebase(tree, tree.getMetadata().getNamespaces().get(0)));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TinyMappingFactory.rebase(tree, "nope"));
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.tree;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class StringPoolTest {
+
+	@Test
+	public void testSharedStrings() throws IOException {
+		byte[] content = TreeDump.readYarn();
+		TinyTree expected = TinyMappingFactory.load(ByteBuffer.wrap(content));
+		StringPool pool = StringPool.create();
+		TinyTree first = TinyMappingFactory.load(ByteBuffer.wrap(content), false, pool);
+		TinyTree second = TinyMappingFactory.loadParallel(ByteBuffer.wrap(content), false, ForkJoinPool.commonPool(), pool);
+
+		Assertions.assertEquals(TreeDump.dump(expected), TreeDump.dump(first));
+		Assertions.assertEquals(TreeDump.dump(expected), TreeDump.dump(second));
+
+		List<String> namespaces = expected.getMetadata().getNamespaces();
+		String namespace = namespaces.get(namespaces.size() - 1);
+		Iterator<ClassDef> secondClasses = second.getClasses().iterator();
+		for (ClassDef clz : first.getClasses()) {
+			ClassDef other = secondClasses.next();
+			Assertions.assertSame(clz.getName(namespace), other.getName(namespace));
+			Iterator<MethodDef> otherMethods = other.getMethods().iterator();
+			for (MethodDef method : clz.getMethods()) {
+				MethodDef otherMethod = otherMethods.next();
+				Assertions.assertSame(method.getName(namespace), otherMethod.getName(namespace));
+				Assertions.assertSame(method.getDescriptor(namespaces.get(0)), otherMethod.getDescriptor(namespaces.get(0)));
+			}
+		}
+	}
+
+	@Test
+	public void testCategories() {
+		StringPool pool = StringPool.create();
+		String name = new String("a");
+		String descriptor = new String("a");
+
+		Assertions.assertSame(name, pool.intern(StringPool.Category.NAME, name));
+		Assertions.assertSame(descriptor, pool.intern(StringPool.Category.FIELD_DESCRIPTOR, descriptor));
+		Assertions.assertSame(name, pool.intern(StringPool.Category.NAME, new String("a")));
+		Assertions.assertSame(descriptor, StringPool.NONE.intern(StringPool.Category.NAME, descriptor));
+	}
+}
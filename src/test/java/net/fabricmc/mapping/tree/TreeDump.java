@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.tree;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Flattens trees into comparable lines for the tests.
+ */
+final class TreeDump {
+
+	static byte[] readYarn() throws IOException {
+		try (ZipInputStream in = new ZipInputStream(TreeDump.class.getResourceAsStream("/yarn-1.15.2+build.2-v2.jar"))) {
+			ZipEntry entry;
+			while ((entry = in.getNextEntry()) != null) {
+				if (entry.getName().equals("mappings/mappings.tiny")) {
+					return readFully(in);
+				}
+			}
+		}
+		throw new IOException("No mappings in the yarn jar!");
+	}
+
+	static byte[] readResource(String name) throws IOException {
+		try (InputStream in = TreeDump.class.getResourceAsStream(name)) {
+			return readFully(in);
+		}
+	}
+
+	private static byte[] readFully(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[8192];
+		int n;
+		while ((n = in.read(buf)) > 0) {
+			out.write(buf, 0, n);
+		}
+		return out.toByteArray();
+	}
+
+	static List<String> dump(TinyTree tree) {
+		List<String> namespaces = tree.getMetadata().getNamespaces();
+		List<String> ret = new ArrayList<>();
+		ret.add("namespaces " + namespaces);
+		for (ClassDef clz : tree.getClasses()) {
+			ret.add("c " + names(clz, namespaces));
+			for (FieldDef field : clz.getFields()) {
+				ret.add("\tf " + names(field, namespaces) + descriptors(field, namespaces));
+			}
+			for (MethodDef method : clz.getMethods()) {
+				ret.add("\tm " + names(method, namespaces) + descriptors(method, namespaces));
+				for (ParameterDef par : method.getParameters()) {
+					ret.add("\t\tp " + par.getLocalVariableIndex() + " " + names(par, namespaces));
+				}
+				for (LocalVariableDef var : method.getLocalVariables()) {
+					ret.add("\t\tv " + var.getLocalVariableIndex() + " " + var.getLocalVariableStartOffset() + " " + var.getLocalVariableTableIndex() + " " + names(var, namespaces));
+				}
+			}
+		}
+		return ret;
+	}
+
+	private static String names(Mapped mapped, List<String> namespaces) {
+		StringBuilder builder = new StringBuilder();
+		for (String namespace : namespaces) {
+			builder.append(mapped.getName(namespace)).append('[').append(mapped.getRawName(namespace)).append("] ");
+		}
+		return builder.append("# ").append(mapped.getComment()).toString();
+	}
+
+	private static String descriptors(Descriptored descriptored, List<String> namespaces) {
+		StringBuilder builder = new StringBuilder();
+		for (String namespace : namespaces) {
+			builder.append(' ').append(descriptored.getDescriptor(namespace));
+		}
+		return builder.toString();
+	}
+
+	private TreeDump() {
+	}
+}
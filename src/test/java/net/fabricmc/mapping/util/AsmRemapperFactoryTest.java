@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mapping.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.commons.Remapper;
+
+import net.fabricmc.mapping.tree.TinyMappingFactory;
+import net.fabricmc.mapping.tree.TinyTree;
+
+public class AsmRemapperFactoryTest {
+
+	private static TinyTree tree() throws IOException {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(AsmRemapperFactoryTest.class.getResourceAsStream("/bigboi_mappings.tinyv2"), StandardCharsets.UTF_8))) {
+			return TinyMappingFactory.load(reader);
+		}
+	}
+
+	@Test
+	public void testConcurrentGet() throws IOException, InterruptedException, ExecutionException {
+		AsmRemapperFactory factory = new AsmRemapperFactory(tree(), AsmRemapperFactory.Retention.strong());
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<Remapper>> remappers = new ArrayList<>();
+			for (int i = 0; i < 32; i++) {
+				int to = 1 + i % 2;
+				remappers.add(executor.submit(() -> {
+					start.await();
+					return factory.getRemapper(0, to);
+				}));
+			}
+			start.countDown();
+			for (int i = 0; i < remappers.size(); i++) {
+				Remapper expected = factory.getRemapper(0, 1 + i % 2);
+				Assertions.assertSame(expected, remappers.get(i).get());
+			}
+			Assertions.assertEquals("net/minecraft/util/math/Quaternion", factory.getRemapper("official", "named").map("a"));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testBoundedEviction() throws IOException {
+		AsmRemapperFactory factory = new AsmRemapperFactory(tree(), AsmRemapperFactory.Retention.bounded(2));
+		Remapper first = factory.getRemapper(0, 1);
+		Remapper second = factory.getRemapper(0, 2);
+		Assertions.assertSame(first, factory.getRemapper(0, 1));
+
+		// the third remapper evicts the first one built, which is rebuilt next
+		Remapper third = factory.getRemapper(1, 2);
+		Remapper rebuilt = factory.getRemapper(0, 1);
+		Assertions.assertNotSame(first, rebuilt);
+		Assertions.assertSame(third, factory.getRemapper(1, 2));
+		Assertions.assertSame(rebuilt, factory.getRemapper(0, 1));
+		Assertions.assertNotSame(second, factory.getRemapper(0, 2));
+
+		// rebuilding evicted remappers many times never drops the newest ones
+		for (int i = 0; i < 16; i++) {
+			Remapper a = factory.getRemapper(2, i % 3);
+			Remapper b = factory.getRemapper(1, i % 3);
+			Assertions.assertSame(a, factory.getRemapper(2, i % 3));
+			Assertions.assertSame(b, factory.getRemapper(1, i % 3));
+		}
+	}
+
+	@Test
+	public void testNoRetention() throws IOException {
+		AsmRemapperFactory factory = new AsmRemapperFactory(tree(), AsmRemapperFactory.Retention.bounded(0));
+		Assertions.assertNotSame(factory.getRemapper(0, 1), factory.getRemapper(0, 1));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> AsmRemapperFactory.Retention.bounded(-1));
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ClassNameTableTest {
+
+	@Test
+	public void testSameAsMap() {
+		Random random = new Random(42);
+		ClassNameTable<String> table = new ClassNameTable<>();
+		Map<String, String> expected = new HashMap<>();
+		for (int i = 0; i < 20000; i++) {
+			String name = "pkg/C" + random.nextInt(5000);
+			String value = "v" + i;
+			Assertions.assertEquals(expected.put(name, value), table.put(name, value));
+		}
+		Assertions.assertEquals(expected.size(), table.size());
+		for (Map.Entry<String, String> entry : expected.entrySet()) {
+			String descriptor = "(IL" + entry.getKey() + ";)V";
+			Assertions.assertEquals(entry.getValue(), table.get(descriptor, 3, descriptor.length() - 3));
+			Assertions.assertEquals(entry.getValue(), table.get(new String(entry.getKey())));
+		}
+		Assertions.assertNull(table.get("pkg/Missing"));
+		Assertions.assertNull(table.get("Lpkg/C1;", 1, 6));
+		Assertions.assertNull(table.putIfAbsent("pkg/New", "v"));
+		Assertions.assertEquals("v", table.putIfAbsent("pkg/New", "w"));
+	}
+
+	@Test
+	public void testRangeLookup() {
+		ClassNameTable<String> table = new ClassNameTable<>(1);
+		table.put("a/B", "c/D");
+		table.put("", "empty");
+		Assertions.assertEquals("(Lc/D;[Lc/D;)La/Bb;", DescriptorRemapper.mapDescriptor("(La/B;[La/B;)La/Bb;", DescriptorRemapper.ClassLookup.of(table)));
+		Assertions.assertEquals("empty", table.get("xyz", 1, 1));
+	}
+
+	@Test
+	public void testNullValue() {
+		ClassNameTable<String> table = new ClassNameTable<>();
+		Assertions.assertThrows(NullPointerException.class, () -> table.put("a/B", null));
+		Assertions.assertThrows(NullPointerException.class, () -> table.putIfAbsent("a/B", null));
+		Assertions.assertEquals(0, table.size());
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class DescriptorRemapperTest {
+
+	private static final ClassMapper MAPPER;
+
+	static {
+		Map<String, String> map = new HashMap<>();
+		map.put("a", "pkg/Apple");
+		map.put("a$b", "pkg/Apple$Seed");
+		map.put("c", "pkg/Cherry");
+		map.put("c$d", "pkg/Pit");
+		map.put("same", "same");
+		MAPPER = new ClassMapper(map);
+	}
+
+	@Test
+	public void testDescriptors() {
+		Assertions.assertEquals("(Lpkg/Apple;I[Lpkg/Cherry;)Lpkg/Apple$Seed;", MAPPER.mapDescriptor("(La;I[Lc;)La$b;"));
+		Assertions.assertEquals("Lpkg/Apple;", MAPPER.mapDescriptor("La;"));
+
+		String unchanged = new String("(Ljava/lang/String;Lsame;J)V");
+		Assertions.assertSame(unchanged, MAPPER.mapDescriptor(unchanged));
+		String invalid = new String("(La;Lc");
+		Assertions.assertSame(invalid, MAPPER.mapDescriptor(invalid));
+	}
+
+	@Test
+	public void testSignatures() {
+		Assertions.assertEquals("<T:Lpkg/Apple;U::Ljava/lang/Comparable<TU;>;>Ljava/lang/Object;Ljava/util/List<TT;>;",
+				MAPPER.mapSignature("<T:La;U::Ljava/lang/Comparable<TU;>;>Ljava/lang/Object;Ljava/util/List<TT;>;"));
+		Assertions.assertEquals("(Ljava/util/Map<+Lpkg/Apple;-[Lpkg/Cherry;>;TL;)V^Lpkg/Apple;",
+				MAPPER.mapSignature("(Ljava/util/Map<+La;-[Lc;>;TL;)V^La;"));
+		Assertions.assertEquals("Lpkg/Apple<TT;>.Seed<*>;", MAPPER.mapSignature("La<TT;>.b<*>;"));
+		Assertions.assertEquals("Lpkg/Cherry.d;", MAPPER.mapSignature("Lc.d;"));
+		Assertions.assertEquals("Lpkg/Apple<Lpkg/Cherry;>.x;", MAPPER.mapSignature("La<Lc;>.x;"));
+		// a type parameter named L is not a class
+		Assertions.assertEquals("<L:Ljava/lang/Object;>(TL;Lpkg/Apple;)V", MAPPER.mapSignature("<L:Ljava/lang/Object;>(TL;La;)V"));
+
+		String unchanged = new String("<T:Ljava/lang/Object;>Ljava/util/Map<TT;Lsame;>.Entry<[I>;");
+		Assertions.assertSame(unchanged, MAPPER.mapSignature(unchanged));
+	}
+
+	@Test
+	public void testMalformedSignatures() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> MAPPER.mapSignature("La<TT;>"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> MAPPER.mapSignature("<T:La;"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> MAPPER.mapSignature("(La;TT)V"));
+	}
+
+	@Test
+	public void testRangeLookup() {
+		String descriptor = "(La;Lc;)V";
+		Assertions.assertEquals("(LA;Lc;)V", DescriptorRemapper.mapDescriptor(descriptor, (source, start, end) -> source.regionMatches(start, "a", 0, end - start) ? "A" : null));
+	}
+}
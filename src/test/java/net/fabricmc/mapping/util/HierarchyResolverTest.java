@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.fabricmc.mapping.tree.ClassDef;
+import net.fabricmc.mapping.tree.FieldDef;
+import net.fabricmc.mapping.tree.MethodDef;
+import net.fabricmc.mapping.tree.TinyMappingFactory;
+import net.fabricmc.mapping.tree.TinyTree;
+
+public class HierarchyResolverTest {
+
+	private static TinyTree tree() throws IOException {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(HierarchyResolverTest.class.getResourceAsStream("/inhtree.tiny"), StandardCharsets.UTF_8))) {
+			return TinyMappingFactory.load(reader);
+		}
+	}
+
+	private static ClassHierarchy hierarchy() {
+		// Bear extends Apple, Avatar extends Bear implements Supper
+		Map<String, Collection<String>> supertypes = new HashMap<>();
+		supertypes.put("b", Collections.singletonList("a"));
+		supertypes.put("d", Arrays.asList("b", "c"));
+		return ClassHierarchy.of(supertypes);
+	}
+
+	@Test
+	public void testInheritedMembers() throws IOException {
+		TinyTree tree = tree();
+		AtomicInteger lookups = new AtomicInteger();
+		HierarchyResolver resolver = new HierarchyResolver(hierarchy(), (owner, name, descriptor) -> {
+			lookups.incrementAndGet();
+			ClassDef clz = tree.getDefaultNamespaceClassMap().get(owner);
+			@Nullable FieldDef field = clz == null ? null : clz.getField("obf", name, descriptor);
+			return field == null ? null : field.getName("deobf");
+		}, (owner, name, descriptor) -> {
+			lookups.incrementAndGet();
+			ClassDef clz = tree.getDefaultNamespaceClassMap().get(owner);
+			@Nullable MethodDef method = clz == null ? null : clz.getMethod("obf", name, descriptor);
+			return method == null ? null : method.getName("deobf");
+		});
+
+		Assertions.assertEquals("sayName", resolver.mapMethodName("a", "a", "()V"));
+		Assertions.assertEquals("sayName", resolver.mapMethodName("d", "a", "()V"));
+		Assertions.assertEquals("sayCounter", resolver.mapMethodName("d", "b", "()V"));
+		Assertions.assertEquals("counter", resolver.mapFieldName("d", "a", "I"));
+		Assertions.assertEquals("name", resolver.mapFieldName("b", "a", "Ljava/lang/String;"));
+		Assertions.assertEquals("b", resolver.mapMethodName("b", "b", "()V"));
+		Assertions.assertEquals("x", resolver.mapMethodName("unknown", "x", "()V"));
+
+		int count = lookups.get();
+		Assertions.assertEquals("sayName", resolver.mapMethodName("d", "a", "()V"));
+		Assertions.assertEquals("sayName", resolver.mapMethodName("b", "a", "()V"));
+		Assertions.assertEquals("b", resolver.mapMethodName("b", "b", "()V"));
+		Assertions.assertEquals(count, lookups.get());
+	}
+
+	@Test
+	public void testFieldResolutionOrder() {
+		// Sub extends Base implements Face, Face extends Deep, and all but Sub declare the member
+		Map<String, Collection<String>> supertypes = new HashMap<>();
+		supertypes.put("Sub", Arrays.asList("Base", "Face"));
+		supertypes.put("Face", Arrays.asList("java/lang/Object", "Deep"));
+		HierarchyResolver resolver = new HierarchyResolver(ClassHierarchy.of(supertypes),
+				(owner, name, descriptor) -> owner.equals("Sub") ? null : owner + "Field",
+				(owner, name, descriptor) -> owner.equals("Sub") || owner.equals("Face") ? null : owner + "Method");
+		Assertions.assertEquals("FaceField", resolver.mapFieldName("Sub", "f", "I"));
+		Assertions.assertEquals("BaseMethod", resolver.mapMethodName("Sub", "m", "()V"));
+
+		// fields of superinterfaces of superinterfaces come before the superclass too
+		HierarchyResolver deep = new HierarchyResolver(ClassHierarchy.of(supertypes),
+				(owner, name, descriptor) -> owner.equals("Base") || owner.equals("Deep") ? owner + "Field" : null,
+				(owner, name, descriptor) -> null);
+		Assertions.assertEquals("DeepField", deep.mapFieldName("Sub", "f", "I"));
+	}
+
+	@Test
+	public void testCycle() {
+		Map<String, Collection<String>> supertypes = new HashMap<>();
+		supertypes.put("x", Collections.singletonList("y"));
+		supertypes.put("y", Arrays.asList("x", "z"));
+		HierarchyResolver resolver = new HierarchyResolver(ClassHierarchy.of(supertypes),
+				(owner, name, descriptor) -> null,
+				(owner, name, descriptor) -> owner.equals("z") ? "found" : null);
+		Assertions.assertEquals("found", resolver.mapMethodName("x", "m", "()V"));
+		Assertions.assertEquals("f", resolver.mapFieldName("x", "f", "I"));
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mapping.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.SimpleRemapper;
+
+public class JarRemapperTest {
+
+	private static final SimpleRemapper REMAPPER = new SimpleRemapper(Collections.singletonMap("a/A", "b/B"));
+
+	@Test
+	public void testRemap() throws IOException {
+		Path input = Files.createTempFile("input", ".jar");
+		Path output = Files.createTempFile("output", ".jar");
+		try {
+			try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(input))) {
+				put(out, "a/", null);
+				put(out, "a/A.class", classFile("a/A"));
+				put(out, "a/C.class", classFile("a/C"));
+				put(out, "data.txt", "data".getBytes(StandardCharsets.UTF_8));
+			}
+			JarRemapper.remap(input, output, REMAPPER);
+
+			try (ZipFile zip = new ZipFile(output.toFile())) {
+				Assertions.assertEquals(Arrays.asList("b/", "b/B.class", "a/", "a/C.class", "data.txt"), names(zip));
+				Assertions.assertEquals("b/B", new ClassReader(read(zip, "b/B.class")).getClassName());
+				Assertions.assertEquals("a/C", new ClassReader(read(zip, "a/C.class")).getClassName());
+				Assertions.assertEquals("data", new String(read(zip, "data.txt"), StandardCharsets.UTF_8));
+			}
+		} finally {
+			Files.delete(input);
+			Files.delete(output);
+		}
+	}
+
+	@Test
+	public void testMovedPackage() throws IOException {
+		Path input = Files.createTempFile("input", ".jar");
+		Path output = Files.createTempFile("output", ".jar");
+		try {
+			try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(input))) {
+				put(out, "a/", null);
+				put(out, "a/A.class", classFile("a/A"));
+				put(out, "empty/", null);
+				put(out, "x/y/data.txt", "data".getBytes(StandardCharsets.UTF_8));
+			}
+			JarRemapper.remap(input, output, REMAPPER);
+
+			try (ZipFile zip = new ZipFile(output.toFile())) {
+				Assertions.assertEquals(Arrays.asList("b/", "b/B.class", "x/", "x/y/", "x/y/data.txt"), names(zip));
+			}
+		} finally {
+			Files.delete(input);
+			Files.delete(output);
+		}
+	}
+
+	@Test
+	public void testCollision() throws IOException {
+		Path input = Files.createTempFile("input", ".jar");
+		Path output = Files.createTempFile("output", ".jar");
+		try {
+			try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(input))) {
+				put(out, "b/B.class", classFile("b/B"));
+				put(out, "a/A.class", classFile("a/A"));
+			}
+			IOException ex = Assertions.assertThrows(IOException.class, () -> JarRemapper.remap(input, output, REMAPPER));
+			Assertions.assertEquals("Entries b/B.class and a/A.class are both mapped to b/B.class", ex.getMessage());
+
+			try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(input))) {
+				put(out, "a/A.class", classFile("a/A"));
+				put(out, "c/C.class", classFile("c/C"));
+			}
+			Map<String, String> mapping = new HashMap<>();
+			mapping.put("a/A", "d/D");
+			mapping.put("c/C", "d/D");
+			ex = Assertions.assertThrows(IOException.class, () -> JarRemapper.remap(input, output, new SimpleRemapper(mapping)));
+			Assertions.assertEquals("Entries a/A.class and c/C.class are both mapped to d/D.class", ex.getMessage());
+		} finally {
+			Files.delete(input);
+			Files.delete(output);
+		}
+	}
+
+	@Test
+	public void testSigned() throws IOException {
+		Manifest manifest = new Manifest();
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		manifest.getMainAttributes().putValue("Main-Class", "a.A");
+		manifest.getEntries().computeIfAbsent("a/A.class", name -> new Attributes()).putValue("SHA-256-Digest", "AAAA");
+		Attributes data = manifest.getEntries().computeIfAbsent("data.txt", name -> new Attributes());
+		data.putValue("SHA-256-Digest", "BBBB");
+		data.putValue("Content-Type", "text/plain");
+
+		Path input = Files.createTempFile("input", ".jar");
+		Path output = Files.createTempFile("output", ".jar");
+		try {
+			try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(input))) {
+				put(out, JarFile.MANIFEST_NAME, null);
+				manifest.write(out);
+				put(out, "META-INF/KEY.SF", new byte[1]);
+				put(out, "META-INF/KEY.RSA", new byte[1]);
+				put(out, "META-INF/OTHER.DSA", new byte[1]);
+				put(out, "META-INF/OTHER.EC", new byte[1]);
+				put(out, "META-INF/services/a.A", "a.A".getBytes(StandardCharsets.UTF_8));
+				put(out, "a/A.class", classFile("a/A"));
+				put(out, "data.txt", "data".getBytes(StandardCharsets.UTF_8));
+			}
+			JarRemapper.remap(input, output, REMAPPER);
+
+			try (ZipFile zip = new ZipFile(output.toFile())) {
+				Assertions.assertEquals(Arrays.asList(JarFile.MANIFEST_NAME, "META-INF/services/a.A", "b/B.class", "data.txt"), names(zip));
+				Manifest actual;
+				try (InputStream in = zip.getInputStream(zip.getEntry(JarFile.MANIFEST_NAME))) {
+					actual = new Manifest(in);
+				}
+				Assertions.assertEquals("a.A", actual.getMainAttributes().getValue("Main-Class"));
+				Assertions.assertEquals(Collections.singleton("data.txt"), actual.getEntries().keySet());
+				Assertions.assertNull(actual.getAttributes("data.txt").getValue("SHA-256-Digest"));
+				Assertions.assertEquals("text/plain", actual.getAttributes("data.txt").getValue("Content-Type"));
+			}
+		} finally {
+			Files.delete(input);
+			Files.delete(output);
+		}
+	}
+
+	private static byte[] classFile(String name) {
+		ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+		writer.visitField(Opcodes.ACC_PUBLIC, "self", "La/A;", null, null).visitEnd();
+		writer.visitEnd();
+		return writer.toByteArray();
+	}
+
+	private static void put(ZipOutputStream out, String name, byte[] content) throws IOException {
+		out.putNextEntry(new ZipEntry(name));
+		if (content != null) {
+			out.write(content);
+		}
+	}
+
+	private static List<String> names(ZipFile zip) {
+		List<String> ret = new ArrayList<>();
+		zip.stream().forEach(entry -> ret.add(entry.getName()));
+		return ret;
+	}
+
+	private static byte[] read(ZipFile zip, String name) throws IOException {
+		try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+			byte[] buffer = new byte[(int) zip.getEntry(name).getSize()];
+			int length = 0;
+			int read;
+			while (length < buffer.length && (read = in.read(buffer, length, buffer.length - length)) >= 0) {
+				length += read;
+			}
+			return buffer;
+		}
+	}
+}
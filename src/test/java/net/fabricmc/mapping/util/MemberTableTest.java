@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.mapping.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MemberTableTest {
+
+	@Test
+	public void testSameAsMap() {
+		Random random = new Random(42);
+		MemberTable table = new MemberTable();
+		Map<EntryTriple, String> expected = new HashMap<>();
+		for (int i = 0; i < 20000; i++) {
+			String owner = "pkg/C" + random.nextInt(200);
+			String name = "m" + random.nextInt(50);
+			String descriptor = random.nextBoolean() ? "()V" : "(I)Ljava/lang/String;";
+			String value = "v" + i;
+			Assertions.assertEquals(expected.put(new EntryTriple(owner, name, descriptor), value), table.put(owner, name, descriptor, value));
+		}
+		Assertions.assertEquals(expected.size(), table.size());
+		for (Map.Entry<EntryTriple, String> entry : expected.entrySet()) {
+			EntryTriple key = entry.getKey();
+			// probe with equal but distinct strings
+			Assertions.assertEquals(entry.getValue(), table.get(new String(key.getOwner()), new String(key.getName()), new String(key.getDescriptor())));
+		}
+		Assertions.assertNull(table.get("pkg/C0", "m0", "(J)V"));
+		Assertions.assertEquals("fallback", table.getOrDefault("pkg/Missing", "m0", "()V", "fallback"));
+	}
+
+	@Test
+	public void testSwappedParts() {
+		MemberTable table = new MemberTable(1);
+		table.put("a", "b", "c", "abc");
+		Assertions.assertNull(table.get("b", "a", "c"));
+		Assertions.assertNull(table.get("a", "c", "b"));
+		Assertions.assertEquals("abc", table.get("a", "b", "c"));
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.fabricmc.mapping.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import net.fabricmc.mapping.tree.ClassDef;
+import net.fabricmc.mapping.tree.FieldDef;
+import net.fabricmc.mapping.tree.MethodDef;
+import net.fabricmc.mapping.tree.TinyMappingFactory;
+import net.fabricmc.mapping.tree.TinyTree;
+
+public class RemappingIndexTest {
+
+	private static TinyTree tree() throws IOException {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(RemappingIndexTest.class.getResourceAsStream("/bigboi_mappings.tinyv2"), StandardCharsets.UTF_8))) {
+			return TinyMappingFactory.load(reader);
+		}
+	}
+
+	@Test
+	public void testParallelSameAsSequential() throws IOException {
+		TinyTree tree = tree();
+		// every class twice, so later duplicates must win across runs
+		List<ClassDef> classes = new ArrayList<>(tree.getClasses());
+		classes.addAll(tree.getClasses());
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			RemappingIndex expected = RemappingIndex.build(classes, "official", "named");
+			RemappingIndex actual = RemappingIndex.build(classes, 0, 2, pool);
+
+			Assertions.assertEquals(expected.getClassNames(), actual.getClassNames());
+			for (ClassDef clz : tree.getClasses()) {
+				String owner = clz.getName(0);
+				Assertions.assertEquals(clz.getName(2), actual.mapClassName(owner));
+				for (FieldDef field : clz.getFields()) {
+					Assertions.assertEquals(expected.mapFieldName(owner, field.getName(0), field.getDescriptor(0)), actual.mapFieldName(owner, field.getName(0), field.getDescriptor(0)));
+				}
+				for (MethodDef method : clz.getMethods()) {
+					Assertions.assertEquals(expected.mapMethodName(owner, method.getName(0), method.getDescriptor(0)), actual.mapMethodName(owner, method.getName(0), method.getDescriptor(0)));
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testUnmapped() throws IOException {
+		RemappingIndex index = RemappingIndex.build(tree().getClasses(), "official", "intermediary");
+		Assertions.assertNull(index.mapClassName("java/lang/Object"));
+		Assertions.assertNull(index.mapFieldName("a", "nope", "I"));
+		Assertions.assertNull(index.mapMethodName("a", "nope", "()V"));
+		Assertions.assertThrows(UnsupportedOperationException.class, () -> index.getClassNames().put("a", "b"));
+	}
+
+	@Test
+	public void testShared() throws IOException {
+		TinyTree tree = tree();
+		RemappingIndex index = RemappingIndex.of(tree, "official", "named");
+		Assertions.assertSame(index, RemappingIndex.of(tree, 0, 2));
+		Assertions.assertNotSame(index, RemappingIndex.of(tree, "named", "official"));
+		Assertions.assertNotSame(index, RemappingIndex.of(tree(), "official", "named"));
+
+		for (ClassDef clz : tree.getClasses()) {
+			Assertions.assertEquals(clz.getName(0), index.unmapClassName(clz.getName(2)));
+		}
+		Assertions.assertEquals(index.getClassNames().size(), index.getReverseClassNames().size());
+	}
+
+	@Test
+	public void testUnknownNamespace() throws IOException {
+		TinyTree tree = tree();
+		IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class, () -> RemappingIndex.of(tree, 0, 3));
+		Assertions.assertEquals("Unknown namespace index: 3", ex.getMessage());
+		ex = Assertions.assertThrows(IllegalArgumentException.class, () -> RemappingIndex.of(tree, -1, 2, ForkJoinPool.commonPool()));
+		Assertions.assertEquals("Unknown namespace index: -1", ex.getMessage());
+		ex = Assertions.assertThrows(IllegalArgumentException.class, () -> RemappingIndex.of(tree, "typo", "named"));
+		Assertions.assertEquals("Unknown namespace: typo", ex.getMessage());
+	}
+}